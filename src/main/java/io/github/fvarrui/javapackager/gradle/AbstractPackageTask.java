@@ -8,7 +8,9 @@ import org.gradle.api.DefaultTask;
 import org.gradle.api.tasks.OutputFiles;
 import org.gradle.api.tasks.TaskAction;
 
+import io.github.fvarrui.javapackager.model.Platform;
 import io.github.fvarrui.javapackager.packagers.Packager;
+import io.github.fvarrui.javapackager.packagers.PackagerMatrix;
 
 /**
  * Abstract packaging task for Gradle 
@@ -39,26 +41,41 @@ public abstract class AbstractPackageTask extends DefaultTask {
 	@TaskAction
 	public void doPackage() throws Exception {
 		
-		Packager packager = createPackager();
+		Packager packager = createPackager(null);
 		
-		// generates app, installers and bundles
-		File app = packager.createApp();
-		List<File> installers = packager.generateInstallers();
-		List<File> bundles = packager.createBundles();
-		
-		// sets generated files as output
 		outputFiles = new ArrayList<>();
-		outputFiles.add(app);
-		outputFiles.addAll(installers);
-		outputFiles.addAll(bundles);
+		
+		if (packager.getTargets() != null && !packager.getTargets().isEmpty()) {
+			
+			// generates apps, installers and bundles for all targets in parallel and sets them as output
+			outputFiles.addAll(new PackagerMatrix(packager.getTargets(), this::createPackager).execute());
+			
+		} else {
+		
+			// generates app, installers, bundles and delta patches
+			File app = packager.createApp();
+			List<File> installers = packager.generateInstallers();
+			List<File> bundles = packager.createBundles();
+			File delta = packager.generateDelta();
+			
+			// sets generated files as output
+			outputFiles.add(app);
+			outputFiles.addAll(installers);
+			outputFiles.addAll(bundles);
+			if (delta != null) {
+				outputFiles.add(delta);
+			}
+			
+		}
 
 	}
 	
 	/**
 	 * Creates a platform specific packager
+	 * @param platform Target platform (null to use the configured one)
 	 * @return Packager
 	 * @throws Exception Throwed if something went wrong
 	 */
-	protected abstract Packager createPackager() throws Exception; 
+	protected abstract Packager createPackager(Platform platform) throws Exception; 
 	
 }
@@ -45,7 +45,7 @@ public class CreateWindowsExeLaunch4j extends AbstractCreateWindowsExe {
 		if (winConfig.isWrapJar()) {
 			jarPath = getGenericJar().getAbsolutePath();
 		} else {
-			FileUtils.copyFileToFolder(jarFile, appFolder);
+			FileUtils.copyFileToFolder(jarFile, appFolder, packager.getStagingMode());
 			jarPath = jarFile.getName();
 		}
 
@@ -48,29 +48,28 @@ public class GradleContext extends Context<Logger> {
 	}
 
 	@Override
-	public File createRunnableJar(Packager packager) throws Exception {
+	public synchronized File createRunnableJar(Packager packager) throws Exception {
 		return new CreateRunnableJar().apply(packager);
 	}
 
 	@Override
-	public File copyDependencies(Packager packager) throws Exception {
+	public synchronized File copyDependencies(Packager packager) throws Exception {
 		return new CopyDependencies().apply(packager);
 	}
 
 	@Override
-	public File createTarball(Packager packager) throws Exception {
-		return new CreateTarball().apply(packager);
-	}
-
-	@Override
-	public File createZipball(Packager packager) throws Exception {
-		return new CreateZipball().apply(packager);
+	public synchronized File resolveLicense(Packager packager) throws Exception {
+		// do nothing
+		return null;
 	}
 
+	/**
+	 * Gradle tasks (e.g. Launch4j) can only be created and executed from the
+	 * build thread, so targets are packaged sequentially
+	 */
 	@Override
-	public File resolveLicense(Packager packager) throws Exception {
-		// do nothing
-		return null;
+	public boolean isConcurrent() {
+		return false;
 	}
 
 	public Launch4jLibraryTask getLibraryTask() {
@@ -118,7 +117,7 @@ public class GradleContext extends Context<Logger> {
 	}
 
 	@Override
-	public File createWindowsExe(WindowsPackager packager) throws Exception {
+	public synchronized File createWindowsExe(WindowsPackager packager) throws Exception {
 		AbstractCreateWindowsExe createWindowsExe;
 		switch (packager.getWinConfig().getExeCreationTool()) {
 			case launch4j: createWindowsExe = new CreateWindowsExeLaunch4j(); break;
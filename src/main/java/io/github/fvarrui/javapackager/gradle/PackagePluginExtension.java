@@ -9,11 +9,16 @@ import org.gradle.api.file.DuplicatesStrategy;
 
 import groovy.lang.Closure;
 import io.github.fvarrui.javapackager.model.Arch;
+import io.github.fvarrui.javapackager.model.CdsConfig;
+import io.github.fvarrui.javapackager.model.CompressionConfig;
+import io.github.fvarrui.javapackager.model.JreOptimization;
 import io.github.fvarrui.javapackager.model.LinuxConfig;
 import io.github.fvarrui.javapackager.model.MacConfig;
 import io.github.fvarrui.javapackager.model.Manifest;
 import io.github.fvarrui.javapackager.model.Platform;
 import io.github.fvarrui.javapackager.model.Scripts;
+import io.github.fvarrui.javapackager.model.StagingMode;
+import io.github.fvarrui.javapackager.model.Target;
 import io.github.fvarrui.javapackager.model.WindowsConfig;
 import io.github.fvarrui.javapackager.packagers.PackagerSettings;
 
@@ -56,6 +61,18 @@ public class PackagePluginExtension extends PackagerSettings {
 		this.scripts = new Scripts();
 		this.forceInstaller = false;
 		this.arch = Arch.getDefault();
+		this.stagingMode = StagingMode.copy;
+		this.cacheDir = new File(System.getProperty("user.home"), ".javapackager/cache");
+		this.incremental = false;
+		this.targets = new ArrayList<>();
+		this.jfrEvents = false;
+		this.offline = false;
+		this.downloadMirrors = new ArrayList<>();
+		this.compression = new CompressionConfig();
+		this.createZsync = false;
+		this.cds = new CdsConfig();
+		this.jreOptimization = new JreOptimization();
+		this.cacheMaxSize = 2048L;
 		this.duplicatesStrategy = DuplicatesStrategy.WARN;
 	}
 	
@@ -89,6 +106,24 @@ public class PackagePluginExtension extends PackagerSettings {
         return scripts;
     }
     
+    public CompressionConfig compression(Closure<CompressionConfig> closure) {
+        compression = new CompressionConfig();
+        project.configure(compression, closure);
+        return compression;
+    }
+    
+    public CdsConfig cds(Closure<CdsConfig> closure) {
+        cds = new CdsConfig();
+        project.configure(cds, closure);
+        return cds;
+    }
+    
+    public JreOptimization jreOptimization(Closure<JreOptimization> closure) {
+        jreOptimization = new JreOptimization();
+        project.configure(jreOptimization, closure);
+        return jreOptimization;
+    }
+    
     public void setDuplicatesStrategy(DuplicatesStrategy duplicatesStrategy) {
 		this.duplicatesStrategy = duplicatesStrategy;
 	}
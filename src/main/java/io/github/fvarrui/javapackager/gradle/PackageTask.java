@@ -11,17 +11,23 @@ import org.gradle.api.file.DuplicatesStrategy;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
 
 import groovy.lang.Closure;
 import io.github.fvarrui.javapackager.model.Arch;
+import io.github.fvarrui.javapackager.model.CdsConfig;
+import io.github.fvarrui.javapackager.model.CompressionConfig;
 import io.github.fvarrui.javapackager.model.FileAssociation;
+import io.github.fvarrui.javapackager.model.JreOptimization;
 import io.github.fvarrui.javapackager.model.LinuxConfig;
 import io.github.fvarrui.javapackager.model.MacConfig;
 import io.github.fvarrui.javapackager.model.Manifest;
 import io.github.fvarrui.javapackager.model.Platform;
 import io.github.fvarrui.javapackager.model.Scripts;
+import io.github.fvarrui.javapackager.model.StagingMode;
+import io.github.fvarrui.javapackager.model.Target;
 import io.github.fvarrui.javapackager.model.Template;
 import io.github.fvarrui.javapackager.model.WindowsConfig;
 import io.github.fvarrui.javapackager.packagers.Context;
@@ -599,6 +605,191 @@ public class PackageTask extends AbstractPackageTask {
 		this.templates = templates;
 	}
 	
+	@Input
+	@Optional
+	private Integer threads;
+
+	public Integer getThreads() {
+		return threads;
+	}
+
+	public void setThreads(Integer threads) {
+		this.threads = threads;
+	}
+	
+	@Input
+	@Optional
+	private StagingMode stagingMode;
+
+	public StagingMode getStagingMode() {
+		return stagingMode;
+	}
+
+	public void setStagingMode(StagingMode stagingMode) {
+		this.stagingMode = stagingMode;
+	}
+	
+	@Internal
+	private File cacheDir;
+
+	public File getCacheDir() {
+		return cacheDir;
+	}
+
+	public void setCacheDir(File cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+	
+	@Input
+	@Optional
+	private Boolean incremental;
+
+	public Boolean getIncremental() {
+		return incremental;
+	}
+
+	public void setIncremental(Boolean incremental) {
+		this.incremental = incremental;
+	}
+	
+	@Input
+	@Optional
+	private List<Target> targets;
+
+	public List<Target> getTargets() {
+		return targets;
+	}
+
+	public void setTargets(List<Target> targets) {
+		this.targets = targets;
+	}
+	
+	@Input
+	@Optional
+	private Boolean jfrEvents;
+
+	public Boolean getJfrEvents() {
+		return jfrEvents;
+	}
+
+	public void setJfrEvents(Boolean jfrEvents) {
+		this.jfrEvents = jfrEvents;
+	}
+	
+	@Input
+	@Optional
+	private Boolean offline;
+
+	public Boolean getOffline() {
+		return offline;
+	}
+
+	public void setOffline(Boolean offline) {
+		this.offline = offline;
+	}
+	
+	@Input
+	@Optional
+	private List<String> downloadMirrors;
+
+	public List<String> getDownloadMirrors() {
+		return downloadMirrors;
+	}
+
+	public void setDownloadMirrors(List<String> downloadMirrors) {
+		this.downloadMirrors = downloadMirrors;
+	}
+	
+	@Input
+	@Optional
+	private CompressionConfig compression;
+
+	public CompressionConfig getCompression() {
+		return compression;
+	}
+
+	public void setCompression(CompressionConfig compression) {
+		this.compression = compression;
+	}
+	
+    public CompressionConfig compression(Closure<CompressionConfig> closure) {
+        compression = new CompressionConfig();
+        getProject().configure(compression, closure);
+        return compression;
+    }
+	
+	@Input
+	@Optional
+	private Boolean createZsync;
+
+	public Boolean isCreateZsync() {
+		return createZsync;
+	}
+
+	public void setCreateZsync(Boolean createZsync) {
+		this.createZsync = createZsync;
+	}
+	
+	@InputDirectory
+	@Optional
+	private File previousReleaseDir;
+
+	public File getPreviousReleaseDir() {
+		return previousReleaseDir;
+	}
+
+	public void setPreviousReleaseDir(File previousReleaseDir) {
+		this.previousReleaseDir = previousReleaseDir;
+	}
+	
+	@Input
+	@Optional
+	private CdsConfig cds;
+
+	public CdsConfig getCds() {
+		return cds;
+	}
+
+	public void setCds(CdsConfig cds) {
+		this.cds = cds;
+	}
+	
+    public CdsConfig cds(Closure<CdsConfig> closure) {
+        cds = new CdsConfig();
+        getProject().configure(cds, closure);
+        return cds;
+    }
+	
+	@Input
+	@Optional
+	private JreOptimization jreOptimization;
+
+	public JreOptimization getJreOptimization() {
+		return jreOptimization;
+	}
+
+	public void setJreOptimization(JreOptimization jreOptimization) {
+		this.jreOptimization = jreOptimization;
+	}
+	
+    public JreOptimization jreOptimization(Closure<JreOptimization> closure) {
+        jreOptimization = new JreOptimization();
+        getProject().configure(jreOptimization, closure);
+        return jreOptimization;
+    }
+	
+	@Input
+	@Optional
+	private Long cacheMaxSize;
+
+	public Long getCacheMaxSize() {
+		return cacheMaxSize;
+	}
+
+	public void setCacheMaxSize(Long cacheMaxSize) {
+		this.cacheMaxSize = cacheMaxSize;
+	}
+	
 	@Input
 	@Optional
 	private DuplicatesStrategy duplicatesStrategy;
@@ -617,7 +808,7 @@ public class PackageTask extends AbstractPackageTask {
 	
 	@SuppressWarnings("unchecked")
 	@Override
-	protected Packager createPackager() throws Exception {
+	protected Packager createPackager(Platform targetPlatform) throws Exception {
 
 		PackagePluginExtension extension = getProject().getExtensions().findByType(PackagePluginExtension.class);
 		
@@ -625,7 +816,7 @@ public class PackageTask extends AbstractPackageTask {
 		
 		return
 			(Packager) PackagerFactory
-				.createPackager(defaultIfNull(platform, extension.getPlatform()))
+				.createPackager(defaultIfNull(targetPlatform, platform, extension.getPlatform()))
 					.additionalModules(defaultIfNull(additionalModules, extension.getAdditionalModules()))
 					.additionalModulePaths(defaultIfNull(additionalModulePaths, extension.getAdditionalModulePaths()))
 					.additionalResources(defaultIfNull(additionalResources, extension.getAdditionalResources()))
@@ -637,6 +828,10 @@ public class PackageTask extends AbstractPackageTask {
 					.copyDependencies(defaultIfNull(copyDependencies, extension.getCopyDependencies()))
 					.createTarball(defaultIfNull(createTarball, extension.getCreateTarball()))
 					.createZipball(defaultIfNull(createZipball, extension.getCreateZipball()))
+					.createZsync(defaultIfNull(createZsync, extension.getCreateZsync()))
+					.previousReleaseDir(defaultIfNull(previousReleaseDir, extension.getPreviousReleaseDir()))
+					.cds(defaultIfNull(cds, extension.getCds()))
+					.jreOptimization(defaultIfNull(jreOptimization, extension.getJreOptimization()))
 					.customizedJre(defaultIfNull(customizedJre, extension.getCustomizedJre()))
 					.description(defaultIfNull(appDescription, extension.getDescription()))
 					.displayName(defaultIfNull(displayName, extension.getDisplayName()))
@@ -664,6 +859,16 @@ public class PackageTask extends AbstractPackageTask {
 					.runnableJar(defaultIfNull(runnableJar, extension.getRunnableJar()))
 					.scripts(defaultIfNull(scripts, extension.getScripts()))
 					.templates(defaultIfNull(templates, extension.getTemplates()))
+					.threads(defaultIfNull(threads, extension.getThreads()))
+					.stagingMode(defaultIfNull(stagingMode, extension.getStagingMode()))
+					.cacheDir(defaultIfNull(cacheDir, extension.getCacheDir()))
+					.cacheMaxSize(defaultIfNull(cacheMaxSize, extension.getCacheMaxSize()))
+					.incremental(defaultIfNull(incremental, extension.getIncremental()))
+					.targets(defaultIfNull(targets, extension.getTargets()))
+					.jfrEvents(defaultIfNull(jfrEvents, extension.getJfrEvents()))
+					.offline(defaultIfNull(offline, extension.getOffline()))
+					.downloadMirrors(defaultIfNull(downloadMirrors, extension.getDownloadMirrors()))
+					.compression(defaultIfNull(compression, extension.getCompression()))
 					.useResourcesAsWorkingDir(defaultIfNull(useResourcesAsWorkingDir, extension.isUseResourcesAsWorkingDir()))
 					.url(defaultIfNull(url, extension.getUrl()))
 					.version(defaultIfNull(version, extension.getVersion(), getProject().getVersion().toString()))
@@ -67,32 +67,27 @@ public class MavenContext extends Context<Log> {
 	}
 
 	@Override
-	public File createRunnableJar(Packager packager) throws Exception {
+	public synchronized File createRunnableJar(Packager packager) throws Exception {
 		return new CreateRunnableJar().apply(packager);
 	}
 
 	@Override
-	public File copyDependencies(Packager packager) throws Exception {
+	public synchronized File copyDependencies(Packager packager) throws Exception {
 		return new CopyDependencies().apply(packager);
 	}
 
 	@Override
-	public File createTarball(Packager packager) throws Exception {
-		return new CreateTarball().apply(packager);
+	public String getDefaultBundleName(Packager packager) {
+		return env.getMavenProject().getBuild().getFinalName() + "-" + packager.getPlatform();
 	}
 
 	@Override
-	public File createZipball(Packager packager) throws Exception {
-		return new CreateZipball().apply(packager);
-	}
-
-	@Override
-	public File resolveLicense(Packager packager) throws Exception {
+	public synchronized File resolveLicense(Packager packager) throws Exception {
 		return new ResolveLicenseFromPOM().apply(packager);
 	}
 
 	@Override
-	public File createWindowsExe(WindowsPackager packager) throws Exception {
+	public synchronized File createWindowsExe(WindowsPackager packager) throws Exception {
 		AbstractCreateWindowsExe createWindowsExe;
 		switch (packager.getWinConfig().getExeCreationTool()) {
 			case launch4j: createWindowsExe = new CreateWindowsExeLaunch4j(); break;
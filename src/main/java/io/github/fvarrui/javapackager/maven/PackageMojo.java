@@ -23,6 +23,7 @@ import org.apache.maven.project.MavenProject;
 import io.github.fvarrui.javapackager.packagers.Context;
 import io.github.fvarrui.javapackager.packagers.Packager;
 import io.github.fvarrui.javapackager.packagers.PackagerFactory;
+import io.github.fvarrui.javapackager.packagers.PackagerMatrix;
 
 /**
  * JavaPackager packaging mojo  
@@ -334,6 +335,90 @@ public class PackageMojo extends AbstractMojo {
 	@Parameter(property = "templates", required = false)
 	private List<Template> templates;
 
+	/**
+	 * Max number of threads used to run packaging tasks in parallel
+	 */
+	@Parameter(property = "threads", required = false)
+	private Integer threads;
+
+	/**
+	 * How files are staged into the app folder: copy, hardlink or reflink
+	 */
+	@Parameter(defaultValue = "copy", property = "stagingMode", required = false)
+	private StagingMode stagingMode;
+
+	/**
+	 * Local cache directory (e.g. for reusing JREs between builds)
+	 */
+	@Parameter(defaultValue = "${user.home}/.javapackager/cache", property = "cacheDir", required = false)
+	private File cacheDir;
+
+	/**
+	 * Skips packaging stages (installers and bundles) whose inputs and outputs didn't change since the previous build
+	 */
+	@Parameter(defaultValue = "false", property = "incremental", required = false)
+	private Boolean incremental;
+
+	/**
+	 * Packaging targets (platform, arch and JDK to bundle). If specified, all of them are packaged in parallel into their own output subfolders, sharing the runnable jar and dependencies
+	 */
+	@Parameter(property = "targets", required = false)
+	private List<Target> targets;
+
+	/**
+	 * Emits JDK Flight Recorder events (duration, bytes, files and command lines) for every packaging stage, so they can be analyzed attaching JFR to the build
+	 */
+	@Parameter(defaultValue = "false", property = "jfrEvents", required = false)
+	private Boolean jfrEvents;
+
+	/**
+	 * Offline mode: downloads (e.g. appimagetool) are only taken from the cache, failing if they have not been downloaded before
+	 */
+	@Parameter(defaultValue = "false", property = "offline", required = false)
+	private Boolean offline;
+
+	/**
+	 * Base URLs (e.g. https://mirror.example.com/javapackager or file:///opt/mirror) tried before original download URLs. Files are looked up as mirror/host/path
+	 */
+	@Parameter(property = "downloadMirrors", required = false)
+	private List<String> downloadMirrors;
+
+	/**
+	 * Compression profile (fastest, balanced or smallest) and per-format overrides of algorithm, level and threads
+	 */
+	@Parameter(property = "compression", required = false)
+	private CompressionConfig compression;
+
+	/**
+	 * Generates zsync control files for the AppImage and the tarball, so updates can download only changed blocks
+	 */
+	@Parameter(defaultValue = "false", property = "createZsync", required = false)
+	private Boolean createZsync;
+
+	/**
+	 * Folder with the artifacts of the previous release, to generate binary delta patches from them
+	 */
+	@Parameter(property = "previousReleaseDir", required = false)
+	private File previousReleaseDir;
+
+	/**
+	 * Class data sharing: a training run of the app against the bundled JRE generates an AppCDS archive or an AOT cache used by the launchers
+	 */
+	@Parameter(property = "cds", required = false)
+	private CdsConfig cds;
+
+	/**
+	 * Bundled JRE jlink options: preset (startup, balanced or size) and overrides of jlink plugin options
+	 */
+	@Parameter(property = "jreOptimization", required = false)
+	private JreOptimization jreOptimization;
+
+	/**
+	 * Max size of the cache, in megabytes (least recently used entries are removed when it's exceeded, 0 disables it)
+	 */
+	@Parameter(defaultValue = "2048", property = "cacheMaxSize", required = false)
+	private Long cacheMaxSize;
+
 	public void execute() throws MojoExecutionException {
 		
 		Context.setContext(
@@ -345,61 +430,22 @@ public class PackageMojo extends AbstractMojo {
 
 		try {
 
-			Packager packager = 
-				(Packager) PackagerFactory
-					.createPackager(platform)
-						.additionalModules(additionalModules)
-						.additionalModulePaths(additionalModulePaths)
-						.additionalResources(additionalResources)
-						.administratorRequired(administratorRequired)
-						.arch(defaultIfNull(arch, Arch.getDefault()))
-						.assetsDir(assetsDir)
-						.bundleJre(bundleJre)
-						.classpath(classpath)
-						.copyDependencies(copyDependencies)
-						.createTarball(createTarball)
-						.tarballName(tarballName)
-						.createZipball(createZipball)
-						.zipballName(zipballName)
-						.customizedJre(customizedJre)
-						.description(description)
-						.displayName(displayName)
-						.envPath(envPath)
-						.extra(extra)
-						.fileAssociations(fileAssociations)
-						.forceInstaller(forceInstaller)
-						.generateInstaller(generateInstaller)
-						.iconFile(iconFile)
-						.jdkPath(jdkPath)
-						.jreDirectoryName(jreDirectoryName)
-						.jreMinVersion(jreMinVersion)
-						.jrePath(jrePath)
-						.licenseFile(licenseFile)
-						.linuxConfig(linuxConfig)
-						.macConfig(macConfig)
-						.mainClass(mainClass)
-						.manifest(manifest)
-						.modules(modules)
-						.name(defaultIfBlank(name, Context.getMavenContext().getEnv().getMavenProject().getArtifactId()))
-						.organizationEmail(organizationEmail)
-						.organizationName(organizationName)
-						.organizationUrl(organizationUrl)
-						.outputDirectory(outputDirectory)
-						.packagingJdk(packagingJdk)
-						.runnableJar(runnableJar)
-						.scripts(scripts)
-						.templates(templates)
-						.useResourcesAsWorkingDir(useResourcesAsWorkingDir)
-						.url(url)
-						.version(version)
-						.vmArgs(vmArgs)
-						.appArgs(appArgs)
-						.winConfig(winConfig);
+			Packager packager = createPackager(platform);
+			
+			if (packager.getTargets() != null && !packager.getTargets().isEmpty()) {
+				
+				// generate apps, installers and bundles for all targets in parallel
+				new PackagerMatrix(packager.getTargets(), this::createPackager).execute();
+				
+			} else {
 			
-			// generate app, installers and bundles
-			packager.createApp();
-			packager.generateInstallers();
-			packager.createBundles();
+				// generate app, installers, bundles and delta patches
+				packager.createApp();
+				packager.generateInstallers();
+				packager.createBundles();
+				packager.generateDelta();
+				
+			}
 			
 		} catch (Exception e) {
 
@@ -410,5 +456,78 @@ public class PackageMojo extends AbstractMojo {
 
 	}
 
+	/**
+	 * Creates a packager configured with this mojo parameters
+	 * @param platform Target platform
+	 * @return Packager
+	 * @throws Exception If packager cannot be created
+	 */
+	private Packager createPackager(Platform platform) throws Exception {
+		return
+			(Packager) PackagerFactory
+				.createPackager(platform)
+					.additionalModules(additionalModules)
+					.additionalModulePaths(additionalModulePaths)
+					.additionalResources(additionalResources)
+					.administratorRequired(administratorRequired)
+					.arch(defaultIfNull(arch, Arch.getDefault()))
+					.assetsDir(assetsDir)
+					.bundleJre(bundleJre)
+					.classpath(classpath)
+					.copyDependencies(copyDependencies)
+					.createTarball(createTarball)
+					.tarballName(tarballName)
+					.createZipball(createZipball)
+					.createZsync(createZsync)
+					.previousReleaseDir(previousReleaseDir)
+					.cds(cds)
+					.jreOptimization(jreOptimization)
+					.zipballName(zipballName)
+					.customizedJre(customizedJre)
+					.description(description)
+					.displayName(displayName)
+					.envPath(envPath)
+					.extra(extra)
+					.fileAssociations(fileAssociations)
+					.forceInstaller(forceInstaller)
+					.generateInstaller(generateInstaller)
+					.iconFile(iconFile)
+					.jdkPath(jdkPath)
+					.jreDirectoryName(jreDirectoryName)
+					.jreMinVersion(jreMinVersion)
+					.jrePath(jrePath)
+					.licenseFile(licenseFile)
+					.linuxConfig(linuxConfig)
+					.macConfig(macConfig)
+					.mainClass(mainClass)
+					.manifest(manifest)
+					.modules(modules)
+					.name(defaultIfBlank(name, Context.getMavenContext().getEnv().getMavenProject().getArtifactId()))
+					.organizationEmail(organizationEmail)
+					.organizationName(organizationName)
+					.organizationUrl(organizationUrl)
+					.outputDirectory(outputDirectory)
+					.packagingJdk(packagingJdk)
+					.runnableJar(runnableJar)
+					.scripts(scripts)
+					.templates(templates)
+					.threads(threads)
+					.stagingMode(stagingMode)
+					.cacheDir(cacheDir)
+					.cacheMaxSize(cacheMaxSize)
+					.incremental(incremental)
+					.targets(targets)
+					.jfrEvents(jfrEvents)
+					.offline(offline)
+					.downloadMirrors(downloadMirrors)
+					.compression(compression)
+					.useResourcesAsWorkingDir(useResourcesAsWorkingDir)
+					.url(url)
+					.version(version)
+					.vmArgs(vmArgs)
+					.appArgs(appArgs)
+					.winConfig(winConfig);
+	}
+
 	
 }
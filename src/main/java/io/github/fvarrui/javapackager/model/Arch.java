@@ -1,7 +1,6 @@
 package io.github.fvarrui.javapackager.model;
 
 import org.apache.commons.lang3.SystemUtils;
-import org.redline_rpm.header.Architecture;
 
 public enum Arch {
 	aarch64, 
@@ -39,11 +38,20 @@ public enum Arch {
 		}
 	}
 	
-	public Architecture toRpmArchitecture() {		
+	public String toRpmArchitecture() {		
 		switch (this) {
-		case aarch64: return Architecture.AARCH64;
-		case x64: return Architecture.X86_64;
-		case x86: return Architecture.I386;
+		case aarch64: return "aarch64";
+		case x64: return "x86_64";
+		case x86: return "i386";
+		default: return null;
+		}
+	}
+
+	public String toAppImageArchitecture() {
+		switch (this) {
+		case aarch64: return "aarch64";
+		case x64: return "x86_64";
+		case x86: return "i686";
 		default: return null;
 		}
 	}
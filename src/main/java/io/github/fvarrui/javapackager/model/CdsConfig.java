@@ -0,0 +1,57 @@
+package io.github.fvarrui.javapackager.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class data sharing configuration: a training run of the app against the
+ * bundled JRE generates an AppCDS archive or an AOT cache, which launchers use
+ * to speed up the app startup
+ */
+public class CdsConfig implements Serializable {
+	private static final long serialVersionUID = 3610294758162001437L;
+
+	private boolean enabled = false;
+	private CdsMode mode = CdsMode.auto;
+	private List<String> trainingArgs = new ArrayList<>();
+	private int timeout = 60;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public CdsMode getMode() {
+		return mode;
+	}
+
+	public void setMode(CdsMode mode) {
+		this.mode = mode;
+	}
+
+	public List<String> getTrainingArgs() {
+		return trainingArgs;
+	}
+
+	public void setTrainingArgs(List<String> trainingArgs) {
+		this.trainingArgs = trainingArgs;
+	}
+
+	public int getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(int timeout) {
+		this.timeout = timeout;
+	}
+
+	@Override
+	public String toString() {
+		return "CdsConfig [enabled=" + enabled + ", mode=" + mode + ", trainingArgs=" + trainingArgs + ", timeout=" + timeout + "]";
+	}
+
+}
@@ -0,0 +1,13 @@
+package io.github.fvarrui.javapackager.model;
+
+/**
+ * Startup caches which can be generated for the bundled JRE
+ */
+public enum CdsMode {
+	/** AOT cache if the bundled JRE is 24 or later, AppCDS archive otherwise */
+	auto,
+	/** dynamic AppCDS archive (JRE 13 or later) */
+	appCds,
+	/** AOT cache (JRE 24 or later) */
+	aotCache
+}
@@ -0,0 +1,199 @@
+package io.github.fvarrui.javapackager.model;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang3.ObjectUtils;
+
+/**
+ * Compression configuration for all generated artifacts: a profile which sets
+ * the defaults of every format, and optional overrides per format
+ */
+public class CompressionConfig implements Serializable {
+	private static final long serialVersionUID = -5326102911465862011L;
+
+	/**
+	 * Artifact formats which can be compressed
+	 */
+	public enum Format {
+		/** bundled JRE (jlink): zip */
+		jre,
+		/** tarball: gzip or xz */
+		tarball,
+		/** zipball: deflate */
+		zipball,
+		/** DEB package: none, gzip, bzip2 or xz */
+		deb,
+		/** RPM package: gzip, bzip2 or xz */
+		rpm,
+		/** AppImage squashfs image: gzip or xz */
+		appImage,
+		/** DMG disk image: zlib, bzip2, lzfse or lzma */
+		dmg,
+		/** Inno Setup installer: Inno Setup compression (e.g. lzma2/ultra64) */
+		setup,
+		/** MSI installer and merge module cabinets: none, mszip or lzx */
+		msi
+	}
+
+	private CompressionProfile profile = CompressionProfile.balanced;
+	private Integer threads;
+	private CompressionOptions jre;
+	private CompressionOptions tarball;
+	private CompressionOptions zipball;
+	private CompressionOptions deb;
+	private CompressionOptions rpm;
+	private CompressionOptions appImage;
+	private CompressionOptions dmg;
+	private CompressionOptions setup;
+	private CompressionOptions msi;
+
+	public CompressionProfile getProfile() {
+		return profile;
+	}
+
+	public void setProfile(CompressionProfile profile) {
+		this.profile = profile;
+	}
+
+	public Integer getThreads() {
+		return threads;
+	}
+
+	public void setThreads(Integer threads) {
+		this.threads = threads;
+	}
+
+	public CompressionOptions getJre() {
+		return jre;
+	}
+
+	public void setJre(CompressionOptions jre) {
+		this.jre = jre;
+	}
+
+	public CompressionOptions getTarball() {
+		return tarball;
+	}
+
+	public void setTarball(CompressionOptions tarball) {
+		this.tarball = tarball;
+	}
+
+	public CompressionOptions getZipball() {
+		return zipball;
+	}
+
+	public void setZipball(CompressionOptions zipball) {
+		this.zipball = zipball;
+	}
+
+	public CompressionOptions getDeb() {
+		return deb;
+	}
+
+	public void setDeb(CompressionOptions deb) {
+		this.deb = deb;
+	}
+
+	public CompressionOptions getRpm() {
+		return rpm;
+	}
+
+	public void setRpm(CompressionOptions rpm) {
+		this.rpm = rpm;
+	}
+
+	public CompressionOptions getAppImage() {
+		return appImage;
+	}
+
+	public void setAppImage(CompressionOptions appImage) {
+		this.appImage = appImage;
+	}
+
+	public CompressionOptions getDmg() {
+		return dmg;
+	}
+
+	public void setDmg(CompressionOptions dmg) {
+		this.dmg = dmg;
+	}
+
+	public CompressionOptions getSetup() {
+		return setup;
+	}
+
+	public void setSetup(CompressionOptions setup) {
+		this.setup = setup;
+	}
+
+	public CompressionOptions getMsi() {
+		return msi;
+	}
+
+	public void setMsi(CompressionOptions msi) {
+		this.msi = msi;
+	}
+
+	/**
+	 * Resolves the compression options of a format, using the format overrides
+	 * first and the profile defaults for the rest
+	 *
+	 * @param format Artifact format
+	 * @param defaultThreads Number of threads if not specified
+	 * @return Compression options, with all values set
+	 */
+	public CompressionOptions resolve(Format format, int defaultThreads) {
+		CompressionOptions defaults = getDefaults(format, ObjectUtils.defaultIfNull(profile, CompressionProfile.balanced));
+		CompressionOptions options = ObjectUtils.defaultIfNull(getOverrides(format), new CompressionOptions());
+		return new CompressionOptions(
+				ObjectUtils.defaultIfNull(options.getAlgorithm(), defaults.getAlgorithm()),
+				ObjectUtils.defaultIfNull(options.getLevel(), defaults.getLevel()),
+				ObjectUtils.defaultIfNull(options.getThreads(), ObjectUtils.defaultIfNull(threads, defaultThreads))
+			);
+	}
+
+	private CompressionOptions getOverrides(Format format) {
+		switch (format) {
+		case jre: 		return jre;
+		case tarball: 	return tarball;
+		case zipball: 	return zipball;
+		case deb: 		return deb;
+		case rpm: 		return rpm;
+		case appImage: 	return appImage;
+		case dmg: 		return dmg;
+		case setup: 	return setup;
+		case msi: 		return msi;
+		default: 		return null;
+		}
+	}
+
+	/**
+	 * Profile defaults of each format (balanced keeps the compression every
+	 * format was already generated with, and level -1 means format's default)
+	 */
+	private static CompressionOptions getDefaults(Format format, CompressionProfile profile) {
+		boolean fastest = profile == CompressionProfile.fastest;
+		boolean smallest = profile == CompressionProfile.smallest;
+		switch (format) {
+		case jre: 		return new CompressionOptions("zip", fastest ? 0 : smallest ? 9 : -1, null);
+		case tarball: 	return new CompressionOptions("gzip", fastest ? 1 : smallest ? 9 : -1, null);
+		case zipball: 	return new CompressionOptions("deflate", fastest ? 1 : smallest ? 9 : -1, null);
+		case deb: 		return new CompressionOptions(fastest ? "none" : smallest ? "xz" : "gzip", -1, null);
+		case rpm: 		return new CompressionOptions(smallest ? "xz" : "gzip", fastest ? 1 : smallest ? 9 : -1, null);
+		case appImage: 	return new CompressionOptions(smallest ? "xz" : "gzip", fastest ? 1 : -1, null);
+		case dmg: 		return new CompressionOptions(smallest ? "bzip2" : "zlib", fastest ? 1 : 9, null);
+		case setup: 	return new CompressionOptions(fastest ? "zip/1" : smallest ? "lzma2/ultra64" : "lzma", -1, null);
+		case msi: 		return new CompressionOptions(smallest ? "lzx" : "mszip", smallest ? 9 : -1, null);
+		default: 		throw new IllegalArgumentException("Unknown compression format: " + format);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CompressionConfig [profile=" + profile + ", threads=" + threads + ", jre=" + jre + ", tarball=" + tarball
+				+ ", zipball=" + zipball + ", deb=" + deb + ", rpm=" + rpm + ", appImage=" + appImage + ", dmg=" + dmg
+				+ ", setup=" + setup + ", msi=" + msi + "]";
+	}
+
+}
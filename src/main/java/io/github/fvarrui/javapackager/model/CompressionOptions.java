@@ -0,0 +1,59 @@
+package io.github.fvarrui.javapackager.model;
+
+import java.io.Serializable;
+
+/**
+ * Compression options of an artifact format
+ */
+public class CompressionOptions implements Serializable {
+	private static final long serialVersionUID = 2968127386218815562L;
+
+	private String algorithm;
+	private Integer level;
+	private Integer threads;
+
+	public CompressionOptions() {
+		super();
+	}
+
+	public CompressionOptions(String algorithm, Integer level, Integer threads) {
+		super();
+		this.algorithm = algorithm;
+		this.level = level;
+		this.threads = threads;
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	public void setAlgorithm(String algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	/**
+	 * Get compression level (from 0 to 9, or -1 for format's default level)
+	 * @return Compression level
+	 */
+	public Integer getLevel() {
+		return level;
+	}
+
+	public void setLevel(Integer level) {
+		this.level = level;
+	}
+
+	public Integer getThreads() {
+		return threads;
+	}
+
+	public void setThreads(Integer threads) {
+		this.threads = threads;
+	}
+
+	@Override
+	public String toString() {
+		return "CompressionOptions [algorithm=" + algorithm + ", level=" + level + ", threads=" + threads + "]";
+	}
+
+}
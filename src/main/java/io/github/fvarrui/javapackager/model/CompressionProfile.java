@@ -0,0 +1,13 @@
+package io.github.fvarrui.javapackager.model;
+
+/**
+ * Compression presets for all generated artifacts
+ */
+public enum CompressionProfile {
+	/** fastest compression (or none at all), for development builds */
+	fastest,
+	/** each format's usual compression */
+	balanced,
+	/** smallest artifacts, for release builds */
+	smallest
+}
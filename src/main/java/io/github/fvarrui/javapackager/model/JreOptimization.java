@@ -0,0 +1,121 @@
+package io.github.fvarrui.javapackager.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.ObjectUtils;
+
+/**
+ * Bundled JRE jlink options: a preset which sets the defaults, and optional
+ * overrides of every jlink plugin option
+ */
+public class JreOptimization implements Serializable {
+	private static final long serialVersionUID = -2916584703145382561L;
+
+	private JreOptimizationPreset preset = JreOptimizationPreset.balanced;
+	private Integer compress;
+	private Boolean stripNativeCommands;
+	private List<String> includeLocales = new ArrayList<>();
+	private Boolean dedupLegalNotices;
+	private Boolean generateCdsArchive;
+	private String vm;
+	private List<String> orderResources = new ArrayList<>();
+
+	public JreOptimizationPreset getPreset() {
+		return preset;
+	}
+
+	public void setPreset(JreOptimizationPreset preset) {
+		this.preset = preset;
+	}
+
+	public Integer getCompress() {
+		return compress;
+	}
+
+	public void setCompress(Integer compress) {
+		this.compress = compress;
+	}
+
+	public Boolean getStripNativeCommands() {
+		return stripNativeCommands;
+	}
+
+	public void setStripNativeCommands(Boolean stripNativeCommands) {
+		this.stripNativeCommands = stripNativeCommands;
+	}
+
+	public List<String> getIncludeLocales() {
+		return includeLocales;
+	}
+
+	public void setIncludeLocales(List<String> includeLocales) {
+		this.includeLocales = includeLocales;
+	}
+
+	public Boolean getDedupLegalNotices() {
+		return dedupLegalNotices;
+	}
+
+	public void setDedupLegalNotices(Boolean dedupLegalNotices) {
+		this.dedupLegalNotices = dedupLegalNotices;
+	}
+
+	public Boolean getGenerateCdsArchive() {
+		return generateCdsArchive;
+	}
+
+	public void setGenerateCdsArchive(Boolean generateCdsArchive) {
+		this.generateCdsArchive = generateCdsArchive;
+	}
+
+	public String getVm() {
+		return vm;
+	}
+
+	public void setVm(String vm) {
+		this.vm = vm;
+	}
+
+	public List<String> getOrderResources() {
+		return orderResources;
+	}
+
+	public void setOrderResources(List<String> orderResources) {
+		this.orderResources = orderResources;
+	}
+
+	/**
+	 * Resolves the jlink options, using the overrides first and the preset
+	 * defaults for the rest
+	 *
+	 * @return JRE optimization with all values set, but compression level,
+	 *         which is null if it has to be taken from the compression profile
+	 */
+	public JreOptimization resolve() {
+		JreOptimizationPreset preset = ObjectUtils.defaultIfNull(this.preset, JreOptimizationPreset.balanced);
+		boolean startup = preset == JreOptimizationPreset.startup;
+		boolean size = preset == JreOptimizationPreset.size;
+		JreOptimization resolved = new JreOptimization();
+		resolved.setPreset(preset);
+		resolved.setCompress(compress != null ? compress : startup ? Integer.valueOf(0) : size ? Integer.valueOf(9) : null);
+		resolved.setStripNativeCommands(ObjectUtils.defaultIfNull(stripNativeCommands, false));
+		resolved.setIncludeLocales(ObjectUtils.defaultIfNull(includeLocales, new ArrayList<>()));
+		resolved.setDedupLegalNotices(ObjectUtils.defaultIfNull(dedupLegalNotices, false));
+		resolved.setGenerateCdsArchive(ObjectUtils.defaultIfNull(generateCdsArchive, startup));
+		resolved.setVm(vm);
+		resolved.setOrderResources(orderResources != null && !orderResources.isEmpty() ? orderResources
+				: startup ? Arrays.asList("**/module-info.class", "/java.base/java/lang/**") : new ArrayList<>());
+		return resolved;
+	}
+
+	@Override
+	public String toString() {
+		return "JreOptimization [preset=" + preset + ", compress=" + compress + ", stripNativeCommands=" + stripNativeCommands
+				+ ", includeLocales=" + includeLocales + ", dedupLegalNotices=" + dedupLegalNotices + ", generateCdsArchive="
+				+ generateCdsArchive + ", vm=" + vm + ", orderResources=" + orderResources + "]";
+	}
+
+}
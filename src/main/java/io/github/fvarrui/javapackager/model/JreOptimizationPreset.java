@@ -0,0 +1,13 @@
+package io.github.fvarrui.javapackager.model;
+
+/**
+ * Bundled JRE presets, trading image size against startup speed
+ */
+public enum JreOptimizationPreset {
+	/** uncompressed image with a CDS archive and resources ordered for startup, for fastest startup */
+	startup,
+	/** image compressed as set by the compression profile (same JRE as previous versions) */
+	balanced,
+	/** image compressed with zip-9, for smallest JRE */
+	size
+}
@@ -23,6 +23,7 @@ public class LinuxConfig implements Serializable {
 	private File pngFile;
 	private boolean wrapJar = true;
 	private String installationPath;
+	private String appImageUpdateInformation;
 	
 	public void setCategories(List<String> categories) {
 		this.categories = categories;
@@ -80,11 +81,19 @@ public class LinuxConfig implements Serializable {
 		this.installationPath = installationPath;
 	}
 
+	public String getAppImageUpdateInformation() {
+		return appImageUpdateInformation;
+	}
+
+	public void setAppImageUpdateInformation(String appImageUpdateInformation) {
+		this.appImageUpdateInformation = appImageUpdateInformation;
+	}
+
 	@Override
 	public String toString() {
 		return "LinuxConfig [categories=" + categories + ", generateDeb=" + generateDeb + ", generateRpm=" + generateRpm
 				+ ", generateAppImage=" + generateAppImage + ", pngFile=" + pngFile + ", wrapJar=" + wrapJar
-				+ ", installationPath=" + installationPath + "]";
+				+ ", installationPath=" + installationPath + ", appImageUpdateInformation=" + appImageUpdateInformation + "]";
 	}
 
 	/**
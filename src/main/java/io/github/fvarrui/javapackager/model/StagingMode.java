@@ -0,0 +1,13 @@
+package io.github.fvarrui.javapackager.model;
+
+/**
+ * How files are staged into the app folder
+ */
+public enum StagingMode {
+	/** files are physically copied */
+	copy,
+	/** files are hardlinked when source and destination are on the same volume, copied otherwise */
+	hardlink,
+	/** files are cloned (copy-on-write) when the filesystem supports it, copied otherwise */
+	reflink
+}
@@ -0,0 +1,53 @@
+package io.github.fvarrui.javapackager.model;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * Packaging target (platform, architecture and JDK to bundle) of a matrix build
+ */
+public class Target implements Serializable {
+	private static final long serialVersionUID = -3581734627614928152L;
+
+	private Platform platform;
+	private Arch arch;
+	private File jdkPath;
+
+	public Target() {}
+
+	public Target(Platform platform, Arch arch, File jdkPath) {
+		this.platform = platform;
+		this.arch = arch;
+		this.jdkPath = jdkPath;
+	}
+
+	public Platform getPlatform() {
+		return platform;
+	}
+
+	public void setPlatform(Platform platform) {
+		this.platform = platform;
+	}
+
+	public Arch getArch() {
+		return arch;
+	}
+
+	public void setArch(Arch arch) {
+		this.arch = arch;
+	}
+
+	public File getJdkPath() {
+		return jdkPath;
+	}
+
+	public void setJdkPath(File jdkPath) {
+		this.jdkPath = jdkPath;
+	}
+
+	@Override
+	public String toString() {
+		return "Target [platform=" + platform + ", arch=" + arch + ", jdkPath=" + jdkPath + "]";
+	}
+
+}
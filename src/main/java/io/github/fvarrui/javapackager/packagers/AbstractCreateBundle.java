@@ -0,0 +1,154 @@
+package io.github.fvarrui.javapackager.packagers;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import io.github.fvarrui.javapackager.model.Platform;
+import io.github.fvarrui.javapackager.utils.FileTreeIndex;
+import io.github.fvarrui.javapackager.utils.FileTreeIndex.Entry;
+import io.github.fvarrui.javapackager.utils.FileTreeIndex.Type;
+
+/**
+ * Bundles the app folder in an archive (tarball or zipball) from the app index,
+ * with no building tool involved
+ */
+public abstract class AbstractCreateBundle extends ArtifactGenerator<Packager> {
+
+	/**
+	 * App folder entry to be bundled
+	 */
+	protected static class BundleEntry {
+
+		private final String name;
+		private final Type type;
+		private final Path path;
+		private final long size;
+		private final long lastModified;
+		private final String linkTarget;
+		private final int mode;
+
+		private BundleEntry(String name, Type type, Path path, long size, long lastModified, String linkTarget, int mode) {
+			this.name = name;
+			this.type = type;
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.linkTarget = linkTarget;
+			this.mode = mode;
+		}
+
+		/**
+		 * Get entry name inside the bundle, using '/' as separator
+		 * @return Entry name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public boolean isDirectory() {
+			return type == Type.DIRECTORY;
+		}
+
+		public boolean isLink() {
+			return type == Type.LINK;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public String getLinkTarget() {
+			return linkTarget;
+		}
+
+		/**
+		 * Get entry permissions (0755 for folders and executables, 0644 for the rest)
+		 * @return Unix permissions
+		 */
+		public int getMode() {
+			return mode;
+		}
+
+	}
+
+	private final String extension;
+
+	public AbstractCreateBundle(String artifactName, String extension) {
+		super(artifactName);
+		this.extension = extension;
+	}
+
+	/**
+	 * Get bundle file extension
+	 * @param packager Packager
+	 * @return Bundle file extension (including the leading dot)
+	 */
+	protected String getExtension(Packager packager) {
+		return extension;
+	}
+
+	/**
+	 * Get bundle file
+	 * @param packager Packager
+	 * @param customName Bundle name specified by the user (with or without extension), or null
+	 * @return Bundle file
+	 */
+	protected File getBundleFile(Packager packager, String customName) {
+		String extension = getExtension(packager);
+		String name = customName != null ? StringUtils.removeEnd(customName, extension) : Context.getContext().getDefaultBundleName(packager);
+		return new File(packager.getOutputDirectory(), name + extension);
+	}
+
+	/**
+	 * Get the entries to be bundled: the app folder (or the app bundle on MacOS) as
+	 * root, sorted by name. Launchers, JRE binaries, jspawnhelper and scripts are
+	 * marked as executables.
+	 * @param packager Packager
+	 * @return Bundle entries
+	 * @throws Exception If the app folder cannot be indexed
+	 */
+	protected List<BundleEntry> getBundleEntries(Packager packager) throws Exception {
+
+		File appFolder = packager.getAppFolder();
+		File executable = packager.getExecutable();
+		File jreFolder = packager.getJreDestinationFolder();
+		File scriptsFolder = new File(packager.getResourcesDestinationFolder(), "scripts");
+
+		FileTreeIndex index = packager.getAppIndex() != null ? packager.getAppIndex() : FileTreeIndex.build(appFolder);
+
+		// app bundle is the root on MacOS, and the app folder on the rest of platforms
+		File root = packager instanceof MacPackager ? ((MacPackager) packager).getAppFile() : appFolder;
+		List<Entry> entries = root.equals(appFolder) ? index.getEntries() : index.getEntries(root);
+		String prefix = root.equals(appFolder) ? appFolder.getName() + "/" : "";
+
+		List<BundleEntry> bundleEntries = new ArrayList<>();
+		bundleEntries.add(new BundleEntry(root.getName(), Type.DIRECTORY, root.toPath(), 0, root.lastModified(), null, 0755));
+		for (Entry entry : entries) {
+			File file = entry.getFile();
+			File parent = file.getParentFile();
+			boolean isExecutable = !Platform.windows.equals(packager.getPlatform()) && (
+					file.equals(executable)
+					|| file.equals(new File(executable.getParentFile(), "universalJavaApplicationStub"))
+					|| parent.equals(new File(jreFolder, "bin"))
+					|| file.equals(new File(jreFolder, "lib/jspawnhelper"))
+					|| parent.equals(scriptsFolder)
+				);
+			int mode = entry.isFile() && !isExecutable ? 0644 : 0755;
+			bundleEntries.add(new BundleEntry(prefix + entry.getRelativePath(), entry.getType(), entry.getPath(), entry.getSize(), entry.getLastModified(), entry.getLinkTarget(), mode));
+		}
+		return bundleEntries;
+	}
+
+}
@@ -1,8 +1,13 @@
 package io.github.fvarrui.javapackager.packagers;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
+import io.github.fvarrui.javapackager.utils.HashUtils;
 import io.github.fvarrui.javapackager.utils.Logger;
+import io.github.fvarrui.javapackager.utils.Metric;
+import io.github.fvarrui.javapackager.utils.Metrics;
 
 
 /**
@@ -11,6 +16,7 @@ import io.github.fvarrui.javapackager.utils.Logger;
 public abstract class ArtifactGenerator<T extends Packager> {
 
 	private String artifactName;
+	private final List<Class<? extends ArtifactGenerator<?>>> dependencies = new ArrayList<>();
 	
 	public ArtifactGenerator() {
 		super();
@@ -33,6 +39,38 @@ public abstract class ArtifactGenerator<T extends Packager> {
 		this.artifactName = artifactName;
 	}
 
+	/**
+	 * Artifact generators which have to be applied before this one
+	 * @return Artifact generators classes this one depends on
+	 */
+	public List<Class<? extends ArtifactGenerator<?>>> getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * Declares artifact generators which have to be applied before this one
+	 * @param generators Artifact generators classes this one depends on
+	 */
+	@SafeVarargs
+	protected final void dependsOn(Class<? extends ArtifactGenerator<?>>... generators) {
+		for (Class<? extends ArtifactGenerator<?>> generator : generators) {
+			dependencies.add(generator);
+		}
+	}
+
+	/**
+	 * Fingerprint of the inputs this artifact is generated from, used to skip
+	 * its generation if they didn't change since the previous build
+	 * @param packager Packager
+	 * @return Inputs fingerprint, or null if artifact has to be always generated
+	 */
+	protected String getFingerprint(T packager) {
+		if (packager.getAppFingerprint() == null) {
+			return null;
+		}
+		return HashUtils.sha256(getClass().getName(), packager.getAppFingerprint());
+	}
+
 	protected abstract File doApply(T packager) throws Exception;
     
     @SuppressWarnings("unchecked")
@@ -41,7 +79,26 @@ public abstract class ArtifactGenerator<T extends Packager> {
 			Logger.warn(getArtifactName() + " artifact generation skipped!");    		
     		return null;
     	}
-    	return doApply((T)packager);
+    	IncrementalState state = packager.getIncrementalState();
+    	String fingerprint = state != null ? getFingerprint((T)packager) : null;
+    	if (fingerprint != null) {
+    		File output = state.getUpToDateOutput(getClass().getName(), fingerprint);
+    		if (output != null) {
+    			Logger.info(getArtifactName() + " is up to date: " + output);
+    			return output;
+    		}
+    	}
+    	File output;
+    	try (Metric metric = Metrics.generator(getArtifactName())) {
+    		output = doApply((T)packager);
+    		if (output != null && output.isFile()) {
+    			metric.files(1).bytesWritten(output.length());
+    		}
+    	}
+    	if (fingerprint != null && output != null) {
+    		state.update(getClass().getName(), fingerprint, output);
+    	}
+    	return output;
     }
         
 }
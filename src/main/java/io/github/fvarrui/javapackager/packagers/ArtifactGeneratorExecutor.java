@@ -0,0 +1,139 @@
+package io.github.fvarrui.javapackager.packagers;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.github.fvarrui.javapackager.utils.Logger;
+
+/**
+ * Applies a set of artifact generators concurrently on a bounded thread pool,
+ * honouring the dependencies declared by each generator. A failed generator
+ * doesn't stop the others, only the ones which depend on it.
+ */
+public class ArtifactGeneratorExecutor {
+
+	private final int threads;
+
+	public ArtifactGeneratorExecutor(int threads) {
+		super();
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Applies all artifact generators to the packager
+	 *
+	 * @param packager   Packager
+	 * @param generators Artifact generators
+	 * @return Generated artifacts, in the same order as the generators
+	 * @throws Exception If generators dependencies are circular
+	 */
+	public List<File> execute(Packager packager, List<ArtifactGenerator<?>> generators) throws Exception {
+
+		List<ArtifactGenerator<?>> sortedGenerators = sort(generators);
+
+		Map<Class<?>, CompletableFuture<File>> futures = new LinkedHashMap<>();
+		int indentation = Logger.getIndentation();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+
+			for (ArtifactGenerator<?> generator : sortedGenerators) {
+
+				CompletableFuture<?>[] dependencies = generator.getDependencies()
+						.stream()
+						.map(futures::get)
+						.filter(Objects::nonNull)
+						.toArray(CompletableFuture[]::new);
+
+				CompletableFuture<File> future = CompletableFuture
+						.allOf(dependencies)
+						.handleAsync((result, error) -> {
+							Logger.setIndentation(indentation);
+							if (error != null) {
+								Logger.error(generator.getArtifactName() + " skipped because one of its dependencies failed!");
+								throw new CompletionException(error);
+							}
+							return apply(packager, generator);
+						}, executor);
+
+				futures.put(generator.getClass(), future);
+			}
+
+			List<File> artifacts = new ArrayList<>();
+			for (ArtifactGenerator<?> generator : generators) {
+				try {
+					File artifact = futures.get(generator.getClass()).join();
+					if (artifact != null) artifacts.add(artifact);
+				} catch (CompletionException e) {
+					// already logged by the failed generator
+				}
+			}
+			return artifacts;
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
+	private File apply(Packager packager, ArtifactGenerator<?> generator) {
+		try {
+			Logger.infoIndent("Generating " + generator.getArtifactName() + "...");
+			File artifact = generator.apply(packager);
+			if (artifact != null) {
+				Logger.infoUnindent(generator.getArtifactName() + " generated in " + artifact + "!");
+			} else {
+				Logger.warnUnindent(generator.getArtifactName() + " NOT generated!!!");
+			}
+			return artifact;
+		} catch (Exception e) {
+			Logger.errorUnindent(generator.getArtifactName() + " generation failed due to: " + e.getMessage(), e);
+			throw new CompletionException(e);
+		}
+	}
+
+	/**
+	 * Sorts generators so every generator comes after the ones it depends on
+	 *
+	 * @param generators Artifact generators
+	 * @return Sorted artifact generators
+	 * @throws Exception If generators dependencies are circular
+	 */
+	private List<ArtifactGenerator<?>> sort(List<ArtifactGenerator<?>> generators) throws Exception {
+		Map<Class<?>, ArtifactGenerator<?>> generatorsMap = new LinkedHashMap<>();
+		generators.forEach(g -> generatorsMap.put(g.getClass(), g));
+		List<ArtifactGenerator<?>> sorted = new ArrayList<>();
+		Set<Class<?>> visited = new HashSet<>();
+		for (ArtifactGenerator<?> generator : generators) {
+			visit(generator, generatorsMap, new HashSet<>(), visited, sorted);
+		}
+		return sorted;
+	}
+
+	private void visit(ArtifactGenerator<?> generator, Map<Class<?>, ArtifactGenerator<?>> generatorsMap, Set<Class<?>> visiting, Set<Class<?>> visited, List<ArtifactGenerator<?>> sorted) throws Exception {
+		if (visited.contains(generator.getClass())) return;
+		if (!visiting.add(generator.getClass())) {
+			throw new Exception("Circular dependency found between artifact generators: " + visiting);
+		}
+		for (Class<?> dependency : generator.getDependencies()) {
+			ArtifactGenerator<?> dependencyGenerator = generatorsMap.get(dependency);
+			if (dependencyGenerator != null) {
+				visit(dependencyGenerator, generatorsMap, visiting, visited, sorted);
+			}
+		}
+		visiting.remove(generator.getClass());
+		visited.add(generator.getClass());
+		sorted.add(generator);
+	}
+
+}
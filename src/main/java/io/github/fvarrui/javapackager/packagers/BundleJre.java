@@ -1,22 +1,42 @@
 package io.github.fvarrui.javapackager.packagers;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
+import org.codehaus.plexus.util.cli.CommandLineException;
 
+import io.github.fvarrui.javapackager.model.CompressionConfig.Format;
+import io.github.fvarrui.javapackager.model.CompressionOptions;
+import io.github.fvarrui.javapackager.model.JreOptimization;
 import io.github.fvarrui.javapackager.model.Platform;
+import io.github.fvarrui.javapackager.model.WindowsExeCreationTool;
+import io.github.fvarrui.javapackager.utils.CacheUtils;
 import io.github.fvarrui.javapackager.utils.FileUtils;
+import io.github.fvarrui.javapackager.utils.HashUtils;
+import io.github.fvarrui.javapackager.utils.JavaToolUtils;
 import io.github.fvarrui.javapackager.utils.JDKUtils;
 import io.github.fvarrui.javapackager.utils.Logger;
 import io.github.fvarrui.javapackager.utils.VersionUtils;
 
-import static io.github.fvarrui.javapackager.utils.CommandUtils.execute;
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
 
 
 /**
@@ -25,6 +45,9 @@ import static io.github.fvarrui.javapackager.utils.CommandUtils.execute;
 public class BundleJre extends ArtifactGenerator<Packager> {
 	
 	private static final String ALL_MODULES = "ALL-MODULE-PATH";
+	private static final String LOCALEDATA_MODULE = "jdk.localedata";
+	// cached instead of the modules of jars which cannot be analysed alone
+	private static final String MODULE_PATH_REQUIRED = "module-path-required";
 	
 	public BundleJre() {
 		super("JRE");
@@ -92,17 +115,19 @@ public class BundleJre extends ArtifactGenerator<Packager> {
 			if (destinationFolder.exists()) FileUtils.removeFolder(destinationFolder);
 
 			// copies JRE folder to bundle
-			FileUtils.copyFolderContentToFolder(specificJreFolder, destinationFolder);
+			FileUtils.copyFolderContentToFolder(specificJreFolder, destinationFolder, packager.getStagingMode());
 			
 			// sets execute permissions on executables in jre
 			File binFolder = new File(destinationFolder, "bin");
-			Arrays.asList(binFolder.listFiles()).forEach(f -> f.setExecutable(true, false));
+			for (File f : binFolder.listFiles()) {
+				FileUtils.setExecutable(f);
+			}
 			
 			// sets execute permissions on jspawnhelper in jre
 			File libFolder = new File(destinationFolder, "lib");
 			File jshFile = new File(libFolder, "jspawnhelper");
 			if (jshFile.exists()) {
-				jshFile.setExecutable(true, false);
+				FileUtils.setExecutable(jshFile);
 			}
 
 		} else if (VersionUtils.getJavaMajorVersion() <= 8) {
@@ -124,7 +149,14 @@ public class BundleJre extends ArtifactGenerator<Packager> {
 				throw new Exception("Invalid JDK for platform '" + platform + "': " + jdkPath);
 			}
 			
-			String modules = getRequiredModules(currentJdk, libsFolder, customizedJre, jarFile, requiredModules, additionalModules, additionalModulePaths);
+			JreOptimization optimization = packager.getJreOptimization().resolve();
+
+			String modules = getRequiredModules(currentJdk, libsFolder, customizedJre, jarFile, requiredModules, additionalModules, additionalModulePaths, packager.getThreads());
+
+			// locales are provided by jdk.localedata module
+			if (!optimization.getIncludeLocales().isEmpty() && !modules.equals(ALL_MODULES) && !Arrays.asList(modules.split(",")).contains(LOCALEDATA_MODULE)) {
+				modules += "," + LOCALEDATA_MODULE;
+			}
 
 			Logger.info("Creating JRE with next modules included: " + modules);
 
@@ -141,29 +173,47 @@ public class BundleJre extends ArtifactGenerator<Packager> {
 			Map<String,String> releaseMap = JDKUtils.getRelease(jdkPath);
 			String releaseInfo = "add:IMAGE_TYPE=\"JRE\":OS_ARCH=\"" + releaseMap.get("OS_ARCH") + "\":OS_NAME=\"" + releaseMap.get("OS_NAME") + "\"";
 
-			// full path to jlink command
-			File jlink = new File(currentJdk, "/bin/jlink");
-			
 			List<File> modulePaths = new ArrayList<File>();
 			modulePaths.add(modulesDir);
 			modulePaths.addAll(additionalModulePaths);
 			
-			// generates customized jre using modules
-			execute(
-					jlink, 
-					"--module-path=" + StringUtils.join(modulePaths, File.pathSeparator), 
-					"--add-modules", modules, 
-					"--output", destinationFolder, 
-					"--no-header-files", 
-					"--no-man-pages", 
-					"--strip-debug",
-					"--release-info", releaseInfo, 
-					(VersionUtils.getJavaMajorVersion() < 21 ? "--compress=2" : null)
-				);
-	
+			// jlink options
+			List<Object> jlinkOptions = new ArrayList<>();
+			jlinkOptions.add("--module-path=" + StringUtils.join(modulePaths, File.pathSeparator));
+			jlinkOptions.add("--add-modules");
+			jlinkOptions.add(modules);
+			jlinkOptions.add("--no-header-files");
+			jlinkOptions.add("--no-man-pages");
+			jlinkOptions.add("--strip-debug");
+			jlinkOptions.add("--release-info");
+			jlinkOptions.add(releaseInfo);
+			jlinkOptions.addAll(getOptimizationOptions(optimization, packager.getCompressionOptions(Format.jre), packager));
+
+			// customized jres are cached by jdk, modules and options, so jlink only runs when any of them changes
+			File cachedJre = CacheUtils.getEntry("runtimes", getRuntimeKey(currentJdk, jdkPath, additionalModulePaths, jlinkOptions));
+			if (cachedJre.isDirectory()) {
+				Logger.info("Reusing cached JRE " + cachedJre);
+			} else {
+				
+				// generates customized jre using modules
+				File tempJre = CacheUtils.getTempEntry(cachedJre);
+				List<Object> arguments = new ArrayList<>(jlinkOptions);
+				arguments.add("--output");
+				arguments.add(tempJre);
+				JavaToolUtils.execute(currentJdk, "jlink", arguments.toArray());
+				
+				CacheUtils.publish(tempJre, cachedJre);
+				Logger.info("JRE cached in " + cachedJre);
+			}
+			
+			// copies or links cached jre to bundle
+			FileUtils.copyFolderContentToFolder(cachedJre, destinationFolder, packager.getStagingMode());
+
 			// sets execution permissions on executables in jre
 			File binFolder = new File(destinationFolder, "bin");
-			Arrays.asList(binFolder.listFiles()).forEach(f -> f.setExecutable(true, false));
+			for (File f : binFolder.listFiles()) {
+				FileUtils.setExecutable(f);
+			}
 
 		}
 		
@@ -192,6 +242,67 @@ public class BundleJre extends ArtifactGenerator<Packager> {
 		return destinationFolder;
 	}
 	
+	/**
+	 * Gets jlink plugin options of the JRE optimization
+	 * 
+	 * @param optimization Resolved JRE optimization
+	 * @param compression JRE compression options, used if optimization doesn't set the compression level
+	 * @param packager Packager
+	 * @return jlink options
+	 */
+	private List<Object> getOptimizationOptions(JreOptimization optimization, CompressionOptions compression, Packager packager) {
+		Platform platform = packager.getPlatform();
+		int javaVersion = VersionUtils.getJavaMajorVersion();
+		List<Object> options = new ArrayList<>();
+
+		// compression (jlink 21+ supports zip-0 to zip-9, older versions only 0, 1 or 2)
+		int level = optimization.getCompress() != null ? optimization.getCompress() : compression.getLevel();
+		if (level > 0) {
+			options.add(javaVersion < 21 ? "--compress=2" : "--compress=zip-" + Math.min(level, 9));
+		} else if (level < 0 && javaVersion < 21) {
+			options.add("--compress=2");
+		}
+
+		// launchers run bin/java (or bin/javaw.exe with Launch4j), but WinRun4J and Why load jvm.dll
+		if (optimization.getStripNativeCommands()) {
+			WindowsExeCreationTool tool = packager.getWinConfig() != null ? packager.getWinConfig().getExeCreationTool() : null;
+			if (platform == Platform.windows && (tool == WindowsExeCreationTool.winrun4j || tool == WindowsExeCreationTool.why)) {
+				options.add("--strip-native-commands");
+			} else {
+				Logger.warn("'stripNativeCommands' ignored: " + (platform == Platform.windows ? tool : platform) + " launchers need the java command");
+			}
+		}
+
+		if (!optimization.getIncludeLocales().isEmpty()) {
+			options.add("--include-locales=" + StringUtils.join(optimization.getIncludeLocales(), ","));
+		}
+
+		// jlink always deduplicates identical legal notices, so this only makes it fail if they differ
+		if (optimization.getDedupLegalNotices()) {
+			options.add("--dedup-legal-notices=error-if-not-same-content");
+		}
+
+		if (optimization.getGenerateCdsArchive()) {
+			if (!platform.isCurrentPlatform()) {
+				Logger.warn("'generateCdsArchive' ignored: the archive cannot be generated on " + Platform.getCurrentPlatform() + " for " + platform);
+			} else if (javaVersion >= 18) {
+				options.add("--generate-cds-archive");
+			} else {
+				Logger.warn("'generateCdsArchive' ignored: it requires jlink 18 or later");
+			}
+		}
+
+		if (StringUtils.isNotBlank(optimization.getVm())) {
+			options.add("--vm=" + optimization.getVm());
+		}
+
+		if (!optimization.getOrderResources().isEmpty()) {
+			options.add("--order-resources=" + StringUtils.join(optimization.getOrderResources(), ","));
+		}
+
+		return options;
+	}
+
 	/**
 	 * Uses jdeps command tool to determine which modules all used jar files depend on
 	 * 
@@ -201,15 +312,14 @@ public class BundleJre extends ArtifactGenerator<Packager> {
 	 * @param defaultModules Additional files and folders to include in the bundled app.
 	 * @param additionalModules Defines modules to customize the bundled JRE. Don't use jdeps to get module dependencies.
 	 * @param additionalModulePaths Defines additional module paths to customize the bundled JRE.
+	 * @param threads Max number of jdeps runs in parallel
 	 * @return string containing a comma separated list with all needed modules
 	 * @throws Exception Process failed
 	 */
-	protected String getRequiredModules(File packagingJdk, File libsFolder, boolean customizedJre, File jarFile, List<String> defaultModules, List<String> additionalModules, List<File> additionalModulePaths) throws Exception {
+	protected String getRequiredModules(File packagingJdk, File libsFolder, boolean customizedJre, File jarFile, List<String> defaultModules, List<String> additionalModules, List<File> additionalModulePaths, int threads) throws Exception {
 		
 		Logger.infoIndent("Getting required modules ... ");
 		
-		File jdeps = new File(packagingJdk, "/bin/jdeps");
-		
 		List<File> modulePaths = getModulePaths(jarFile, libsFolder, additionalModulePaths);
 		List<String> modulesList;
 		
@@ -227,29 +337,14 @@ public class BundleJre extends ArtifactGenerator<Packager> {
 		
 		} else if (VersionUtils.getJavaMajorVersion() >= 13) { 
 			
-			String modules = 
-				execute(
-					jdeps, 
-					"-q",
-					"--multi-release", VersionUtils.getJavaMajorVersion(),
-					"--ignore-missing-deps",
-					"--print-module-deps",
-					"--add-modules=ALL-MODULE-PATH",
-					"--module-path=" + StringUtils.join(modulePaths, File.pathSeparator)				
-				);
-			
-			modulesList = 
-				Arrays.asList(modules.split(","))
-					.stream()
-					.map(module -> module.trim())
-					.filter(module -> !module.isEmpty())
-					.collect(Collectors.toList());
+			modulesList = getJarsRequiredModules(packagingJdk, modulePaths, threads);
 			
 		} else if (VersionUtils.getJavaMajorVersion() >= 9) { 
 		
 			String modules = 
-				execute(
-					jdeps.getAbsolutePath(), 
+				JavaToolUtils.execute(
+					packagingJdk,
+					"jdeps",
 					"-q",
 					"--multi-release", VersionUtils.getJavaMajorVersion(),
 					"--ignore-missing-deps",					
@@ -286,6 +381,176 @@ public class BundleJre extends ArtifactGenerator<Packager> {
 		return StringUtils.join(modulesList, ",");
 	}
 	
+	/**
+	 * Computes the key for a customized JRE in the cache
+	 * 
+	 * @param currentJdk JDK providing jlink
+	 * @param jdkPath JDK providing jmods
+	 * @param additionalModulePaths Additional module paths
+	 * @param jlinkOptions jlink options
+	 * @return Hash of everything the customized JRE depends on
+	 * @throws IOException If some file cannot be read
+	 */
+	private String getRuntimeKey(File currentJdk, File jdkPath, List<File> additionalModulePaths, List<Object> jlinkOptions) throws IOException {
+		List<Object> values = new ArrayList<>();
+		values.add(readRelease(currentJdk));
+		values.add(readRelease(jdkPath));
+		for (File path : additionalModulePaths) {
+			values.add(fingerprint(path));
+		}
+		values.addAll(jlinkOptions);
+		return HashUtils.sha256(values.toArray());
+	}
+	
+	private String readRelease(File jdk) throws IOException {
+		File releaseFile = new File(jdk, "release");
+		return releaseFile.exists() ? readFileToString(releaseFile, StandardCharsets.UTF_8) : jdk.getAbsolutePath();
+	}
+	
+	private String fingerprint(File path) throws IOException {
+		if (!path.exists()) return "";
+		try (Stream<Path> files = Files.walk(path.toPath())) {
+			return files
+					.filter(Files::isRegularFile)
+					.map(Path::toFile)
+					.map(f -> f.getAbsolutePath() + ":" + f.length() + ":" + f.lastModified())
+					.sorted()
+					.collect(Collectors.joining(File.pathSeparator));
+		}
+	}
+	
+	/**
+	 * Uses jdeps to determine which modules every jar in the module paths depends
+	 * on. Results are cached by jar content (and by module paths content, for
+	 * modular jars which are analysed with all modules), so only new or changed
+	 * jars are analysed (in parallel), and then merged.
+	 * 
+	 * @param packagingJdk JDK providing jdeps
+	 * @param modulePaths Module paths (jars or folders containing jars)
+	 * @param threads Max number of jdeps runs in parallel
+	 * @return Sorted list of required modules
+	 * @throws Exception Process failed
+	 */
+	private List<String> getJarsRequiredModules(File packagingJdk, List<File> modulePaths, int threads) throws Exception {
+		
+		String jdepsRelease = readRelease(packagingJdk);
+		int indentation = Logger.getIndentation();
+
+		List<File> jars = new ArrayList<>();
+		for (File path : modulePaths) {
+			if (path.isDirectory()) {
+				jars.addAll(Arrays.asList(path.listFiles((dir, name) -> name.endsWith(".jar"))));
+			} else if (path.getName().endsWith(".jar")) {
+				jars.add(path);
+			}
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+
+			// hashes all jars, as module paths content is part of the key of modular jars results
+			List<Future<String>> hashes = new ArrayList<>();
+			for (File jar : jars) {
+				hashes.add(executor.submit(() -> HashUtils.sha256(jar)));
+			}
+			List<String> jarHashes = new ArrayList<>();
+			for (Future<String> hash : hashes) {
+				jarHashes.add(get(hash));
+			}
+			String modulePathsHash = HashUtils.sha256(new TreeSet<>(jarHashes).toArray());
+			
+			List<Future<String>> futures = new ArrayList<>();
+			for (int i = 0; i < jars.size(); i++) {
+				File jar = jars.get(i);
+				String jarHash = jarHashes.get(i);
+				futures.add(executor.submit(() -> {
+					Logger.setIndentation(indentation);
+					File cachedModules = CacheUtils.getEntry("jdeps", HashUtils.sha256(jarHash, "standalone", jdepsRelease, VersionUtils.getJavaMajorVersion()));
+					String modules = cachedModules.isFile() ? readFileToString(cachedModules, StandardCharsets.UTF_8) : null;
+					if (modules == null) {
+						modules = getJarRequiredModules(packagingJdk, jar, null);
+						cache(cachedModules, modules != null ? modules : MODULE_PATH_REQUIRED);
+					}
+					if (modules != null && !modules.equals(MODULE_PATH_REQUIRED)) {
+						return modules;
+					}
+					// modular jars results depend on the modules they're resolved with
+					File cachedModularModules = CacheUtils.getEntry("jdeps", HashUtils.sha256(jarHash, modulePathsHash, jdepsRelease, VersionUtils.getJavaMajorVersion()));
+					if (cachedModularModules.isFile()) {
+						return readFileToString(cachedModularModules, StandardCharsets.UTF_8);
+					}
+					modules = getJarRequiredModules(packagingJdk, jar, modulePaths);
+					cache(cachedModularModules, modules);
+					return modules;
+				}));
+			}
+
+			// merges all modules sorted, so the same dependencies always produce the same list
+			Set<String> modules = new TreeSet<>();
+			for (Future<String> future : futures) {
+				Arrays.asList(get(future).split(","))
+					.stream()
+					.map(module -> module.trim())
+					.filter(module -> !module.isEmpty())
+					.forEach(modules::add);
+			}
+			return new ArrayList<>(modules);
+			
+		} finally {
+			executor.shutdownNow();
+		}
+		
+	}
+
+	private static <T> T get(Future<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw new Exception(e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	private static void cache(File entry, String modules) throws IOException {
+		File tempEntry = CacheUtils.getTempEntry(entry);
+		writeStringToFile(tempEntry, modules, StandardCharsets.UTF_8);
+		CacheUtils.publish(tempEntry, entry);
+	}
+	
+	/**
+	 * Analyses a jar alone (fastest) or, for modular jars, resolving the modules
+	 * it requires from the module paths
+	 * @return Required modules, or null if the jar couldn't be analysed alone
+	 */
+	private String getJarRequiredModules(File packagingJdk, File jar, List<File> modulePaths) throws Exception {
+		if (modulePaths == null) {
+			try {
+				return JavaToolUtils.execute(
+						packagingJdk,
+						"jdeps",
+						"-q",
+						"--multi-release", VersionUtils.getJavaMajorVersion(),
+						"--ignore-missing-deps",
+						"--print-module-deps",
+						jar
+					).trim();
+			} catch (CommandLineException e) {
+				// modular jars need their required modules to be resolved
+				Logger.warn("Analysing " + jar.getName() + " again with all modules: " + e.getMessage());
+				return null;
+			}
+		}
+		return JavaToolUtils.execute(
+				packagingJdk,
+				"jdeps",
+				"-q",
+				"--multi-release", VersionUtils.getJavaMajorVersion(),
+				"--ignore-missing-deps",
+				"--print-module-deps",
+				"--module-path=" + StringUtils.join(modulePaths, File.pathSeparator),
+				jar
+			).trim();
+	}
+	
 	private List<File> getModulePaths(File jarFile, File libsFolder, List<File> additionalModulePaths) {
 		List<File> modulePaths = new ArrayList<>();
 		modulePaths.add(jarFile);
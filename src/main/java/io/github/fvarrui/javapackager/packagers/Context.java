@@ -37,14 +37,44 @@ public abstract class Context<T> {
 	public abstract File getBuildDir();
 	public abstract T getLogger();
 
-	// platform independent functions
+	// platform independent functions (build tools are not thread safe, so they
+	// have to be synchronized, as several packagers may run in parallel)
 	
 	public abstract File createRunnableJar(Packager packager) throws Exception;
 	public abstract File copyDependencies(Packager packager) throws Exception;
-	public abstract File createTarball(Packager packager) throws Exception;
-	public abstract File createZipball(Packager packager) throws Exception;
 	public abstract File resolveLicense(Packager packager) throws Exception;
 	public abstract File createWindowsExe(WindowsPackager packager) throws Exception;
+
+	/**
+	 * Checks if several packagers can use the building tool at the same time
+	 * @return true if targets can be packaged in parallel
+	 */
+	public boolean isConcurrent() {
+		return true;
+	}
+
+	// bundling functions (building tool independent)
+
+	public File createTarball(Packager packager) throws Exception {
+		return new CreateTarball().apply(packager);
+	}
+
+	public File createZipball(Packager packager) throws Exception {
+		return new CreateZipball().apply(packager);
+	}
+
+	public File generateDelta(Packager packager) throws Exception {
+		return new GenerateDelta().apply(packager);
+	}
+
+	/**
+	 * Get bundles (tarball and zipball) default name, without extension
+	 * @param packager Packager
+	 * @return Default bundle name
+	 */
+	public String getDefaultBundleName(Packager packager) {
+		return packager.getName() + "-" + packager.getVersion() + "-" + packager.getPlatform();
+	}
 	
 	// installer producers
 	
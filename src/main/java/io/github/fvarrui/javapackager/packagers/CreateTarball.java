@@ -0,0 +1,98 @@
+package io.github.fvarrui.javapackager.packagers;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+
+import io.github.fvarrui.javapackager.model.CompressionConfig.Format;
+import io.github.fvarrui.javapackager.model.CompressionOptions;
+import io.github.fvarrui.javapackager.utils.Logger;
+import io.github.fvarrui.javapackager.utils.ParallelGzipOutputStream;
+import io.github.fvarrui.javapackager.utils.ZsyncWriter;
+
+/**
+ * Creates tarball (tar.gz file compressed in parallel, or tar.xz file), and
+ * its zsync control file if specified (gzip blocks are rsyncable then)
+ */
+public class CreateTarball extends AbstractCreateBundle {
+	
+	public CreateTarball() {
+		super("Tarball", ".tar.gz");
+	}
+
+	@Override
+	public boolean skip(Packager packager) {
+		return !packager.getCreateTarball();
+	}
+
+	@Override
+	protected String getExtension(Packager packager) {
+		return isXz(packager.getCompressionOptions(Format.tarball)) ? ".tar.xz" : super.getExtension(packager);
+	}
+
+	private static boolean isXz(CompressionOptions compression) {
+		return "xz".equalsIgnoreCase(compression.getAlgorithm());
+	}
+
+	@Override
+	protected File doApply(Packager packager) throws Exception {
+
+		File tarFile = getBundleFile(packager, packager.getTarballName());
+		CompressionOptions compression = packager.getCompressionOptions(Format.tarball);
+
+		try (
+			OutputStream out = new BufferedOutputStream(Files.newOutputStream(tarFile.toPath()));
+			TarArchiveOutputStream tar = new TarArchiveOutputStream(compress(out, compression, packager.getCreateZsync()))
+		) {
+			tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+			tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+			for (BundleEntry entry : getBundleEntries(packager)) {
+				TarArchiveEntry tarEntry;
+				if (entry.isDirectory()) {
+					tarEntry = new TarArchiveEntry(entry.getName() + "/");
+					tarEntry.setMode(UnixStat.DIR_FLAG | entry.getMode());
+				} else if (entry.isLink()) {
+					tarEntry = new TarArchiveEntry(entry.getName(), TarConstants.LF_SYMLINK);
+					tarEntry.setLinkName(entry.getLinkTarget());
+					tarEntry.setMode(UnixStat.LINK_FLAG | 0777);
+				} else {
+					tarEntry = new TarArchiveEntry(entry.getName());
+					tarEntry.setMode(UnixStat.FILE_FLAG | entry.getMode());
+					tarEntry.setSize(entry.getSize());
+				}
+				tarEntry.setModTime(entry.getLastModified());
+				tar.putArchiveEntry(tarEntry);
+				if (!entry.isDirectory() && !entry.isLink()) {
+					Files.copy(entry.getPath(), tar);
+				}
+				tar.closeArchiveEntry();
+			}
+		}
+
+		// zsync control file
+		if (packager.getCreateZsync()) {
+			new ZsyncWriter(packager.getThreads()).write(tarFile);
+		}
+
+		return tarFile;
+	}
+
+	private OutputStream compress(OutputStream out, CompressionOptions compression, boolean rsyncable) throws Exception {
+		int level = compression.getLevel();
+		if (isXz(compression)) {
+			return new XZCompressorOutputStream(out, level < 0 ? 6 : level);
+		}
+		if (!"gzip".equalsIgnoreCase(compression.getAlgorithm())) {
+			Logger.warn("Unsupported tarball compression algorithm '" + compression.getAlgorithm() + "', using gzip");
+		}
+		return new ParallelGzipOutputStream(out, compression.getThreads(), level, rsyncable);
+	}
+
+}
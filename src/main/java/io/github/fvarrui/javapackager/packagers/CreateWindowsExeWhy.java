@@ -1,6 +1,7 @@
 package io.github.fvarrui.javapackager.packagers;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 
 import io.github.fvarrui.javapackager.model.Platform;
 import io.github.fvarrui.javapackager.model.WindowsConfig;
@@ -11,6 +12,9 @@ import io.github.fvarrui.javapackager.utils.RcEdit;
 import io.github.fvarrui.javapackager.utils.VelocityUtils;
 import net.jsign.WindowsSigner;
 
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+
 /**
  * Creates Windows executable with WinRun4j
  */
@@ -74,11 +78,22 @@ public class CreateWindowsExeWhy extends AbstractCreateWindowsExe {
 		rcedit.setVersionString(getGenericExe(), "ProductName", winConfig.getProductName());
 
 		// copies JAR to app folder
-		FileUtils.copyFileToFolder(jarFile, appFolder);
+		FileUtils.copyFileToFolder(jarFile, appFolder, packager.getStagingMode());
 		
 		// copies ini file to app folder
 		FileUtils.copyFileToFolder(genericIni, appFolder);
 
+		// adds class data sharing option to the launch options file (the launcher reads JVM options only from it)
+		if (packager.getCdsVmArg() != null) {
+			File launchOptionsFile = new File(appFolder, packager.getName() + ".l4j.ini");
+			String launchOptions = launchOptionsFile.exists() ? readFileToString(launchOptionsFile, StandardCharsets.UTF_8) : "";
+			if (!launchOptions.isEmpty() && !launchOptions.endsWith("\n")) {
+				launchOptions += "\r\n";
+			}
+			writeStringToFile(launchOptionsFile, launchOptions + packager.getCdsVmArg() + "\r\n", StandardCharsets.UTF_8);
+			Logger.info("Class data sharing option added to " + launchOptionsFile.getAbsolutePath());
+		}
+
 		// copies exe file to app folder with apps name
 		FileUtils.copyFileToFile(getGenericExe(), executable);
 
@@ -136,7 +136,7 @@ public class CreateWindowsExeWinRun4j extends AbstractCreateWindowsExe {
 		rcedit.setVersionString(getGenericExe(), "ProductName", winConfig.getProductName());
 
 		// copies JAR to libs folder
-		FileUtils.copyFileToFolder(jarFile, appFolder);
+		FileUtils.copyFileToFolder(jarFile, appFolder, packager.getStagingMode());
 
 		// generates ini file		
 		File genericIni = new File(getOutputFolder(), "app.ini");
@@ -0,0 +1,44 @@
+package io.github.fvarrui.javapackager.packagers;
+
+import java.io.File;
+
+import io.github.fvarrui.javapackager.model.CompressionConfig.Format;
+import io.github.fvarrui.javapackager.model.CompressionOptions;
+import io.github.fvarrui.javapackager.utils.ParallelZipWriter;
+
+/**
+ * Creates zipball (zip file), compressing its entries in parallel
+ */
+public class CreateZipball extends AbstractCreateBundle {
+	
+	public CreateZipball() {
+		super("Zipball", ".zip");
+	}
+
+	@Override
+	public boolean skip(Packager packager) {
+		return !packager.getCreateZipball();
+	}
+
+	@Override
+	protected File doApply(Packager packager) throws Exception {
+
+		File zipFile = getBundleFile(packager, packager.getZipballName());
+		CompressionOptions compression = packager.getCompressionOptions(Format.zipball);
+
+		try (ParallelZipWriter zip = new ParallelZipWriter(zipFile, compression.getThreads(), compression.getLevel())) {
+			for (BundleEntry entry : getBundleEntries(packager)) {
+				if (entry.isDirectory()) {
+					zip.addDirectory(entry.getName(), entry.getMode(), entry.getLastModified());
+				} else if (entry.isLink()) {
+					zip.addLink(entry.getName(), entry.getLinkTarget(), entry.getLastModified());
+				} else {
+					zip.addFile(entry.getName(), entry.getPath(), entry.getMode(), entry.getLastModified());
+				}
+			}
+		}
+
+		return zipFile;
+	}
+
+}
@@ -1,40 +1,51 @@
 package io.github.fvarrui.javapackager.packagers;
 
-import io.github.fvarrui.javapackager.model.Platform;
-import io.github.fvarrui.javapackager.utils.CommandUtils;
+import io.github.fvarrui.javapackager.model.CompressionConfig.Format;
+import io.github.fvarrui.javapackager.model.CompressionOptions;
+import io.github.fvarrui.javapackager.utils.CacheUtils;
+import io.github.fvarrui.javapackager.utils.DownloadManager;
+import io.github.fvarrui.javapackager.utils.FileTreeIndex;
+import io.github.fvarrui.javapackager.utils.FileTreeIndex.Entry;
 import io.github.fvarrui.javapackager.utils.FileUtils;
 import io.github.fvarrui.javapackager.utils.Logger;
+import io.github.fvarrui.javapackager.utils.SquashfsWriter;
 import io.github.fvarrui.javapackager.utils.VelocityUtils;
-import org.apache.commons.lang3.SystemUtils;
+import io.github.fvarrui.javapackager.utils.ZsyncWriter;
+
+import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+/**
+ * Creates an AppImage file, appending a squashfs image of the app folder to
+ * the AppImage runtime, with no need of appimagetool. Update information can
+ * be embedded, and a zsync control file generated, for delta updates.
+ */
 public class GenerateAppImage extends ArtifactGenerator<LinuxPackager> {
-	
-	private static final int IMAGETOOL_VERSION = 13;
-	private static final String IMAGETOOL_URL = "https://github.com/AppImage/AppImageKit/releases/download/" + IMAGETOOL_VERSION + "/appimagetool-%s.AppImage";
-	
+
+	private static final int RUNTIME_VERSION = 13;
+	private static final String RUNTIME_URL = "https://github.com/AppImage/AppImageKit/releases/download/" + RUNTIME_VERSION + "/runtime-%s";
+
 	public GenerateAppImage() {
 		super("AppImage");
 	}
-	
+
 	@Override
 	public boolean skip(LinuxPackager packager) {
-
-		if (!packager.getLinuxConfig().isGenerateAppImage()) {
-			return true;
-		}
-		
-		if (!packager.getPlatform().isCurrentPlatform() && !packager.isForceInstaller()) {
-			Logger.warn(getArtifactName() + " cannot be generated due to the target platform (" + packager.getPlatform() + ") is different from the execution platform (" + Platform.getCurrentPlatform() + ")!");
-			return true;
-		}
-		
-		return false;		
-
+		return !packager.getLinuxConfig().isGenerateAppImage();
 	}
-	
+
 	@Override
 	protected File doApply(LinuxPackager packager) throws Exception {
 
@@ -44,74 +55,179 @@ public class GenerateAppImage extends ArtifactGenerator<LinuxPackager> {
 		File executable = packager.getExecutable();
 		File assetsFolder = packager.getAssetsFolder();
 		File iconFile = packager.getIconFile();
+		boolean bundleJre = packager.getBundleJre();
+		String jreDirectoryName = packager.getJreDirectoryName();
 
 		// output AppImage file
 		File appImage = new File(outputFolder, name + ".AppImage");
-		
-		// AppDir folder
-		File appDir = new File(assetsFolder, "AppDir");
-		
-		// gets/downloads AppImage tool
-		Logger.info("Getting appimagetool...");
-		File appImageTool = getAppImageTool(packager);
-		Logger.info("App image tool found! " + appImageTool);
-
-		// copies app folder to AppDir/usr/bin
-		FileUtils.copyFolderContentToFolder(appFolder, new File(appDir, "usr/bin"));
-				
-		// generates AppImage desktop file from velocity template
-		File desktopFile = new File(appDir, name + ".desktop");
+
+		// gets/downloads AppImage runtime
+		Logger.info("Getting AppImage runtime...");
+		File runtime = getRuntime(packager);
+		Logger.info("AppImage runtime found! " + runtime);
+
+		// generates AppImage desktop file from velocity template, in its own folder so
+		// the desktop file shared with DEB and RPM generators is not overwritten
+		File desktopFile = new File(FileUtils.mkdir(assetsFolder, "appimage"), name + ".desktop");
 		VelocityUtils.render("linux/desktop-appimage.vtl", desktopFile, packager);
 		Logger.info("Desktop file rendered in " + desktopFile.getAbsolutePath());
-		
-		// creates AppRun symlink to startup script
-		Logger.info("Creating AppRun symlink to startup script...");
-		File appRun = new File(appDir, "AppRun");
-		FileUtils.createSymlink(appRun, new File("usr/bin", executable.getName()));
-
-		// creates AppRun symlink to startup script
-		Logger.info("Copying icon to AppDir ...");
-		FileUtils.copyFileToFolder(iconFile, appDir);
-		
-		// runs appimagetool on appFolder
-		Logger.info("Running appimagetool on " + appFolder);
-		CommandUtils.execute(
-				appImageTool,
-				"--appimage-extract-and-run",
-				appDir,
-				appImage
-			);
-		
+
+		// creates squashfs writer
+		CompressionOptions compression = packager.getCompressionOptions(Format.appImage);
+		SquashfsWriter squashfsWriter = new SquashfsWriter(compression.getAlgorithm(), compression.getLevel(), compression.getThreads());
+
+		// desktop file, icon and AppRun symlink to startup script
+		squashfsWriter.addFile(desktopFile.getName(), desktopFile.toPath(), desktopFile.length(), 0644, desktopFile.lastModified());
+		squashfsWriter.addFile(iconFile.getName(), iconFile.toPath(), iconFile.length(), 0644, iconFile.lastModified());
+		squashfsWriter.addLink(".DirIcon", iconFile.getName(), iconFile.lastModified());
+		squashfsWriter.addLink("AppRun", "usr/bin/" + executable.getName(), executable.lastModified());
+
+		// adds app folder to usr/bin from the app index, with execution permissions for executable file and jre/bin/java
+		List<File> executionPermissions = new ArrayList<>();
+		executionPermissions.add(executable);
+		if (bundleJre) {
+			executionPermissions.add(new File(appFolder, jreDirectoryName + "/bin/java"));
+			executionPermissions.add(new File(appFolder, jreDirectoryName + "/lib/jspawnhelper"));
+		}
+
+		FileTreeIndex index = packager.getAppIndex();
+		squashfsWriter.addDirectory("usr/bin", 0755, appFolder.lastModified());
+		for (Entry entry : index.getEntries()) {
+			String path = "usr/bin/" + entry.getRelativePath();
+			if (entry.isDirectory()) {
+				squashfsWriter.addDirectory(path, 0755, entry.getLastModified());
+			} else if (entry.isLink()) {
+				squashfsWriter.addLink(path, entry.getLinkTarget(), entry.getLastModified());
+			} else {
+				int mode = entry.isExecutable() || executionPermissions.contains(entry.getFile()) ? 0755 : 0644;
+				squashfsWriter.addFile(path, entry.getPath(), entry.getSize(), mode, entry.getLastModified());
+			}
+		}
+
+		// embeds update information in the runtime
+		byte[] runtimeBytes = Files.readAllBytes(runtime.toPath());
+		String updateInformation = packager.getLinuxConfig().getAppImageUpdateInformation();
+		if (StringUtils.isNotBlank(updateInformation)) {
+			Logger.info("Embedding update information: " + updateInformation);
+			embedUpdateInformation(runtimeBytes, updateInformation);
+		}
+
+		// writes runtime followed by the squashfs image
+		Logger.info("Writing AppImage squashfs image with " + compression.getAlgorithm() + " compression...");
+		try (FileChannel channel = FileChannel.open(appImage.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.wrap(runtimeBytes);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			squashfsWriter.write(channel);
+		}
+
 		Logger.info("Setting execution permissions to " + appImage);
 		appImage.setExecutable(true);
-		
+
+		// zsync control file
+		if (packager.getCreateZsync()) {
+			new ZsyncWriter(packager.getThreads()).write(appImage);
+		}
+
 		return appImage;
 	}
-	
-	private File getAppImageTool(LinuxPackager packager) throws Exception {
-		File assetsFolder = packager.getAssetsFolder();
-		File appImageTool = new File(assetsFolder, "appimagetool"); 
-		if (!appImageTool.exists()) {
-			String imageToolUrl = String.format(IMAGETOOL_URL, getOSArch()); 
-			try {
-				FileUtils.downloadFromUrl(imageToolUrl, appImageTool);
-			} catch (IOException e) {
-				throw new Exception("An error occurred while downloading appimagetool from " + imageToolUrl + " for " + getOSArch() + "! It may be a network problem or the url " + imageToolUrl + " is not valid!", e);
+
+	/**
+	 * Gets the AppImage runtime for the target architecture from the assets
+	 * folder (linux/runtime-ARCH), from the plugin resources if it's bundled,
+	 * or downloads it
+	 */
+	private File getRuntime(LinuxPackager packager) throws Exception {
+		String arch = packager.getArch().toAppImageArchitecture();
+		File runtime = packager.getAssetsDir() != null ? new File(packager.getAssetsDir(), "linux/runtime-" + arch) : null;
+		if (runtime != null && runtime.isFile()) {
+			return runtime;
+		}
+		String resource = "/linux/runtime-" + arch;
+		if (GenerateAppImage.class.getResource(resource) != null) {
+			// bundled runtimes are extracted once to the cache, so no network is needed
+			return CacheUtils.getResource(resource);
+		}
+		String runtimeUrl = String.format(RUNTIME_URL, arch);
+		String sha256 = getRuntimeChecksum(packager, "runtime-" + arch);
+		if (sha256 == null) {
+			throw new Exception("AppImage runtime checksum for " + arch + " is not pinned, so the downloaded runtime cannot be verified! Pin it in ${assetsDir}/linux/appimage-runtime.sha256 or provide the runtime as ${assetsDir}/linux/runtime-" + arch);
+		}
+		try {
+			// it's downloaded only once and used from the downloads cache
+			runtime = DownloadManager.download(new URL(runtimeUrl), sha256);
+		} catch (IOException e) {
+			throw new Exception("An error occurred while downloading AppImage runtime from " + runtimeUrl + " for " + arch + "! It may be a network problem or the url " + runtimeUrl + " is not valid!", e);
+		}
+		return runtime;
+	}
+
+	/**
+	 * Gets the pinned checksum of a runtime from the "linux/appimage-runtime.sha256"
+	 * asset (sha256sum format)
+	 * @return SHA-256 checksum, or null if it's not pinned
+	 */
+	private String getRuntimeChecksum(LinuxPackager packager, String runtimeName) throws Exception {
+		File checksumsFile = new File(packager.getAssetsFolder(), "appimage-runtime.sha256");
+		FileUtils.copyResourceToFile("/linux/appimage-runtime.sha256", checksumsFile, packager.getAssetsDir());
+		for (String line : Files.readAllLines(checksumsFile.toPath(), StandardCharsets.UTF_8)) {
+			String[] fields = StringUtils.split(line.trim());
+			if (fields.length == 2 && !fields[0].startsWith("#") && fields[1].replace("*", "").equals(runtimeName)) {
+				return fields[0];
 			}
-			appImageTool.setExecutable(true);
 		}
-		return appImageTool;
+		return null;
 	}
-	
-	private String getOSArch() {
-		switch (SystemUtils.OS_ARCH) {
-		case "amd64": 
-			return "x86_64";
-		case "x86": 
-		case "i386": 
-			return "i686";
+
+	/**
+	 * Writes the update information in the ".upd_info" section of the runtime
+	 * ELF file, where AppImage tools look for it
+	 */
+	private void embedUpdateInformation(byte[] runtime, String updateInformation) throws Exception {
+		ByteBuffer elf = ByteBuffer.wrap(runtime);
+		if (runtime.length < 64 || elf.getInt(0) != 0x7F454C46) {
+			throw new Exception("AppImage runtime is not an ELF file");
 		}
-		return SystemUtils.OS_ARCH;
+		boolean is64 = runtime[4] == 2;
+		elf.order(runtime[5] == 2 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+
+		// section headers
+		long sectionsOffset = is64 ? elf.getLong(0x28) : elf.getInt(0x20) & 0xFFFFFFFFL;
+		int sectionSize = elf.getShort(is64 ? 0x3A : 0x2E) & 0xFFFF;
+		int sectionCount = elf.getShort(is64 ? 0x3C : 0x30) & 0xFFFF;
+		int namesIndex = elf.getShort(is64 ? 0x3E : 0x32) & 0xFFFF;
+		long namesOffset = getSectionOffset(elf, is64, (int) (sectionsOffset + namesIndex * sectionSize));
+
+		for (int i = 0; i < sectionCount; i++) {
+			int header = (int) (sectionsOffset + i * sectionSize);
+			int nameOffset = (int) (namesOffset + elf.getInt(header));
+			if (!".upd_info".equals(readString(runtime, nameOffset))) {
+				continue;
+			}
+			int offset = (int) getSectionOffset(elf, is64, header);
+			long size = is64 ? elf.getLong(header + 0x20) : elf.getInt(header + 0x14) & 0xFFFFFFFFL;
+			byte[] bytes = updateInformation.getBytes(StandardCharsets.UTF_8);
+			if (bytes.length >= size) {
+				throw new Exception("Update information is too long (" + bytes.length + " bytes, but " + size + " available)");
+			}
+			Arrays.fill(runtime, offset, (int) (offset + size), (byte) 0);
+			System.arraycopy(bytes, 0, runtime, offset, bytes.length);
+			return;
+		}
+		throw new Exception("AppImage runtime has no .upd_info section");
 	}
-	
+
+	private long getSectionOffset(ByteBuffer elf, boolean is64, int header) {
+		return is64 ? elf.getLong(header + 0x18) : elf.getInt(header + 0x10) & 0xFFFFFFFFL;
+	}
+
+	private String readString(byte[] bytes, int offset) {
+		int end = offset;
+		while (end < bytes.length && bytes[end] != 0) {
+			end++;
+		}
+		return new String(bytes, offset, end - offset, StandardCharsets.US_ASCII);
+	}
+
 }
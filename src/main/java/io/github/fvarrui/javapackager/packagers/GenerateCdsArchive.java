@@ -0,0 +1,242 @@
+package io.github.fvarrui.javapackager.packagers;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+
+import io.github.fvarrui.javapackager.model.CdsConfig;
+import io.github.fvarrui.javapackager.model.CdsMode;
+import io.github.fvarrui.javapackager.model.Platform;
+import io.github.fvarrui.javapackager.model.WindowsExeCreationTool;
+import io.github.fvarrui.javapackager.utils.ExecutionResult;
+import io.github.fvarrui.javapackager.utils.JDKUtils;
+import io.github.fvarrui.javapackager.utils.Logger;
+import io.github.fvarrui.javapackager.utils.ProcessRunner;
+import io.github.fvarrui.javapackager.utils.VersionUtils;
+
+/**
+ * Generates a class data sharing archive (AppCDS) or an AOT cache for the
+ * bundled JRE, from a training run of the app launched the same way (working
+ * directory and class path) as its launcher does, so the JVM can use it
+ */
+public class GenerateCdsArchive extends ArtifactGenerator<Packager> {
+
+	private static final String DEFAULT_ARCHIVE = "classes.jsa";
+	private static final String APPCDS_ARCHIVE = "app.jsa";
+	private static final String AOT_CACHE = "app.aot";
+	private static final String AOT_CONFIGURATION = "app.aotconf";
+
+	public GenerateCdsArchive() {
+		super("CDS archive");
+	}
+
+	@Override
+	public boolean skip(Packager packager) {
+		return packager.getCdsArchive() == null;
+	}
+
+	/**
+	 * Checks if a file is a class data sharing archive or an AOT cache, which
+	 * are not reproducible, so they're excluded from fingerprints
+	 * @param file File
+	 * @return true if it's an archive
+	 */
+	public static boolean isArchive(File file) {
+		return file.getName().endsWith(".jsa") || file.getName().endsWith(".aot");
+	}
+
+	@Override
+	protected String getFingerprint(Packager packager) {
+		// generated from the app folder, before it's fingerprinted, so it's always generated
+		return null;
+	}
+
+	/**
+	 * Resolves the archive to be generated into the bundled JRE, depending on
+	 * the mode and the JRE version
+	 * @param packager Packager
+	 * @return Archive file, or null if it cannot be generated
+	 * @throws Exception If the bundled JRE release file cannot be read
+	 */
+	public File resolveArchive(Packager packager) throws Exception {
+
+		CdsConfig cds = packager.getCds();
+		Platform platform = packager.getPlatform();
+
+		if (!cds.isEnabled()) {
+			return null;
+		}
+
+		if (!packager.getBundleJre()) {
+			Logger.warn("Class data sharing skipped: it requires a bundled JRE");
+			return null;
+		}
+
+		if (!platform.isCurrentPlatform()) {
+			Logger.warn("Class data sharing skipped: the app cannot be trained on " + Platform.getCurrentPlatform() + " for " + platform);
+			return null;
+		}
+
+		if (platform != Platform.mac && !packager.isUseResourcesAsWorkingDir()) {
+			Logger.warn("Class data sharing skipped: it requires 'useResourcesAsWorkingDir', so the launcher class path is the same as the training one");
+			return null;
+		}
+
+		if (platform == Platform.windows && packager.getWinConfig().getExeCreationTool() == WindowsExeCreationTool.launch4j) {
+			Logger.warn("Class data sharing skipped: it's not supported with " + WindowsExeCreationTool.launch4j);
+			return null;
+		}
+
+		File jreFolder = packager.getJreDestinationFolder();
+		if (!getJavaCommand(packager).exists()) {
+			Logger.warn("Class data sharing skipped: the bundled JRE has no java command");
+			return null;
+		}
+
+		Map<String, String> release = JDKUtils.getRelease(jreFolder);
+		if (release == null || release.get("JAVA_VERSION") == null) {
+			Logger.warn("Class data sharing skipped: the bundled JRE version is unknown");
+			return null;
+		}
+		int javaVersion = VersionUtils.getJavaMajorVersion(release.get("JAVA_VERSION"));
+
+		CdsMode mode = cds.getMode();
+		if (mode == CdsMode.auto) {
+			mode = javaVersion >= 24 ? CdsMode.aotCache : CdsMode.appCds;
+		}
+		if (mode == CdsMode.aotCache && javaVersion < 24) {
+			Logger.warn("Class data sharing skipped: AOT caches require a JRE 24 or later");
+			return null;
+		}
+		if (mode == CdsMode.appCds && javaVersion < 13) {
+			Logger.warn("Class data sharing skipped: dynamic AppCDS archives require a JRE 13 or later");
+			return null;
+		}
+
+		return new File(jreFolder, "lib/" + (mode == CdsMode.aotCache ? AOT_CACHE : APPCDS_ARCHIVE));
+	}
+
+	@Override
+	protected File doApply(Packager packager) throws Exception {
+
+		CdsConfig cds = packager.getCds();
+		File archive = packager.getCdsArchive();
+		File workingDirectory = packager.getResourcesDestinationFolder();
+		File java = getJavaCommand(packager);
+		Object[] vmArguments = packager.getVmArgs().toArray();
+		Object[] launchArguments = getLaunchArguments(packager).toArray();
+		List<String> appArguments = new ArrayList<>(packager.getAppArgs());
+		appArguments.addAll(cds.getTrainingArgs());
+
+		Logger.infoIndent("Training app to generate " + archive.getName() + " ...");
+
+		Files.deleteIfExists(archive.toPath());
+
+		// dumps the JRE default archive, as app archives are created on top of it (jlink doesn't generate it by default)
+		if (!new File(packager.getJreDestinationFolder(), "lib/server/" + DEFAULT_ARCHIVE).exists()) {
+			new ProcessRunner(java.getAbsolutePath(), "-Xshare:dump").run();
+		}
+
+		if (archive.getName().equals(AOT_CACHE)) {
+
+			// records the training run, and then creates the cache from the recorded configuration
+			File configuration = new File(archive.getParentFile(), AOT_CONFIGURATION);
+			train(java, workingDirectory, cds, "-XX:AOTMode=record", "-XX:AOTConfiguration=" + configuration.getAbsolutePath(), vmArguments, launchArguments, appArguments.toArray());
+			if (configuration.exists()) {
+				new ProcessRunner(java.getAbsolutePath(), "-XX:AOTMode=create", "-XX:AOTConfiguration=" + configuration.getAbsolutePath(), "-XX:AOTCache=" + archive.getAbsolutePath(), vmArguments, launchArguments)
+					.workingDirectory(workingDirectory)
+					.run();
+				Files.deleteIfExists(configuration.toPath());
+			}
+
+		} else {
+
+			train(java, workingDirectory, cds, "-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath(), vmArguments, launchArguments, appArguments.toArray());
+
+		}
+
+		if (!archive.exists()) {
+			Logger.warn("Training run didn't generate " + archive.getName() + ", so it's removed from the launchers");
+			Logger.infoUnindent("Class data sharing archive not generated!");
+			return null;
+		}
+
+		Logger.infoUnindent("Class data sharing archive generated in " + archive.getAbsolutePath() + " (" + archive.length() + " bytes)!");
+
+		return archive;
+	}
+
+	private File getJavaCommand(Packager packager) {
+		return new File(packager.getJreDestinationFolder(), "bin/" + (packager.getPlatform() == Platform.windows ? "java.exe" : "java"));
+	}
+
+	/**
+	 * Runs the app until it exits, or stops it when the timeout is reached (the
+	 * JVM writes the archive when exiting)
+	 */
+	private void train(File java, File workingDirectory, CdsConfig cds, Object... arguments) throws Exception {
+		ExecutionResult result = new ProcessRunner(java.getAbsolutePath(), arguments)
+				.workingDirectory(workingDirectory)
+				.timeout(cds.getTimeout() * 1000L)
+				.stopOnTimeout(true)
+				.run();
+		if (result.getExitCode() != 0) {
+			Logger.warn("Training run finished with exit code " + result.getExitCode());
+		}
+	}
+
+	/**
+	 * Class path and main class arguments, relative to the working directory,
+	 * exactly as the launcher of every platform passes them to the JVM
+	 */
+	private List<String> getLaunchArguments(Packager packager) {
+		List<String> arguments = new ArrayList<>();
+		List<String> classpaths = packager.getClasspaths() != null ? packager.getClasspaths() : new ArrayList<>();
+		switch (packager.getPlatform()) {
+		case linux:
+			// startup.sh
+			String binary = packager.getLinuxConfig().isWrapJar() ? packager.getExecutable().getName() : packager.getJarName();
+			arguments.add("-jar");
+			arguments.add(StringUtils.join(concat(binary, classpaths), ":"));
+			break;
+		case mac:
+			// universalJavaApplicationStub adds current folder to class path
+			arguments.add("-cp");
+			arguments.add(StringUtils.join(concat(".", classpaths), ":"));
+			arguments.add(packager.getMainClass());
+			break;
+		case windows:
+			List<String> windowsClasspaths = new ArrayList<>();
+			if (packager.getWinConfig().getExeCreationTool() == WindowsExeCreationTool.winrun4j && packager.getLibsFolder() != null) {
+				// WinRun4J expands "libs\*.jar"
+				Arrays.stream(Objects.requireNonNull(packager.getLibsFolder().listFiles((dir, name) -> name.endsWith(".jar"))))
+					.map(jar -> packager.getLibsFolder().getName() + "\\" + jar.getName())
+					.sorted()
+					.forEach(windowsClasspaths::add);
+			}
+			windowsClasspaths.add(packager.getJarName());
+			windowsClasspaths.addAll(classpaths);
+			arguments.add("-cp");
+			arguments.add(StringUtils.join(windowsClasspaths, ";"));
+			arguments.add(packager.getMainClass());
+			break;
+		default:
+			break;
+		}
+		return arguments;
+	}
+
+	private static List<String> concat(String first, List<String> others) {
+		List<String> list = new ArrayList<>();
+		list.add(first);
+		list.addAll(others);
+		return list;
+	}
+
+}
@@ -0,0 +1,181 @@
+package io.github.fvarrui.javapackager.packagers;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+
+import io.github.fvarrui.javapackager.utils.ArchiveUtils;
+import io.github.fvarrui.javapackager.utils.BsdiffWriter;
+import io.github.fvarrui.javapackager.utils.FileUtils;
+import io.github.fvarrui.javapackager.utils.HashUtils;
+import io.github.fvarrui.javapackager.utils.Logger;
+
+/**
+ * Generates binary delta patches (bsdiff format) from the artifacts of the
+ * previous release to the generated installers and bundles, and a manifest
+ * with the patches and the files changed inside each artifact, so an update
+ * server can ship patches instead of whole installers
+ */
+public class GenerateDelta extends ArtifactGenerator<Packager> {
+
+	public GenerateDelta() {
+		super("Delta patches");
+	}
+
+	@Override
+	public boolean skip(Packager packager) {
+
+		File previousReleaseDir = packager.getPreviousReleaseDir();
+
+		if (previousReleaseDir == null) {
+			return true;
+		}
+
+		if (!previousReleaseDir.isDirectory()) {
+			Logger.warn("Previous release folder " + previousReleaseDir + " doesn't exist!");
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	protected String getFingerprint(Packager packager) {
+		// depends on the previous release and all generated artifacts, so it's always generated
+		return null;
+	}
+
+	@Override
+	protected File doApply(Packager packager) throws Exception {
+
+		String name = packager.getName();
+		String version = packager.getVersion();
+		File outputDirectory = packager.getOutputDirectory();
+
+		// delta folder
+		File deltaFolder = new File(outputDirectory, name + "-" + version + "-delta");
+		if (deltaFolder.exists()) {
+			FileUtils.removeFolder(deltaFolder);
+		}
+		deltaFolder = FileUtils.mkdir(outputDirectory, deltaFolder.getName());
+
+		BsdiffWriter bsdiffWriter = new BsdiffWriter(packager.getThreads());
+
+		List<String> deltas = new ArrayList<>();
+		for (File artifact : packager.getArtifacts()) {
+			if (!artifact.isFile()) {
+				continue;
+			}
+
+			File previousArtifact = findPreviousArtifact(packager.getPreviousReleaseDir(), artifact, version);
+			if (previousArtifact == null) {
+				Logger.warn("No previous release artifact found for " + artifact.getName());
+				continue;
+			}
+
+			Logger.info("Generating patch from " + previousArtifact.getName() + " to " + artifact.getName() + " ...");
+			File patch = bsdiffWriter.write(previousArtifact, artifact, new File(deltaFolder, artifact.getName() + ".bsdiff"));
+
+			deltas.add(
+				"    {\n" +
+				"      \"artifact\": " + toJson(artifact) + ",\n" +
+				"      \"previousArtifact\": " + toJson(previousArtifact) + ",\n" +
+				"      \"patch\": " + toJson(patch) + ",\n" +
+				"      \"format\": \"bsdiff\",\n" +
+				"      \"changes\": " + getChanges(previousArtifact, artifact) + "\n" +
+				"    }"
+			);
+		}
+
+		// manifest
+		File manifestFile = new File(deltaFolder, "manifest.json");
+		String manifest =
+			"{\n" +
+			"  \"name\": " + quote(name) + ",\n" +
+			"  \"version\": " + quote(version) + ",\n" +
+			"  \"deltas\": [\n" +
+			StringUtils.join(deltas, ",\n") + (deltas.isEmpty() ? "" : "\n") +
+			"  ]\n" +
+			"}\n";
+		org.apache.commons.io.FileUtils.writeStringToFile(manifestFile, manifest, StandardCharsets.UTF_8);
+		Logger.info("Delta manifest created in " + manifestFile.getAbsolutePath());
+
+		return deltaFolder;
+	}
+
+	/**
+	 * Finds the artifact of the previous release with the same name but the
+	 * version (the most recent one, if there are several)
+	 */
+	private File findPreviousArtifact(File previousReleaseDir, File artifact, String version) {
+		String name = artifact.getName();
+		int versionIndex = StringUtils.isBlank(version) ? -1 : name.indexOf(version);
+		String prefix = versionIndex == -1 ? name : name.substring(0, versionIndex);
+		String suffix = versionIndex == -1 ? "" : name.substring(versionIndex + version.length());
+		File[] files = Objects.requireNonNull(previousReleaseDir.listFiles(File::isFile));
+		return Arrays.stream(files)
+				.filter(file -> versionIndex == -1
+						? file.getName().equals(name)
+						: file.getName().startsWith(prefix) && file.getName().endsWith(suffix) && file.getName().length() > prefix.length() + suffix.length())
+				.max(Comparator.comparingLong(File::lastModified))
+				.orElse(null);
+	}
+
+	/**
+	 * Compares the contents of both artifacts, if they are archives which can
+	 * be read (zipballs, tarballs, DEB and RPM packages)
+	 */
+	private String getChanges(File previousArtifact, File artifact) throws Exception {
+		Map<String, String> previousContents = ArchiveUtils.listContents(previousArtifact);
+		Map<String, String> contents = ArchiveUtils.listContents(artifact);
+		if (previousContents == null || contents == null) {
+			return "null";
+		}
+		List<String> added = contents.keySet().stream().filter(file -> !previousContents.containsKey(file)).collect(Collectors.toList());
+		List<String> removed = previousContents.keySet().stream().filter(file -> !contents.containsKey(file)).collect(Collectors.toList());
+		List<String> modified = contents.keySet().stream().filter(file -> previousContents.containsKey(file) && !contents.get(file).equals(previousContents.get(file))).collect(Collectors.toList());
+		Logger.info("Changes in " + artifact.getName() + ": " + added.size() + " added, " + removed.size() + " removed, " + modified.size() + " modified");
+		return "{\n" +
+			"        \"added\": " + toJson(added) + ",\n" +
+			"        \"removed\": " + toJson(removed) + ",\n" +
+			"        \"modified\": " + toJson(modified) + "\n" +
+			"      }";
+	}
+
+	private String toJson(File file) throws Exception {
+		return "{ \"name\": " + quote(file.getName()) + ", \"size\": " + file.length() + ", \"sha256\": " + quote(HashUtils.sha256(file)) + " }";
+	}
+
+	private String toJson(List<String> values) {
+		return values.stream().map(this::quote).collect(Collectors.joining(", ", "[", "]"));
+	}
+
+	private String quote(String value) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			switch (c) {
+			case '"': 	quoted.append("\\\""); break;
+			case '\\': 	quoted.append("\\\\"); break;
+			case '\n': 	quoted.append("\\n"); break;
+			case '\r': 	quoted.append("\\r"); break;
+			case '\t': 	quoted.append("\\t"); break;
+			default:
+				if (c < 0x20) {
+					quoted.append(String.format("\\u%04x", (int) c));
+				} else {
+					quoted.append(c);
+				}
+			}
+		}
+		return quoted.append("\"").toString();
+	}
+
+}
@@ -9,8 +9,11 @@ import java.util.Optional;
 
 import org.apache.commons.lang3.StringUtils;
 
+import io.github.fvarrui.javapackager.model.CompressionConfig.Format;
+import io.github.fvarrui.javapackager.model.CompressionOptions;
 import io.github.fvarrui.javapackager.model.MacConfig;
 import io.github.fvarrui.javapackager.model.Platform;
+import io.github.fvarrui.javapackager.model.StagingMode;
 import io.github.fvarrui.javapackager.utils.FileUtils;
 import io.github.fvarrui.javapackager.utils.Logger;
 import io.github.fvarrui.javapackager.utils.ThreadUtils;
@@ -22,6 +25,8 @@ import io.github.fvarrui.javapackager.utils.VelocityUtils;
  */
 public class GenerateDmg extends ArtifactGenerator<MacPackager> {
 
+	private static final Object MOUNT_LOCK = new Object();
+
 	public GenerateDmg() {
 		super("DMG image");
 	}
@@ -70,9 +75,16 @@ public class GenerateDmg extends ArtifactGenerator<MacPackager> {
 		// mount dir
 		File mountFolder = new File("/Volumes/" + volumeName);
 
+		// stages image content in assets folder, so the app folder is not modified while other generators read it
+		File dmgFolder = new File(assetsFolder, "dmg");
+		if (dmgFolder.exists()) {
+			FileUtils.removeFolder(dmgFolder);
+		}
+		FileUtils.copyFolderContentToFolder(appFolder, dmgFolder, StagingMode.hardlink);
+
 		// copies background file
 		Logger.info("Copying background image");
-		File backgroundFolder = FileUtils.mkdir(appFolder, ".background");
+		File backgroundFolder = FileUtils.mkdir(dmgFolder, ".background");
 		File backgroundFile = new File(backgroundFolder, "background.png");
 		if (macConfig.getBackgroundImage() != null)
 			FileUtils.copyFileToFile(macConfig.getBackgroundImage(), backgroundFile);
@@ -82,7 +94,7 @@ public class GenerateDmg extends ArtifactGenerator<MacPackager> {
 		// copies volume icon
 		Logger.info("Copying icon file: " + iconFile.getAbsolutePath());
 		File volumeIcon = (macConfig.getVolumeIcon() != null) ? macConfig.getVolumeIcon() : iconFile;  
-		FileUtils.copyFileToFile(volumeIcon, new File(appFolder, ".VolumeIcon.icns"));
+		FileUtils.copyFileToFile(volumeIcon, new File(dmgFolder, ".VolumeIcon.icns"));
 
 		// creates image
 		Logger.info("Creating image: " + tempDmgFile.getAbsolutePath());
@@ -90,68 +102,86 @@ public class GenerateDmg extends ArtifactGenerator<MacPackager> {
 		boolean isAarch64 = osArchitecture.equalsIgnoreCase("aarch64");
 		String fileSystem = isAarch64 ? "APFS" : "HFS+";
 		Logger.warn(osArchitecture + " architecture detected. Using " + fileSystem + " filesystem");
-		execute("hdiutil", "create", "-srcfolder", appFolder, "-volname", volumeName, "-ov", "-fs", fileSystem, "-format", "UDRW", tempDmgFile);
+		execute("hdiutil", "create", "-srcfolder", dmgFolder, "-volname", volumeName, "-ov", "-fs", fileSystem, "-format", "UDRW", tempDmgFile);
 
-		if (mountFolder.exists()) {
-			Logger.info("Unmounting volume: " + mountFolder);
-			execute("hdiutil", "detach", mountFolder);
-		}
+		// volumes are mounted by name, so only one image can be customized at the same time
+		synchronized (MOUNT_LOCK) {
+		
+			if (mountFolder.exists()) {
+				Logger.info("Unmounting volume: " + mountFolder);
+				execute("hdiutil", "detach", mountFolder);
+			}
+		
+			// mounts image
+			Logger.info("Mounting image: " + tempDmgFile.getAbsolutePath());
+			String result = execute("hdiutil", "attach", "-readwrite", "-noverify", "-noautoopen", tempDmgFile);
+			Optional<String> optDeviceName = Arrays.stream(result.split("\n"))
+									.filter(s -> s.contains(mountFolder.getAbsolutePath()))
+									.map(StringUtils::normalizeSpace)
+									.map(s -> s.split(" ")[0])
+									.findFirst();
+			optDeviceName.ifPresent(deviceName -> Logger.info("- Device name: " + deviceName));
 		
-		// mounts image
-		Logger.info("Mounting image: " + tempDmgFile.getAbsolutePath());
-		String result = execute("hdiutil", "attach", "-readwrite", "-noverify", "-noautoopen", tempDmgFile);
-		Optional<String> optDeviceName = Arrays.stream(result.split("\n"))
-								.filter(s -> s.contains(mountFolder.getAbsolutePath()))
-								.map(StringUtils::normalizeSpace)
-								.map(s -> s.split(" ")[0])
-								.findFirst();
-		optDeviceName.ifPresent(deviceName -> Logger.info("- Device name: " + deviceName));
-		
-		// pause to prevent occasional "Can't get disk" (-1728) issues 
-		// https://github.com/seltzered/create-dmg/commit/5fe7802917bb85b40c0630b026d33e421db914ea
-		ThreadUtils.sleep(2000L);
-
-		// creates a symlink to Applications folder
-		Logger.info("Creating Applications link");
-		File targetFolder = new File("/Applications");
-		File linkFile = new File(mountFolder, "Applications");
-		FileUtils.createSymlink(linkFile, targetFolder);
-
-		// renders applescript 
-		Logger.info("Rendering DMG customization applescript ... ");
-		File applescriptFile = new File(assetsFolder, "customize-dmg.applescript");
-		VelocityUtils.render("/mac/customize-dmg.applescript.vtl", applescriptFile, packager);
-		Logger.info("Applescript rendered in " + applescriptFile.getAbsolutePath() + "!");
-		
-		// runs applescript 
-		Logger.info("Running applescript");
-		execute("/usr/bin/osascript", applescriptFile, volumeName);
+			// pause to prevent occasional "Can't get disk" (-1728) issues 
+			// https://github.com/seltzered/create-dmg/commit/5fe7802917bb85b40c0630b026d33e421db914ea
+			ThreadUtils.sleep(2000L);
+
+			// creates a symlink to Applications folder
+			Logger.info("Creating Applications link");
+			File targetFolder = new File("/Applications");
+			File linkFile = new File(mountFolder, "Applications");
+			FileUtils.createSymlink(linkFile, targetFolder);
+
+			// renders applescript 
+			Logger.info("Rendering DMG customization applescript ... ");
+			File applescriptFile = new File(assetsFolder, "customize-dmg.applescript");
+			VelocityUtils.render("/mac/customize-dmg.applescript.vtl", applescriptFile, packager);
+			Logger.info("Applescript rendered in " + applescriptFile.getAbsolutePath() + "!");
+		
+			// runs applescript 
+			Logger.info("Running applescript");
+			execute("/usr/bin/osascript", applescriptFile, volumeName);
 	
-		// makes sure it's not world writeable and user readable
-		Logger.info("Fixing permissions...");
-		execute("chmod", "-Rf", "u+r,go-w", mountFolder);
-
-		if (!isAarch64) {
-			// makes the top window open itself on mount:
-			Logger.info("Blessing ...");
-			try {
-				execute("bless", "--folder", mountFolder, "--openfolder", mountFolder); }
-			catch (Exception e){
-				Logger.warn("Error blessing " + mountFolder + " due to: " + e.getMessage());
+			// makes sure it's not world writeable and user readable
+			Logger.info("Fixing permissions...");
+			execute("chmod", "-Rf", "u+r,go-w", mountFolder);
+
+			if (!isAarch64) {
+				// makes the top window open itself on mount:
+				Logger.info("Blessing ...");
+				try {
+					execute("bless", "--folder", mountFolder, "--openfolder", mountFolder); }
+				catch (Exception e){
+					Logger.warn("Error blessing " + mountFolder + " due to: " + e.getMessage());
+				}
 			}
-		}
 
-		// tells the volume that it has a special file attribute
-		execute("SetFile", "-a", "C", mountFolder);
+			// tells the volume that it has a special file attribute
+			execute("SetFile", "-a", "C", mountFolder);
+		
+			// unmounts
+			Logger.info("Unmounting volume: " + mountFolder);
+			execute("hdiutil", "detach", mountFolder);
 		
-		// unmounts
-		Logger.info("Unmounting volume: " + mountFolder);
-		execute("hdiutil", "detach", mountFolder);
+		}
 		
 		// compress image
 		Logger.info("Compressing disk image...");
-		execute("hdiutil", "convert", tempDmgFile, "-ov", "-format", "UDZO", "-imagekey", "zlib-level=9", "-o", dmgFile);
+		CompressionOptions compression = packager.getCompressionOptions(Format.dmg);
+		switch (compression.getAlgorithm().toLowerCase()) {
+		case "none": 	execute("hdiutil", "convert", tempDmgFile, "-ov", "-format", "UDRO", "-o", dmgFile); break;
+		case "bzip2": 	execute("hdiutil", "convert", tempDmgFile, "-ov", "-format", "UDBZ", "-o", dmgFile); break;
+		case "lzfse": 	execute("hdiutil", "convert", tempDmgFile, "-ov", "-format", "ULFO", "-o", dmgFile); break;
+		case "lzma": 	execute("hdiutil", "convert", tempDmgFile, "-ov", "-format", "ULMO", "-o", dmgFile); break;
+		default:
+			if (!"zlib".equalsIgnoreCase(compression.getAlgorithm())) {
+				Logger.warn("Unsupported DMG compression algorithm '" + compression.getAlgorithm() + "', using zlib");
+			}
+			int level = compression.getLevel() < 0 ? 9 : compression.getLevel();
+			execute("hdiutil", "convert", tempDmgFile, "-ov", "-format", "UDZO", "-imagekey", "zlib-level=" + level, "-o", dmgFile);
+		}
 		tempDmgFile.delete();
+		FileUtils.removeFolder(dmgFolder);
 
 		// checks if dmg file was created
 		if (!dmgFile.exists()) {
@@ -4,6 +4,8 @@ import static io.github.fvarrui.javapackager.utils.CommandUtils.execute;
 
 import java.io.File;
 
+import io.github.fvarrui.javapackager.model.CompressionConfig.Format;
+import io.github.fvarrui.javapackager.model.CompressionOptions;
 import io.github.fvarrui.javapackager.model.Platform;
 import io.github.fvarrui.javapackager.utils.Logger;
 import io.github.fvarrui.javapackager.utils.VelocityUtils;
@@ -18,6 +20,7 @@ public class GenerateMsi extends ArtifactGenerator<WindowsPackager> {
 
 	public GenerateMsi() {
 		super("MSI installer");
+		dependsOn(GenerateMsm.class);
 	}
 	
 	@Override
@@ -63,7 +66,7 @@ public class GenerateMsi extends ArtifactGenerator<WindowsPackager> {
 		// lighting wxs file
 		Logger.info("Linking file " + wixobjFile);
 		File msiFile = new File(outputDirectory, name + "_" + version + ".msi");
-		execute("light", "-sw1076", "-spdb", "-out", msiFile, wixobjFile);
+		execute("light", "-sw1076", "-spdb", "-dcl:" + getCabinetCompression(packager), "-out", msiFile, wixobjFile);
 
 		// setup file
 		if (!msiFile.exists()) {
@@ -75,5 +78,24 @@ public class GenerateMsi extends ArtifactGenerator<WindowsPackager> {
 
 		return msiFile;
 	}
-	
+
+	/**
+	 * Get WiX cabinet compression level from MSI compression options (mszip,
+	 * lzx with low, medium or high level, or none)
+	 * @param packager Packager
+	 * @return Light's default cabinet compression level
+	 */
+	static String getCabinetCompression(Packager packager) {
+		CompressionOptions compression = packager.getCompressionOptions(Format.msi);
+		int level = compression.getLevel();
+		switch (compression.getAlgorithm().toLowerCase()) {
+		case "none":	return "none";
+		case "lzx":		return level == 0 ? "none" : level < 0 || level > 6 ? "high" : level > 3 ? "medium" : "low";
+		case "mszip":	return level == 0 ? "none" : "mszip";
+		default:
+			Logger.warn("Unsupported MSI compression algorithm '" + compression.getAlgorithm() + "', using mszip");
+			return "mszip";
+		}
+	}
+
 }
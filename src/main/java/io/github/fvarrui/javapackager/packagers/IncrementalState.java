@@ -0,0 +1,81 @@
+package io.github.fvarrui.javapackager.packagers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import io.github.fvarrui.javapackager.utils.Logger;
+
+/**
+ * Persisted state of previous packagings, used to skip stages whose inputs
+ * fingerprint didn't change and whose outputs are still the same
+ */
+public class IncrementalState {
+
+	private final File stateFile;
+	private final Properties properties = new Properties();
+
+	public IncrementalState(File stateFile) {
+		this.stateFile = stateFile;
+		if (stateFile.exists()) {
+			try (InputStream in = Files.newInputStream(stateFile.toPath())) {
+				properties.load(in);
+			} catch (IOException e) {
+				Logger.warn("Incremental state could not be read (" + e.getMessage() + "), all stages will be executed");
+			}
+		}
+	}
+
+	/**
+	 * Get the output of a stage if it's up to date
+	 *
+	 * @param stage       Stage name
+	 * @param fingerprint Current fingerprint of the stage inputs
+	 * @return Previous output if fingerprint didn't change and output wasn't
+	 *         modified, null otherwise
+	 */
+	public synchronized File getUpToDateOutput(String stage, String fingerprint) {
+		if (!fingerprint.equals(properties.getProperty(stage + ".fingerprint"))) {
+			return null;
+		}
+		File output = new File(properties.getProperty(stage + ".output", ""));
+		if (!output.exists()) {
+			return null;
+		}
+		if (output.isFile() && !(output.length() + ":" + output.lastModified()).equals(properties.getProperty(stage + ".stamp"))) {
+			return null;
+		}
+		return output;
+	}
+
+	/**
+	 * Records the fingerprint and the output of a stage
+	 *
+	 * @param stage       Stage name
+	 * @param fingerprint Fingerprint of the stage inputs
+	 * @param output      Stage output
+	 */
+	public synchronized void update(String stage, String fingerprint, File output) {
+		properties.setProperty(stage + ".fingerprint", fingerprint);
+		properties.setProperty(stage + ".output", output.getAbsolutePath());
+		properties.setProperty(stage + ".stamp", output.length() + ":" + output.lastModified());
+		save();
+	}
+
+	private void save() {
+		File tempFile = new File(stateFile.getParentFile(), stateFile.getName() + ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(tempFile.toPath())) {
+				properties.store(out, "JavaPackager incremental state");
+			}
+			Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Logger.warn("Incremental state could not be saved: " + e.getMessage());
+		}
+	}
+
+}
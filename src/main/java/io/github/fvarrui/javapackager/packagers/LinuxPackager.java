@@ -1,6 +1,7 @@
 package io.github.fvarrui.javapackager.packagers;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.stream.Collectors;
 
@@ -83,25 +84,35 @@ public class LinuxPackager extends Packager {
 			Logger.info("Rendering mime.xml file to " + mimeXmlFile.getAbsolutePath());
 		}
 
-		// generates startup.sh script to boot java app
-		File startupFile = new File(assetsFolder, "startup.sh");
-		VelocityUtils.render("linux/startup.sh.vtl", startupFile, this);
-		Logger.info("Startup script generated in " + startupFile.getAbsolutePath());
+		createExecutable();
+		
+		Logger.infoUnindent("GNU/Linux executable created in " + executable.getAbsolutePath() + "!");
+		
+		return appFolder;
+	}
+
+	@Override
+	protected void doRemoveCdsVmArg(String cdsVmArg) throws Exception {
+		createExecutable();
+	}
+
+	private void createExecutable() throws Exception {
+
+		// generates startup.sh script to boot java app (in memory, as it's streamed into the executable)
+		byte[] startupScript = VelocityUtils.renderToString("linux/startup.sh.vtl", this).getBytes(StandardCharsets.UTF_8);
+		Logger.info("Startup script generated");
 
 		// concats linux startup.sh script + generated jar in executable (binary)
 		if (getLinuxConfig().isWrapJar())
-			FileUtils.concat(executable, startupFile, jarFile);
+			FileUtils.concat(executable, startupScript, jarFile);
 		else {
-			FileUtils.copyFileToFile(startupFile, executable);
-			FileUtils.copyFileToFolder(jarFile, appFolder);
+			FileUtils.concat(executable, startupScript);
+			FileUtils.copyFileToFolder(jarFile, appFolder, stagingMode);
 		}
 
 		// sets execution permissions
 		executable.setExecutable(true, false);
-		
-		Logger.infoUnindent("GNU/Linux executable created in " + executable.getAbsolutePath() + "!");
-		
-		return appFolder;
+
 	}
 
 }
\ No newline at end of file
@@ -2,26 +2,22 @@ package io.github.fvarrui.javapackager.packagers;
 
 import io.github.fvarrui.javapackager.model.MacStartup;
 import io.github.fvarrui.javapackager.model.Platform;
+import io.github.fvarrui.javapackager.model.StagingMode;
 import io.github.fvarrui.javapackager.utils.*;
+import io.github.fvarrui.javapackager.utils.FileTreeIndex.Entry;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.codehaus.plexus.util.cli.CommandLineException;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * Packager for MacOS
@@ -55,6 +51,12 @@ public class MacPackager extends Packager {
 			Logger.warn("'useResourcesAsWorkingDir' property disabled on Mac OS (useResourcesAsWorkingDir is always true)");
 		}
 
+		// codesign modifies files in place, so hardlinked files would change their sources too
+		if (this.stagingMode == StagingMode.hardlink && this.macConfig.isCodesignApp()) {
+			this.stagingMode = StagingMode.copy;
+			Logger.warn("'stagingMode' set to 'copy' as hardlinked files cannot be codesigned on Mac OS");
+		}
+
 	}
 
 	@Override
@@ -103,7 +105,7 @@ public class MacPackager extends Packager {
 		}
 
 		// copies jarfile to Java folder
-		FileUtils.copyFileToFolder(jarFile, javaFolder);
+		FileUtils.copyFileToFolder(jarFile, javaFolder, stagingMode);
 
 		processStartupScript();
 
@@ -113,11 +115,21 @@ public class MacPackager extends Packager {
 
 		processProvisionProfileFile();
 
+		return appFile;
+	}
+
+	@Override
+	protected void doRemoveCdsVmArg(String cdsVmArg) throws Exception {
+		processInfoPlistFile();
+	}
+
+	@Override
+	protected void doSignApp() throws Exception {
+
 		codesign();
 
 		notarize();
 
-		return appFile;
 	}
 
 	private void processStartupScript() throws Exception {
@@ -263,22 +275,19 @@ public class MacPackager extends Packager {
 	private void signAppBundle(File appFolder, String developerCertificateName, File entitlements) throws IOException, CommandLineException {
 //		Sign all embedded executables and dynamic libraries
 //		Structure and order adapted from the JRE's jpackage
-		try (Stream<Path> stream = Files.walk(appFolder.toPath())) {
-			stream.filter(p -> Files.isRegularFile(p)
-					&& (Files.isExecutable(p) || p.toString().endsWith(".dylib"))
-					&& !(p.toString().contains("dylib.dSYM/Contents"))
-					&& !(p.equals(this.executable.toPath()))
-			).forEach(p -> {
-				if (Files.isSymbolicLink(p)) {
-					Logger.debug("Skipping signing symlink: " + p);
-				} else {
-					try {
-						codesign(Files.isExecutable(p) ? entitlements : null, developerCertificateName, p.toFile());
-					} catch (IOException | CommandLineException e) {
-						throw new RuntimeException(e);
-					}
-				}
-			});
+//		The bundle is indexed here, as it's signed before the app folder is indexed
+		for (Entry entry : FileTreeIndex.build(appFolder).getEntries()) {
+			if (entry.isDirectory()
+					|| !(entry.isExecutable() || entry.getName().endsWith(".dylib"))
+					|| entry.getRelativePath().contains("dylib.dSYM/Contents")
+					|| entry.getFile().equals(this.executable)) {
+				continue;
+			}
+			if (entry.isLink()) {
+				Logger.debug("Skipping signing symlink: " + entry.getPath());
+			} else {
+				codesign(entry.isExecutable() ? entitlements : null, developerCertificateName, entry.getFile());
+			}
 		}
 
 		if(bundleJre) {
@@ -350,16 +359,18 @@ public class MacPackager extends Packager {
 
 	private Path zipApp(File appFile) throws IOException {
 		Path zipPath = assetsFolder.toPath().resolve(appFile.getName() + "-notarization.zip");
-		try(ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zipPath))) {
-			Path sourcePath = appFile.toPath();
-			Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
-				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-					zos.putNextEntry(new ZipEntry(sourcePath.getParent().relativize(file).toString()));
-					Files.copy(file, zos);
-					zos.closeEntry();
-					return FileVisitResult.CONTINUE;
+		try (ParallelZipWriter zip = new ParallelZipWriter(zipPath.toFile(), threads)) {
+			String prefix = appFile.getName() + "/";
+			for (Entry entry : FileTreeIndex.build(appFile).getEntries()) {
+				String name = prefix + entry.getRelativePath();
+				if (entry.isDirectory()) {
+					zip.addDirectory(name, entry.getMode(), entry.getLastModified());
+				} else if (entry.isLink()) {
+					zip.addLink(name, entry.getLinkTarget(), entry.getLastModified());
+				} else {
+					zip.addFile(name, entry.getPath(), entry.getMode(), entry.getLastModified());
 				}
-			});
+			}
 		}
 		return zipPath;
 	}
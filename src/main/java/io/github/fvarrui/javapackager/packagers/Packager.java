@@ -1,19 +1,34 @@
 package io.github.fvarrui.javapackager.packagers;
 
-import static org.apache.commons.collections4.CollectionUtils.addIgnoreNull;
 import static org.apache.commons.io.FilenameUtils.getExtension;
+import static org.apache.commons.lang3.StringUtils.capitalize;
 import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
 
 import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
+import io.github.fvarrui.javapackager.model.CdsConfig;
+import io.github.fvarrui.javapackager.model.CompressionConfig;
+import io.github.fvarrui.javapackager.model.CompressionConfig.Format;
+import io.github.fvarrui.javapackager.model.CompressionOptions;
+import io.github.fvarrui.javapackager.model.JreOptimization;
 import io.github.fvarrui.javapackager.model.Platform;
+import io.github.fvarrui.javapackager.model.StagingMode;
+import io.github.fvarrui.javapackager.utils.CacheUtils;
+import io.github.fvarrui.javapackager.utils.DownloadManager;
+import io.github.fvarrui.javapackager.utils.FileTreeIndex;
 import io.github.fvarrui.javapackager.utils.FileUtils;
+import io.github.fvarrui.javapackager.utils.Fingerprint;
 import io.github.fvarrui.javapackager.utils.IconUtils;
 import io.github.fvarrui.javapackager.utils.Logger;
+import io.github.fvarrui.javapackager.utils.Metrics;
 import io.github.fvarrui.javapackager.utils.VelocityUtils;
 
 /**
@@ -23,9 +38,13 @@ public abstract class Packager extends PackagerSettings {
 
 	public static final String DEFAULT_ORGANIZATION_NAME = "ACME";
 
+	// settings which change how or where artifacts are generated, but not their content
+	private static final List<String> UNFINGERPRINTED_SETTINGS = Arrays.asList("threads", "stagingMode", "cacheDir", "incremental", "targets", "jfrEvents", "offline", "downloadMirrors", "cacheMaxSize");
+
 	// artifact generators
 	protected List<ArtifactGenerator<?>> installerGenerators = new ArrayList<>();
 	private final BundleJre generateJre = new BundleJre();
+	private final GenerateCdsArchive generateCdsArchive = new GenerateCdsArchive();
 
 	// internal generic properties (setted in "createAppStructure/createApp")
 	protected File appFolder;
@@ -41,9 +60,25 @@ public abstract class Packager extends PackagerSettings {
 	protected File jreDestinationFolder;
 	protected File resourcesDestinationFolder;
 
+	// class data sharing archive generated into the bundled JRE (setted in "createApp")
+	protected File cdsArchive;
+
 	// processed classpaths list
 	protected List<String> classpaths = new ArrayList<>();
 
+	// dependencies shared by all packagers of a matrix build (setted in "useSharedArtifacts")
+	private File sharedLibsFolder;
+
+	// app folder index shared by all generators (setted in "createApp")
+	private FileTreeIndex appIndex;
+
+	// incremental packaging (setted in "init/createApp")
+	private IncrementalState incrementalState;
+	private String appFingerprint;
+
+	// generated installers and bundles (setted in "generateInstallers/createBundles")
+	private final List<File> artifacts = new ArrayList<>();
+
 	// ===============================================
 
 	public File getAppFolder() {
@@ -82,10 +117,66 @@ public abstract class Packager extends PackagerSettings {
 		return jreDestinationFolder;
 	}
 
+	public File getResourcesDestinationFolder() {
+		return resourcesDestinationFolder;
+	}
+
 	public File getBootstrapFile() {
 		return bootstrapFile;
 	}
 
+	public FileTreeIndex getAppIndex() {
+		return appIndex;
+	}
+
+	public File getCdsArchive() {
+		return cdsArchive;
+	}
+
+	/**
+	 * Get the JVM option which makes the launcher use the class data sharing
+	 * archive (used from templates)
+	 * @return JVM option with the archive path relative to the working directory, or null if there's no archive
+	 */
+	public String getCdsVmArg() {
+		if (cdsArchive == null) {
+			return null;
+		}
+		String option = cdsArchive.getName().endsWith(".aot") ? "AOTCache" : "SharedArchiveFile";
+		String path = resourcesDestinationFolder.toPath().relativize(cdsArchive.toPath()).toString().replace(File.separatorChar, '/');
+		return "-XX:" + option + "=" + path;
+	}
+
+	/**
+	 * Get resolved compression options of an artifact format
+	 * @param format Artifact format
+	 * @return Compression options (algorithm, level and threads)
+	 */
+	public CompressionOptions getCompressionOptions(Format format) {
+		return compression.resolve(format, threads);
+	}
+
+	/**
+	 * Get resolved compression options of an artifact format (used from templates)
+	 * @param format Artifact format name
+	 * @return Compression options (algorithm, level and threads)
+	 */
+	public CompressionOptions getCompressionOptions(String format) {
+		return getCompressionOptions(Format.valueOf(format));
+	}
+
+	public IncrementalState getIncrementalState() {
+		return incrementalState;
+	}
+
+	public String getAppFingerprint() {
+		return appFingerprint;
+	}
+
+	public List<File> getArtifacts() {
+		return artifacts;
+	}
+
 	// ===============================================
 
 	public Packager() {
@@ -104,6 +195,25 @@ public abstract class Packager extends PackagerSettings {
 		// init velocity utils
 		VelocityUtils.init(this);
 
+		// uses ~/.javapackager/cache as cache dir, if it's not specified
+		if (cacheDir == null) {
+			cacheDir = new File(System.getProperty("user.home"), ".javapackager/cache");
+		}
+
+		// limits cache size to 2 GB, if not specified
+		if (cacheMaxSize == null) {
+			cacheMaxSize = 2048L;
+		}
+
+		// init cache utils
+		CacheUtils.init(this);
+
+		// init metrics utils
+		Metrics.init(this);
+
+		// init download manager
+		DownloadManager.init(this);
+
 		// using name as displayName, if it's not specified
 		displayName = defaultIfBlank(displayName, name);
 
@@ -121,6 +231,39 @@ public abstract class Packager extends PackagerSettings {
 			platform = Platform.getCurrentPlatform();
 		}
 
+		// uses as many threads as available processors, if not specified
+		if (threads == null || threads < 1) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+
+		// uses balanced compression profile, if not specified
+		if (compression == null) {
+			compression = new CompressionConfig();
+		}
+
+		// doesn't generate class data sharing archives, if not specified
+		if (cds == null) {
+			cds = new CdsConfig();
+		}
+
+		// uses balanced JRE optimization preset, if not specified
+		if (jreOptimization == null) {
+			jreOptimization = new JreOptimization();
+		}
+
+		// copies files into the app folder, if staging mode is not specified
+		if (stagingMode == null) {
+			stagingMode = StagingMode.copy;
+		}
+
+		// doesn't skip unchanged stages, if not specified
+		if (incremental == null) {
+			incremental = false;
+		}
+		if (incremental && incrementalState == null) {
+			incrementalState = new IncrementalState(new File(outputDirectory, "assets/incremental.properties"));
+		}
+
 		// sets jdkPath by default if not specified
 		if (jdkPath == null) {
 			jdkPath = new File(System.getProperty("java.home"));
@@ -140,7 +283,10 @@ public abstract class Packager extends PackagerSettings {
 			throw new Exception("Invalid name specified: " + name, e);
 		}
 
-		doInit();
+		// platform specific configs may be shared by several packagers running in parallel
+		synchronized (Packager.class) {
+			doInit();
+		}
 
 		// removes not necessary platform specific configs
 		switch (platform) {
@@ -210,9 +356,9 @@ public abstract class Packager extends PackagerSettings {
 			if (!r.exists()) {
 				throw new Exception("Additional resource " + r + " doesn't exist");
 			} else if (r.isDirectory()) {
-				FileUtils.copyFolderToFolder(r, destination);
+				FileUtils.copyFolderToFolder(r, destination, stagingMode);
 			} else if (r.isFile()) {
-				FileUtils.copyFileToFolder(r, destination);
+				FileUtils.copyFileToFolder(r, destination, stagingMode);
 			}
 		}
 
@@ -329,22 +475,54 @@ public abstract class Packager extends PackagerSettings {
 		Logger.infoIndent("Creating bundles ...");
 
 		if (createZipball) {
-			File zipball = Context.getContext().createZipball(this);
-			Logger.info("Zipball created: " + zipball);
+			File zipball = getUpToDateOutput("zipball");
+			if (zipball == null) {
+				zipball = Context.getContext().createZipball(this);
+				updateIncrementalState("zipball", zipball);
+				Logger.info("Zipball created: " + zipball);
+			}
 			bundles.add(zipball);
 		}
 
 		if (createTarball) {
-			File tarball = Context.getContext().createTarball(this);
-			Logger.info("Tarball created: " + tarball);
+			File tarball = getUpToDateOutput("tarball");
+			if (tarball == null) {
+				tarball = Context.getContext().createTarball(this);
+				updateIncrementalState("tarball", tarball);
+				Logger.info("Tarball created: " + tarball);
+			}
 			bundles.add(tarball);
 		}
 
+		artifacts.addAll(bundles);
+
 		Logger.infoUnindent("Bundles created!");
 
 		return bundles;
 	}
 
+	/**
+	 * Generating binary delta patches from the previous release artifacts to the
+	 * generated installers and bundles
+	 * 
+	 * @return Folder with the patches and their manifest, or null if there's no previous release
+	 * @throws Exception Process failed
+	 */
+	public File generateDelta() throws Exception {
+
+		if (previousReleaseDir == null) {
+			return null;
+		}
+
+		Logger.infoIndent("Generating delta patches ...");
+
+		File delta = Context.getContext().generateDelta(this);
+
+		Logger.infoUnindent("Delta patches generated! " + delta);
+
+		return delta;
+	}
+
 	private void createAppStructure() throws Exception {
 
 		Logger.infoIndent("Creating app structure ...");
@@ -391,7 +569,16 @@ public abstract class Packager extends PackagerSettings {
 
 		// copies all dependencies to Java folder
 		Logger.infoIndent("Copying all dependencies ...");
-		libsFolder = copyDependencies ? Context.getContext().copyDependencies(this) : null;
+		if (!copyDependencies) {
+			libsFolder = null;
+		} else if (sharedLibsFolder != null) {
+			libsFolder = new File(jarFileDestinationFolder, sharedLibsFolder.getName());
+			if (sharedLibsFolder.isDirectory()) {
+				FileUtils.copyFolderToFolder(sharedLibsFolder, jarFileDestinationFolder, stagingMode);
+			}
+		} else {
+			libsFolder = Context.getContext().copyDependencies(this);
+		}
 		Logger.infoUnindent("Dependencies copied to " + libsFolder + "!");
 
 		// creates a runnable jar file
@@ -409,8 +596,30 @@ public abstract class Packager extends PackagerSettings {
 		// embeds a JRE if is required
 		generateJre.apply(this);
 
+		// resolves the class data sharing archive before launchers are generated
+		cdsArchive = generateCdsArchive.resolveArchive(this);
+
 		File appFile = doCreateApp();
 
+		// trains the app to generate the class data sharing archive, or removes its option from launchers if it fails
+		if (cdsArchive != null && generateCdsArchive.apply(this) == null) {
+			String cdsVmArg = getCdsVmArg();
+			cdsArchive = null;
+			doRemoveCdsVmArg(cdsVmArg);
+		}
+
+		// signs the app once it's complete
+		doSignApp();
+
+		// indexes the app folder once, so generators don't have to walk it again
+		appIndex = FileTreeIndex.build(appFolder);
+		Logger.info("App folder indexed: " + appIndex.getEntries().size() + " entries, " + appIndex.getTotalSize() + " bytes");
+
+		// fingerprints everything installers and bundles are generated from
+		if (incremental) {
+			appFingerprint = computeAppFingerprint();
+		}
+
 		Logger.infoUnindent("App created in " + appFolder.getAbsolutePath() + "!");
 
 		return appFile;
@@ -431,32 +640,134 @@ public abstract class Packager extends PackagerSettings {
 		// creates folder for intermmediate assets if it doesn't exist
 		assetsFolder = FileUtils.mkdir(outputDirectory, "assets");
 
-		// invokes installer producers
-		
-		for (ArtifactGenerator<?> generator : Context.getContext().getInstallerGenerators(platform)) {
-			try {
-				Logger.infoIndent("Generating " + generator.getArtifactName() + "...");
-				File artifact = generator.apply(this);
-				if (artifact != null) {
-					addIgnoreNull(installers, artifact);
-					Logger.infoUnindent(generator.getArtifactName() + " generated in " + artifact + "!");
-				} else {
-					Logger.warnUnindent(generator.getArtifactName() + " NOT generated!!!");
-				}
-			} catch (Exception e) {
-				Logger.errorUnindent(generator.getArtifactName() + " generation failed due to: " + e.getMessage(), e);
-			}
-		}
+		// invokes installer producers concurrently, honouring their dependencies
+		List<ArtifactGenerator<?>> generators = new ArrayList<>(Context.getContext().getInstallerGenerators(platform));
+		installers.addAll(new ArtifactGeneratorExecutor(threads).execute(this, generators));
+		artifacts.addAll(installers);
 
 		Logger.infoUnindent("Installers generated! " + installers);
 
 		return installers;
 	}
 
+	/**
+	 * Creates the platform independent artifacts (license, dependencies and
+	 * runnable jar) once, so they can be shared by all packagers of a matrix build
+	 * @param sharedFolder Folder where shared artifacts are created
+	 * @throws Exception If something went wrong
+	 */
+	void createSharedArtifacts(File sharedFolder) throws Exception {
+
+		Logger.infoIndent("Creating shared artifacts ...");
+
+		init();
+
+		if (sharedFolder.exists()) {
+			FileUtils.removeFolder(sharedFolder);
+		}
+		assetsFolder = FileUtils.mkdir(sharedFolder, "assets");
+		jarFileDestinationFolder = sharedFolder;
+		outputDirectory = sharedFolder;
+
+		// locates license file
+		licenseFile = resolveLicense(licenseFile);
+
+		// copies all dependencies to shared folder
+		libsFolder = copyDependencies ? Context.getContext().copyDependencies(this) : null;
+
+		// creates a runnable jar file
+		if (runnableJar == null) {
+			jarFile = Context.getContext().createRunnableJar(this);
+		} else if (runnableJar.exists()) {
+			jarFile = runnableJar;
+		} else {
+			throw new Exception("Runnable JAR doesn't exist: " + runnableJar);
+		}
+
+		Logger.infoUnindent("Shared artifacts created in " + sharedFolder + "!");
+
+	}
+
+	/**
+	 * Uses the artifacts created once by another packager, instead of creating
+	 * them again
+	 * @param shared Packager which created the shared artifacts
+	 */
+	void useSharedArtifacts(Packager shared) {
+		licenseFile = shared.licenseFile;
+		runnableJar = shared.jarFile;
+		sharedLibsFolder = shared.libsFolder;
+	}
+
+	/**
+	 * Computes a fingerprint of the app and all the settings and files installers
+	 * and bundles are generated from (class data sharing archives are excluded,
+	 * as they're not reproducible)
+	 * @return App fingerprint
+	 * @throws Exception If some file cannot be read
+	 */
+	private String computeAppFingerprint() throws Exception {
+		Logger.info("Computing app fingerprint ...");
+		Fingerprint fingerprint = new Fingerprint()
+				.add(CacheUtils.getPluginVersion());
+		// settings are added by name, but the ones which don't change the artifacts
+		List<Field> settings = new ArrayList<>(Arrays.asList(PackagerSettings.class.getDeclaredFields()));
+		settings.sort(Comparator.comparing(Field::getName));
+		for (Field setting : settings) {
+			if (!Modifier.isStatic(setting.getModifiers()) && !UNFINGERPRINTED_SETTINGS.contains(setting.getName())) {
+				fingerprint.add(setting.getName() + "=" + setting.get(this));
+			}
+		}
+		fingerprint
+				.addIndex(appIndex, entry -> GenerateCdsArchive.isArchive(entry.getFile()))
+				.addFile(iconFile)
+				.addFile(licenseFile)
+				.addFile(assetsDir);
+		return fingerprint.get();
+	}
+
+	/**
+	 * Get the previous output of a stage if its inputs didn't change
+	 * @param stage Stage name
+	 * @return Previous output, or null if the stage has to be executed
+	 */
+	private File getUpToDateOutput(String stage) {
+		if (incrementalState == null || appFingerprint == null) {
+			return null;
+		}
+		File output = incrementalState.getUpToDateOutput(stage, appFingerprint);
+		if (output != null) {
+			Logger.info(capitalize(stage) + " is up to date: " + output);
+		}
+		return output;
+	}
+
+	private void updateIncrementalState(String stage, File output) {
+		if (incrementalState != null && appFingerprint != null && output != null) {
+			incrementalState.update(stage, appFingerprint, output);
+		}
+	}
+
 	protected abstract void doCreateAppStructure() throws Exception;
 
 	public abstract File doCreateApp() throws Exception;
 
 	public abstract void doInit() throws Exception;
 
+	/**
+	 * Removes the class data sharing option from the launchers, as the archive
+	 * couldn't be generated
+	 * @param cdsVmArg JVM option the launchers were generated with
+	 * @throws Exception If launchers cannot be updated
+	 */
+	protected abstract void doRemoveCdsVmArg(String cdsVmArg) throws Exception;
+
+	/**
+	 * Signs the app once it's complete, so it's not modified afterwards (does
+	 * nothing by default)
+	 * @throws Exception If the app cannot be signed
+	 */
+	protected void doSignApp() throws Exception {
+	}
+
 }
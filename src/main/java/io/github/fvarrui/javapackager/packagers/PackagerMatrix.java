@@ -0,0 +1,156 @@
+package io.github.fvarrui.javapackager.packagers;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import io.github.fvarrui.javapackager.model.Platform;
+import io.github.fvarrui.javapackager.model.Target;
+import io.github.fvarrui.javapackager.utils.Logger;
+
+/**
+ * Packages an app for several targets (platform, arch and JDK) in parallel
+ * (or sequentially, if the building tool cannot be used from several threads).
+ * Platform independent artifacts (license, dependencies and runnable jar) are
+ * created only once and shared by all targets, and every target is packaged in
+ * its own output subfolder (e.g. linux-x64).
+ */
+public class PackagerMatrix {
+
+	/**
+	 * Creates a packager configured with the build settings
+	 */
+	@FunctionalInterface
+	public interface PackagerSupplier {
+
+		Packager create(Platform platform) throws Exception;
+
+	}
+
+	private final List<Target> targets;
+	private final PackagerSupplier supplier;
+
+	public PackagerMatrix(List<Target> targets, PackagerSupplier supplier) {
+		super();
+		this.targets = targets;
+		this.supplier = supplier;
+	}
+
+	/**
+	 * Creates apps, installers and bundles for all targets
+	 *
+	 * @return Generated artifacts
+	 * @throws Exception If any target failed
+	 */
+	public List<File> execute() throws Exception {
+
+		Logger.infoIndent("Packaging " + targets.size() + " targets ...");
+
+		// creates shared artifacts once
+		Packager shared = supplier.create(Platform.getCurrentPlatform());
+		File outputDirectory = shared.getOutputDirectory();
+		int threads = shared.getThreads() != null && shared.getThreads() > 0 ? shared.getThreads() : Runtime.getRuntime().availableProcessors();
+		boolean concurrent = Context.getContext().isConcurrent();
+		shared.createSharedArtifacts(new File(outputDirectory, "shared"));
+
+		// creates a packager for each target
+		List<Packager> packagers = new ArrayList<>();
+		Set<String> names = new HashSet<>();
+		for (Target target : targets) {
+			Packager packager = supplier.create(target.getPlatform());
+			if (target.getArch() != null) {
+				packager.arch(target.getArch());
+			}
+			if (target.getJdkPath() != null) {
+				packager.jdkPath(target.getJdkPath());
+			}
+			String name = packager.getPlatform() + "-" + packager.getArch();
+			if (!names.add(name)) {
+				throw new Exception("Duplicated target: " + name);
+			}
+			packager
+				.outputDirectory(new File(outputDirectory, name))
+				.threads(concurrent ? Math.max(1, threads / targets.size()) : threads)
+				.targets(null);
+			// lists are modified while packaging, so every packager needs its own copies
+			if (packager.getAdditionalResources() != null) {
+				packager.additionalResources(new ArrayList<>(packager.getAdditionalResources()));
+			}
+			if (packager.getTemplates() != null) {
+				packager.templates(new ArrayList<>(packager.getTemplates()));
+			}
+			packager.useSharedArtifacts(shared);
+			packagers.add(packager);
+		}
+
+		// packages all targets in parallel, or one by one in current thread
+		int indentation = Logger.getIndentation();
+		ExecutorService executor = concurrent ? Executors.newFixedThreadPool(Math.min(threads, packagers.size())) : null;
+		try {
+
+			List<Future<List<File>>> futures = new ArrayList<>();
+			for (Packager packager : packagers) {
+				Callable<List<File>> task = () -> {
+					Logger.setIndentation(indentation);
+					return packageTarget(packager);
+				};
+				if (executor != null) {
+					futures.add(executor.submit(task));
+				} else {
+					FutureTask<List<File>> future = new FutureTask<>(task);
+					future.run();
+					futures.add(future);
+				}
+			}
+
+			List<File> artifacts = new ArrayList<>();
+			List<String> failed = new ArrayList<>();
+			for (int i = 0; i < futures.size(); i++) {
+				Packager packager = packagers.get(i);
+				try {
+					artifacts.addAll(futures.get(i).get());
+				} catch (ExecutionException e) {
+					Logger.error(packager.getPlatform() + "-" + packager.getArch() + " packaging failed due to: " + e.getCause().getMessage(), e.getCause());
+					failed.add(packager.getPlatform() + "-" + packager.getArch());
+				}
+			}
+			if (!failed.isEmpty()) {
+				Logger.errorUnindent("Packaging failed for targets: " + failed);
+				throw new Exception("Packaging failed for targets: " + failed);
+			}
+
+			Logger.infoUnindent("All targets packaged! " + artifacts);
+
+			return artifacts;
+
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+
+	}
+
+	private List<File> packageTarget(Packager packager) throws Exception {
+		Logger.infoIndent("Packaging target " + packager.getPlatform() + "-" + packager.getArch() + " ...");
+		List<File> artifacts = new ArrayList<>();
+		artifacts.add(packager.createApp());
+		artifacts.addAll(packager.generateInstallers());
+		artifacts.addAll(packager.createBundles());
+		File delta = packager.generateDelta();
+		if (delta != null) {
+			artifacts.add(delta);
+		}
+		Logger.infoUnindent("Target " + packager.getPlatform() + "-" + packager.getArch() + " packaged!");
+		return artifacts;
+	}
+
+}
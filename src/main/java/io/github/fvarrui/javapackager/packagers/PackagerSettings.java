@@ -9,12 +9,17 @@ import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 
 import io.github.fvarrui.javapackager.model.Arch;
+import io.github.fvarrui.javapackager.model.CdsConfig;
+import io.github.fvarrui.javapackager.model.CompressionConfig;
 import io.github.fvarrui.javapackager.model.FileAssociation;
+import io.github.fvarrui.javapackager.model.JreOptimization;
 import io.github.fvarrui.javapackager.model.LinuxConfig;
 import io.github.fvarrui.javapackager.model.MacConfig;
 import io.github.fvarrui.javapackager.model.Manifest;
 import io.github.fvarrui.javapackager.model.Platform;
 import io.github.fvarrui.javapackager.model.Scripts;
+import io.github.fvarrui.javapackager.model.StagingMode;
+import io.github.fvarrui.javapackager.model.Target;
 import io.github.fvarrui.javapackager.model.Template;
 import io.github.fvarrui.javapackager.model.WindowsConfig;
 
@@ -71,6 +76,20 @@ public class PackagerSettings {
 	protected Scripts scripts;
 	protected Arch arch;
 	protected List<Template> templates;
+	protected Integer threads;
+	protected StagingMode stagingMode;
+	protected File cacheDir;
+	protected Boolean incremental;
+	protected List<Target> targets;
+	protected Boolean jfrEvents;
+	protected Boolean offline;
+	protected List<String> downloadMirrors;
+	protected CompressionConfig compression;
+	protected Boolean createZsync;
+	protected File previousReleaseDir;
+	protected CdsConfig cds;
+	protected JreOptimization jreOptimization;
+	protected Long cacheMaxSize;
 	
 	/**
 	 * Get packaging JDK
@@ -432,6 +451,118 @@ public class PackagerSettings {
 		return templates;
 	}
 
+	/**
+	 * Get max number of threads used to run packaging tasks in parallel
+	 * @return Number of threads
+	 */
+	public Integer getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Get how files are staged into the app folder
+	 * @return Staging mode
+	 */
+	public StagingMode getStagingMode() {
+		return stagingMode;
+	}
+
+	/**
+	 * Get local cache directory
+	 * @return Cache directory
+	 */
+	public File getCacheDir() {
+		return cacheDir;
+	}
+
+	/**
+	 * Get if stages whose inputs didn't change are skipped
+	 * @return true if incremental packaging is enabled
+	 */
+	public Boolean getIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Get packaging targets
+	 * @return Packaging targets (platform, arch and JDK) of a matrix build
+	 */
+	public List<Target> getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Get if JDK Flight Recorder events are emitted
+	 * @return true if packaging stages emit JFR events
+	 */
+	public Boolean getJfrEvents() {
+		return jfrEvents;
+	}
+
+	/**
+	 * Get if offline mode is enabled
+	 * @return true if only cached downloads are used
+	 */
+	public Boolean getOffline() {
+		return offline;
+	}
+
+	/**
+	 * Get download mirrors
+	 * @return Base URLs tried before the original download URLs
+	 */
+	public List<String> getDownloadMirrors() {
+		return downloadMirrors;
+	}
+
+	/**
+	 * Get compression profile and per-format overrides
+	 * @return Compression configuration
+	 */
+	public CompressionConfig getCompression() {
+		return compression;
+	}
+
+	/**
+	 * Get create zsync
+	 * @return Create zsync control files
+	 */
+	public Boolean getCreateZsync() {
+		return createZsync;
+	}
+
+	/**
+	 * Get previous release folder
+	 * @return Previous release folder
+	 */
+	public File getPreviousReleaseDir() {
+		return previousReleaseDir;
+	}
+
+	/**
+	 * Get class data sharing configuration
+	 * @return Class data sharing configuration
+	 */
+	public CdsConfig getCds() {
+		return cds;
+	}
+
+	/**
+	 * Get bundled JRE jlink options
+	 * @return Bundled JRE jlink options
+	 */
+	public JreOptimization getJreOptimization() {
+		return jreOptimization;
+	}
+
+	/**
+	 * Get max size of the cache, in megabytes
+	 * @return Max cache size in megabytes, or 0 if it's not limited
+	 */
+	public Long getCacheMaxSize() {
+		return cacheMaxSize;
+	}
+
 	// fluent api
 
 	/**
@@ -896,6 +1027,146 @@ public class PackagerSettings {
 		this.templates = templates;
 		return this;
 	}
+	
+	/**
+	 * Set max number of threads used to run packaging tasks in parallel
+	 * @param threads Number of threads
+	 * @return Packager settings
+	 */
+	public PackagerSettings threads(Integer threads) {
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * Set how files are staged into the app folder
+	 * @param stagingMode Staging mode
+	 * @return Packager settings
+	 */
+	public PackagerSettings stagingMode(StagingMode stagingMode) {
+		this.stagingMode = stagingMode;
+		return this;
+	}
+
+	/**
+	 * Set local cache directory
+	 * @param cacheDir Cache directory
+	 * @return Packager settings
+	 */
+	public PackagerSettings cacheDir(File cacheDir) {
+		this.cacheDir = cacheDir;
+		return this;
+	}
+
+	/**
+	 * Set if stages whose inputs didn't change are skipped
+	 * @param incremental true if incremental packaging is enabled
+	 * @return Packager settings
+	 */
+	public PackagerSettings incremental(Boolean incremental) {
+		this.incremental = incremental;
+		return this;
+	}
+
+	/**
+	 * Set packaging targets
+	 * @param targets Packaging targets (platform, arch and JDK) of a matrix build
+	 * @return Packager settings
+	 */
+	public PackagerSettings targets(List<Target> targets) {
+		this.targets = targets;
+		return this;
+	}
+
+	/**
+	 * Set if JDK Flight Recorder events are emitted
+	 * @param jfrEvents true if packaging stages emit JFR events
+	 * @return Packager settings
+	 */
+	public PackagerSettings jfrEvents(Boolean jfrEvents) {
+		this.jfrEvents = jfrEvents;
+		return this;
+	}
+
+	/**
+	 * Set if offline mode is enabled
+	 * @param offline true if only cached downloads are used
+	 * @return Packager settings
+	 */
+	public PackagerSettings offline(Boolean offline) {
+		this.offline = offline;
+		return this;
+	}
+
+	/**
+	 * Set download mirrors
+	 * @param downloadMirrors Base URLs tried before the original download URLs
+	 * @return Packager settings
+	 */
+	public PackagerSettings downloadMirrors(List<String> downloadMirrors) {
+		this.downloadMirrors = downloadMirrors;
+		return this;
+	}
+
+	/**
+	 * Set compression profile and per-format overrides
+	 * @param compression Compression configuration
+	 * @return Packager settings
+	 */
+	public PackagerSettings compression(CompressionConfig compression) {
+		this.compression = compression;
+		return this;
+	}
+
+	/**
+	 * Set create zsync
+	 * @param createZsync Create zsync control files
+	 * @return Packager settings
+	 */
+	public PackagerSettings createZsync(Boolean createZsync) {
+		this.createZsync = createZsync;
+		return this;
+	}
+
+	/**
+	 * Set previous release folder
+	 * @param previousReleaseDir Previous release folder
+	 * @return Packager settings
+	 */
+	public PackagerSettings previousReleaseDir(File previousReleaseDir) {
+		this.previousReleaseDir = previousReleaseDir;
+		return this;
+	}
+
+	/**
+	 * Set class data sharing configuration
+	 * @param cds Class data sharing configuration
+	 * @return Packager settings
+	 */
+	public PackagerSettings cds(CdsConfig cds) {
+		this.cds = cds;
+		return this;
+	}
+
+	/**
+	 * Set bundled JRE jlink options
+	 * @param jreOptimization Bundled JRE jlink options
+	 * @return Packager settings
+	 */
+	public PackagerSettings jreOptimization(JreOptimization jreOptimization) {
+		this.jreOptimization = jreOptimization;
+		return this;
+	}
+
+	/**
+	 * Set max size of the cache, in megabytes
+	 * @param cacheMaxSize Max cache size in megabytes, or 0 if it's not limited
+	 * @return Packager settings
+	 */
+	public PackagerSettings cacheMaxSize(Long cacheMaxSize) {
+		this.cacheMaxSize = cacheMaxSize;
+		return this;
+	}
 
 
 	// some helpful methods
@@ -944,7 +1215,7 @@ public class PackagerSettings {
 				+ useResourcesAsWorkingDir + ", assetsDir=" + assetsDir + ", classpath=" + classpath
 				+ ", jreMinVersion=" + jreMinVersion + ", manifest=" + manifest + ", additionalModulePaths="
 				+ additionalModulePaths + ", fileAssociations=" + fileAssociations + ", packagingJdk=" + packagingJdk
-				+ ", scripts=" + scripts + ", arch=" + arch + ", templates=" + templates + "]";
+				+ ", scripts=" + scripts + ", arch=" + arch + ", templates=" + templates + ", threads=" + threads + ", stagingMode=" + stagingMode + ", cacheDir=" + cacheDir + ", incremental=" + incremental + ", targets=" + targets + ", jfrEvents=" + jfrEvents + ", offline=" + offline + ", downloadMirrors=" + downloadMirrors + ", compression=" + compression + ", createZsync=" + createZsync + ", previousReleaseDir=" + previousReleaseDir + ", cds=" + cds + ", jreOptimization=" + jreOptimization + ", cacheMaxSize=" + cacheMaxSize + "]";
 	}
 	
 }
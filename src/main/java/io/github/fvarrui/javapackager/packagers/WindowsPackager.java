@@ -1,7 +1,10 @@
 package io.github.fvarrui.javapackager.packagers;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import net.jsign.WindowsSigner;
@@ -12,6 +15,9 @@ import io.github.fvarrui.javapackager.model.Platform;
 import io.github.fvarrui.javapackager.utils.Logger;
 import io.github.fvarrui.javapackager.utils.VelocityUtils;
 
+import static org.apache.commons.io.FileUtils.readLines;
+import static org.apache.commons.io.FileUtils.writeLines;
+
 /**
  * Packager for Windows
  */
@@ -99,5 +105,30 @@ public class WindowsPackager extends Packager {
 		
 		return appFolder;
 	}
+
+	@Override
+	protected void doRemoveCdsVmArg(String cdsVmArg) throws Exception {
+		switch (getWinConfig().getExeCreationTool()) {
+		case winrun4j:
+			// re-renders the ini file next to the executable
+			VelocityUtils.render("windows/ini.vtl", new File(appFolder, name + ".ini"), this);
+			break;
+		case why:
+			// removes the option from the launch options file, or the file if it was created for it
+			File launchOptionsFile = new File(appFolder, name + ".l4j.ini");
+			if (launchOptionsFile.exists()) {
+				List<String> launchOptions = readLines(launchOptionsFile, StandardCharsets.UTF_8);
+				launchOptions.removeIf(cdsVmArg::equals);
+				if (launchOptions.isEmpty()) {
+					Files.delete(launchOptionsFile.toPath());
+				} else {
+					writeLines(launchOptionsFile, StandardCharsets.UTF_8.name(), launchOptions, "\r\n");
+				}
+			}
+			break;
+		default:
+			break;
+		}
+	}
 	
 }
@@ -0,0 +1,161 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ar.ArArchiveEntry;
+import org.apache.commons.compress.archivers.ar.ArArchiveInputStream;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+/**
+ * Archive reading utils
+ */
+public class ArchiveUtils {
+
+	private static final int RPM_LEAD_SIZE = 96;
+	private static final int RPM_HEADER_MAGIC = 0x8EADE801;
+	private static final String LINK_PREFIX = "-> ";
+
+	/**
+	 * Lists files and symbolic links of an archive (zipball, tarball, DEB or
+	 * RPM package) with their content digests
+	 * @param archive Archive file
+	 * @return Entry names (with no leading "./" or "/") and their SHA-256 digests
+	 *         (or "-&gt; target" for links), or null if the archive format is not supported
+	 * @throws IOException If the archive cannot be read
+	 */
+	public static Map<String, String> listContents(File archive) throws IOException {
+		String name = archive.getName().toLowerCase();
+		if (name.endsWith(".zip")) {
+			return listZip(archive);
+		}
+		if (name.endsWith(".deb")) {
+			return listDeb(archive);
+		}
+		if (name.endsWith(".rpm")) {
+			return listRpm(archive);
+		}
+		if (name.matches(".*\\.(tar|tar\\.gz|tgz|tar\\.xz|tar\\.bz2)$")) {
+			try (InputStream in = decompress(Files.newInputStream(archive.toPath()))) {
+				return listArchive(new TarArchiveInputStream(in));
+			}
+		}
+		return null;
+	}
+
+	private static Map<String, String> listZip(File archive) throws IOException {
+		Map<String, String> contents = new TreeMap<>();
+		try (ZipFile zip = new ZipFile(archive)) {
+			Enumeration<ZipArchiveEntry> entries = zip.getEntries();
+			while (entries.hasMoreElements()) {
+				ZipArchiveEntry entry = entries.nextElement();
+				if (entry.isDirectory()) {
+					continue;
+				}
+				try (InputStream in = zip.getInputStream(entry)) {
+					contents.put(normalize(entry.getName()), entry.isUnixSymlink() ? LINK_PREFIX + IOUtils.toString(in, StandardCharsets.UTF_8) : digest(in));
+				}
+			}
+		}
+		return contents;
+	}
+
+	private static Map<String, String> listDeb(File archive) throws IOException {
+		try (ArArchiveInputStream ar = new ArArchiveInputStream(new BufferedInputStream(Files.newInputStream(archive.toPath())))) {
+			ArArchiveEntry entry;
+			while ((entry = ar.getNextArEntry()) != null) {
+				if (entry.getName().startsWith("data.tar")) {
+					return listArchive(new TarArchiveInputStream(decompress(CloseShieldInputStream.wrap(ar))));
+				}
+			}
+		}
+		throw new IOException("DEB package has no data: " + archive);
+	}
+
+	private static Map<String, String> listRpm(File archive) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(archive.toPath())))) {
+			IOUtils.skipFully(in, RPM_LEAD_SIZE);
+			// signature header (padded to 8 bytes) and header
+			int signatureSize = skipRpmHeader(in);
+			IOUtils.skipFully(in, (8 - signatureSize % 8) % 8);
+			skipRpmHeader(in);
+			return listArchive(new CpioArchiveInputStream(decompress(in)));
+		}
+	}
+
+	private static int skipRpmHeader(DataInputStream in) throws IOException {
+		if (in.readInt() != RPM_HEADER_MAGIC) {
+			throw new IOException("Invalid RPM header");
+		}
+		in.readInt();
+		int count = in.readInt();
+		int dataSize = in.readInt();
+		IOUtils.skipFully(in, 16L * count + dataSize);
+		return 16 + 16 * count + dataSize;
+	}
+
+	private static Map<String, String> listArchive(ArchiveInputStream archive) throws IOException {
+		Map<String, String> contents = new TreeMap<>();
+		ArchiveEntry entry;
+		while ((entry = archive.getNextEntry()) != null) {
+			if (entry.isDirectory()) {
+				continue;
+			}
+			if (entry instanceof TarArchiveEntry && ((TarArchiveEntry) entry).isSymbolicLink()) {
+				contents.put(normalize(entry.getName()), LINK_PREFIX + ((TarArchiveEntry) entry).getLinkName());
+			} else if (entry instanceof CpioArchiveEntry && ((CpioArchiveEntry) entry).isSymbolicLink()) {
+				contents.put(normalize(entry.getName()), LINK_PREFIX + IOUtils.toString(archive, StandardCharsets.UTF_8));
+			} else {
+				contents.put(normalize(entry.getName()), digest(archive));
+			}
+		}
+		return contents;
+	}
+
+	/**
+	 * Decompresses a stream if it's compressed (gzip, xz, bzip2, ...)
+	 */
+	private static InputStream decompress(InputStream in) throws IOException {
+		InputStream buffered = new BufferedInputStream(in);
+		try {
+			return new CompressorStreamFactory().createCompressorInputStream(buffered);
+		} catch (CompressorException e) {
+			return buffered;
+		}
+	}
+
+	private static String digest(InputStream in) throws IOException {
+		MessageDigest digest = HashUtils.getDigest("SHA-256");
+		byte[] buffer = new byte[64 * 1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			digest.update(buffer, 0, read);
+		}
+		return HashUtils.toHex(digest.digest());
+	}
+
+	private static String normalize(String name) {
+		return name.replaceFirst("^\\./", "").replaceFirst("^/+", "");
+	}
+
+}
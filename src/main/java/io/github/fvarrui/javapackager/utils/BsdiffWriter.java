@@ -0,0 +1,383 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+/**
+ * Binary delta patch writer in bsdiff format (BSDIFF40), so patches can be
+ * applied with bspatch. Matches are found with a rolling hash over blocks of
+ * the old file, scanning the new file in parallel chunks.
+ */
+public class BsdiffWriter {
+
+	private static final byte[] MAGIC = "BSDIFF40".getBytes(StandardCharsets.US_ASCII);
+	private static final int BLOCK_SIZE = 32;
+	private static final int HASH_MULTIPLIER = 0x01000193;
+	private static final int MIN_CHUNK_SIZE = 1024 * 1024;
+	private static final int MAX_COALESCED_GAP = 4096;
+	private static final int EMPTY = -1;
+
+	/**
+	 * Exact match between new and old files
+	 */
+	private static class Match {
+
+		private long newStart;
+		private long oldStart;
+		private long length;
+
+		private Match(long newStart, long oldStart, long length) {
+			this.newStart = newStart;
+			this.oldStart = oldStart;
+			this.length = length;
+		}
+
+	}
+
+	/**
+	 * bsdiff control entry: bytes added to the old ones, extra bytes, and
+	 * how far the old file position moves next
+	 */
+	private static class Control {
+
+		private final long newStart;
+		private final long oldStart;
+		private final long diffLength;
+		private final long extraLength;
+		private final long oldSeek;
+
+		private Control(long newStart, long oldStart, long diffLength, long extraLength, long oldSeek) {
+			this.newStart = newStart;
+			this.oldStart = oldStart;
+			this.diffLength = diffLength;
+			this.extraLength = extraLength;
+			this.oldSeek = oldSeek;
+		}
+
+	}
+
+	private final int threads;
+
+	/**
+	 * Creates a bsdiff patch writer
+	 * @param threads Number of threads used to find matches and compress the patch
+	 */
+	public BsdiffWriter(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Writes a patch which turns the old file into the new one
+	 * @param oldFile Old file
+	 * @param newFile New file
+	 * @param patchFile Patch file
+	 * @return Patch file
+	 * @throws IOException If files cannot be read (or they are bigger than 2 GiB) or the patch cannot be written
+	 */
+	public File write(File oldFile, File newFile, File patchFile) throws IOException {
+		File diffFile = new File(patchFile.getParentFile(), patchFile.getName() + ".diff");
+		File extraFile = new File(patchFile.getParentFile(), patchFile.getName() + ".extra");
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "bsdiff");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try (
+			FileChannel oldChannel = FileChannel.open(oldFile.toPath(), StandardOpenOption.READ);
+			FileChannel newChannel = FileChannel.open(newFile.toPath(), StandardOpenOption.READ)
+		) {
+			ByteBuffer oldData = map(oldChannel, oldFile);
+			ByteBuffer newData = map(newChannel, newFile);
+
+			// finds matches in parallel
+			int[] index = buildIndex(oldData);
+			int chunkSize = Math.max(MIN_CHUNK_SIZE, newData.limit() / (threads * 4) + 1);
+			List<Future<List<Match>>> chunks = new ArrayList<>();
+			for (int start = 0; start < newData.limit(); start += chunkSize) {
+				int chunkStart = start;
+				int chunkEnd = Math.min(newData.limit(), start + chunkSize);
+				chunks.add(executor.submit(() -> findMatches(index, oldData.duplicate(), newData.duplicate(), chunkStart, chunkEnd)));
+			}
+			List<Match> matches = new ArrayList<>();
+			for (Future<List<Match>> chunk : chunks) {
+				matches.addAll(chunk.get());
+			}
+			List<Control> controls = createControls(removeOverlaps(matches), newData.limit());
+
+			// diff and extra blocks are compressed at the same time
+			Future<?> diff = executor.submit(() -> writeDiff(controls, oldData.duplicate(), newData.duplicate(), diffFile));
+			Future<?> extra = executor.submit(() -> writeExtra(controls, newData.duplicate(), extraFile));
+			byte[] control = compressControls(controls);
+			diff.get();
+			extra.get();
+
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(patchFile.toPath()))) {
+				out.write(MAGIC);
+				writeOffset(out, control.length);
+				writeOffset(out, diffFile.length());
+				writeOffset(out, newData.limit());
+				out.write(control);
+				Files.copy(diffFile.toPath(), out);
+				Files.copy(extraFile.toPath(), out);
+			}
+
+			Logger.info("Patch created in " + patchFile.getAbsolutePath() + " (" + matches.size() + " matches, " + patchFile.length() + " bytes)");
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while creating patch");
+		} catch (ExecutionException e) {
+			throw new IOException("Patch creation failed: " + e.getCause().getMessage(), e.getCause());
+		} finally {
+			executor.shutdownNow();
+			Files.deleteIfExists(diffFile.toPath());
+			Files.deleteIfExists(extraFile.toPath());
+		}
+		return patchFile;
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, File file) throws IOException {
+		if (channel.size() > Integer.MAX_VALUE) {
+			throw new IOException(file + " is too big to be patched (" + channel.size() + " bytes)");
+		}
+		return channel.map(MapMode.READ_ONLY, 0, channel.size());
+	}
+
+	/**
+	 * Indexes the hash of every block of the old file (open addressing table
+	 * of hash and position pairs, keeping the first position of each hash)
+	 */
+	private static int[] buildIndex(ByteBuffer oldData) {
+		int blocks = oldData.limit() / BLOCK_SIZE;
+		int capacity = Integer.highestOneBit(Math.max(16, blocks * 2)) << 1;
+		int[] index = new int[capacity * 2];
+		Arrays.fill(index, EMPTY);
+		for (int i = 0; i < blocks; i++) {
+			int position = i * BLOCK_SIZE;
+			int hash = hash(oldData, position);
+			int slot = (mix(hash) & (capacity - 1)) * 2;
+			while (index[slot + 1] != EMPTY && index[slot] != hash) {
+				slot = (slot + 2) & (index.length - 1);
+			}
+			if (index[slot + 1] == EMPTY) {
+				index[slot] = hash;
+				index[slot + 1] = position;
+			}
+		}
+		return index;
+	}
+
+	private static int lookup(int[] index, int hash) {
+		int capacity = index.length / 2;
+		int slot = (mix(hash) & (capacity - 1)) * 2;
+		while (index[slot + 1] != EMPTY) {
+			if (index[slot] == hash) {
+				return index[slot + 1];
+			}
+			slot = (slot + 2) & (index.length - 1);
+		}
+		return EMPTY;
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int hash(ByteBuffer data, int position) {
+		int hash = 0;
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			hash = hash * HASH_MULTIPLIER + (data.get(position + i) & 0xFF);
+		}
+		return hash;
+	}
+
+	/**
+	 * Scans a chunk of the new file with a rolling hash, extending every block
+	 * found in the old file as much as possible
+	 */
+	private static List<Match> findMatches(int[] index, ByteBuffer oldData, ByteBuffer newData, int chunkStart, int chunkEnd) {
+		List<Match> matches = new ArrayList<>();
+		int oldLength = oldData.limit();
+		int newLength = newData.limit();
+		int outFactor = 1;
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			outFactor *= HASH_MULTIPLIER;
+		}
+		int lastEnd = chunkStart;
+		int position = chunkStart;
+		int hash = position + BLOCK_SIZE <= newLength ? hash(newData, position) : 0;
+		while (position < chunkEnd && position + BLOCK_SIZE <= newLength) {
+			int oldPosition = lookup(index, hash);
+			if (oldPosition != EMPTY && equals(oldData, oldPosition, newData, position, BLOCK_SIZE)) {
+				int start = position;
+				int oldStart = oldPosition;
+				while (start > lastEnd && oldStart > 0 && newData.get(start - 1) == oldData.get(oldStart - 1)) {
+					start--;
+					oldStart--;
+				}
+				int end = position + BLOCK_SIZE;
+				int oldEnd = oldPosition + BLOCK_SIZE;
+				while (end < newLength && oldEnd < oldLength && newData.get(end) == oldData.get(oldEnd)) {
+					end++;
+					oldEnd++;
+				}
+				matches.add(new Match(start, oldStart, end - start));
+				lastEnd = end;
+				position = end;
+				if (position + BLOCK_SIZE <= newLength) {
+					hash = hash(newData, position);
+				}
+				continue;
+			}
+			if (position + BLOCK_SIZE < newLength) {
+				hash = hash * HASH_MULTIPLIER - (newData.get(position) & 0xFF) * outFactor + (newData.get(position + BLOCK_SIZE) & 0xFF);
+			}
+			position++;
+		}
+		return matches;
+	}
+
+	private static boolean equals(ByteBuffer oldData, int oldPosition, ByteBuffer newData, int newPosition, int length) {
+		if (oldPosition + length > oldData.limit()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (oldData.get(oldPosition + i) != newData.get(newPosition + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Trims matches which overlap the previous one (matches found in a chunk
+	 * may extend into the next one)
+	 */
+	private static List<Match> removeOverlaps(List<Match> matches) {
+		List<Match> result = new ArrayList<>();
+		long end = 0;
+		for (Match match : matches) {
+			long overlap = end - match.newStart;
+			if (overlap >= match.length) {
+				continue;
+			}
+			if (overlap > 0) {
+				match.newStart += overlap;
+				match.oldStart += overlap;
+				match.length -= overlap;
+			}
+			result.add(match);
+			end = match.newStart + match.length;
+		}
+		return result;
+	}
+
+	/**
+	 * Creates control entries, coalescing matches with the same offset and a
+	 * small gap between them (the gap is diffed instead of added as extra)
+	 */
+	private static List<Control> createControls(List<Match> matches, long newLength) {
+		List<Control> controls = new ArrayList<>();
+		long diffNewStart = 0, diffOldStart = 0, diffLength = 0;
+		for (Match match : matches) {
+			long diffEnd = diffNewStart + diffLength;
+			long gap = match.newStart - diffEnd;
+			if (diffLength > 0 && gap <= MAX_COALESCED_GAP && match.oldStart - (diffOldStart + diffLength) == gap) {
+				diffLength = match.newStart + match.length - diffNewStart;
+				continue;
+			}
+			controls.add(new Control(diffNewStart, diffOldStart, diffLength, gap, match.oldStart - (diffOldStart + diffLength)));
+			diffNewStart = match.newStart;
+			diffOldStart = match.oldStart;
+			diffLength = match.length;
+		}
+		controls.add(new Control(diffNewStart, diffOldStart, diffLength, newLength - (diffNewStart + diffLength), 0));
+		return controls;
+	}
+
+	private static byte[] compressControls(List<Control> controls) throws IOException {
+		ByteArrayOutputStream control = new ByteArrayOutputStream();
+		try (OutputStream out = new BZip2CompressorOutputStream(control)) {
+			for (Control entry : controls) {
+				writeOffset(out, entry.diffLength);
+				writeOffset(out, entry.extraLength);
+				writeOffset(out, entry.oldSeek);
+			}
+		}
+		return control.toByteArray();
+	}
+
+	private static Void writeDiff(List<Control> controls, ByteBuffer oldData, ByteBuffer newData, File diffFile) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		try (OutputStream out = new BZip2CompressorOutputStream(new BufferedOutputStream(Files.newOutputStream(diffFile.toPath())))) {
+			for (Control control : controls) {
+				for (long done = 0; done < control.diffLength; ) {
+					int length = (int) Math.min(buffer.length, control.diffLength - done);
+					int newPosition = (int) (control.newStart + done);
+					long oldPosition = control.oldStart + done;
+					for (int i = 0; i < length; i++) {
+						long old = oldPosition + i;
+						byte oldByte = old >= 0 && old < oldData.limit() ? oldData.get((int) old) : 0;
+						buffer[i] = (byte) (newData.get(newPosition + i) - oldByte);
+					}
+					out.write(buffer, 0, length);
+					done += length;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static Void writeExtra(List<Control> controls, ByteBuffer newData, File extraFile) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		try (OutputStream out = new BZip2CompressorOutputStream(new BufferedOutputStream(Files.newOutputStream(extraFile.toPath())))) {
+			for (Control control : controls) {
+				long extraStart = control.newStart + control.diffLength;
+				for (long done = 0; done < control.extraLength; ) {
+					int length = (int) Math.min(buffer.length, control.extraLength - done);
+					ByteBuffer extra = newData.duplicate();
+					extra.position((int) (extraStart + done));
+					extra.get(buffer, 0, length);
+					out.write(buffer, 0, length);
+					done += length;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Writes an offset as bsdiff does (8 bytes, little-endian, sign in the highest bit)
+	 */
+	private static void writeOffset(OutputStream out, long offset) throws IOException {
+		long value = Math.abs(offset);
+		for (int i = 0; i < 8; i++) {
+			int b = (int) (value >>> (8 * i)) & 0xFF;
+			if (i == 7 && offset < 0) {
+				b |= 0x80;
+			}
+			out.write(b);
+		}
+	}
+
+}
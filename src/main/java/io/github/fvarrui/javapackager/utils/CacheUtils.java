@@ -0,0 +1,232 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FilenameUtils;
+
+import io.github.fvarrui.javapackager.packagers.Packager;
+
+/**
+ * Local cache utils. Entries are stored under the cache directory, grouped by
+ * kind, and named after a key (usually a hash of everything they depend on)
+ */
+public class CacheUtils {
+
+	// the cache is pruned at most once an hour (by any build sharing it)
+	private static final long PRUNE_INTERVAL = 60 * 60 * 1000L;
+
+	private static File cacheDir = new File(System.getProperty("user.home"), ".javapackager/cache");
+	private static String pluginVersion;
+
+	private CacheUtils() {}
+
+	public static void init(Packager packager) throws IOException {
+		if (packager.getCacheDir() != null) {
+			cacheDir = packager.getCacheDir();
+		}
+		if (packager.getCacheMaxSize() != null && packager.getCacheMaxSize() > 0) {
+			prune(packager.getCacheMaxSize() * 1024 * 1024);
+		}
+	}
+
+	/**
+	 * Removes least recently used entries until the cache doesn't exceed the max
+	 * size. Entries are moved away before being removed, so other builds never
+	 * see them half removed
+	 *
+	 * @param maxSize Max cache size in bytes
+	 * @throws IOException If an entry cannot be removed
+	 */
+	private static synchronized void prune(long maxSize) throws IOException {
+		File marker = new File(cacheDir, ".pruned");
+		if (marker.lastModified() > System.currentTimeMillis() - PRUNE_INTERVAL) {
+			return;
+		}
+		Files.createDirectories(cacheDir.toPath());
+		Files.write(marker.toPath(), new byte[0]);
+
+		// published entries of all kinds (temporary ones start with a dot)
+		List<File> entries = new ArrayList<>();
+		File[] kinds = cacheDir.listFiles(file -> file.isDirectory() && !file.getName().startsWith("."));
+		for (File kind : kinds != null ? kinds : new File[0]) {
+			File[] kindEntries = kind.listFiles(file -> !file.getName().startsWith("."));
+			if (kindEntries != null) {
+				entries.addAll(Arrays.asList(kindEntries));
+			}
+		}
+		Map<File, Long> sizes = new HashMap<>();
+		long size = 0;
+		for (File entry : entries) {
+			sizes.put(entry, getSize(entry));
+			size += sizes.get(entry);
+		}
+		if (size <= maxSize) {
+			return;
+		}
+
+		// least recently used first
+		entries.sort(Comparator.comparingLong(File::lastModified));
+		int removed = 0;
+		long freed = 0;
+		for (File entry : entries) {
+			if (size - freed <= maxSize) {
+				break;
+			}
+			File temp = getTempEntry(entry);
+			try {
+				Files.move(entry.toPath(), temp.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				// removed or in use by another build
+				continue;
+			}
+			FileTreeCopier.delete(temp.toPath());
+			freed += sizes.get(entry);
+			removed++;
+		}
+		Logger.info("Cache pruned: " + removed + " least recently used entries removed (" + freed / (1024 * 1024) + " MB)");
+	}
+
+	private static long getSize(File entry) throws IOException {
+		try (Stream<Path> files = Files.walk(entry.toPath())) {
+			return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+		}
+	}
+
+	/**
+	 * Get cache folder for a kind of entries, creating it if it doesn't exist
+	 *
+	 * @param kind Kind of cached entries (e.g. runtimes)
+	 * @return Cache folder
+	 */
+	public static File getCacheFolder(String kind) {
+		return FileUtils.mkdir(new File(cacheDir, kind));
+	}
+
+	/**
+	 * Get plugin version, including its jar size and modification time, so
+	 * changes in a snapshot also invalidate cached entries and previous outputs
+	 *
+	 * @return Plugin version
+	 */
+	public static synchronized String getPluginVersion() {
+		if (pluginVersion == null) {
+			pluginVersion = CacheUtils.class.getPackage().getImplementationVersion();
+			try {
+				File pluginJar = new File(CacheUtils.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+				pluginVersion += ":" + pluginJar.length() + ":" + pluginJar.lastModified();
+			} catch (Exception e) {
+				// plugin location unknown, so only its version is used
+			}
+		}
+		return pluginVersion;
+	}
+
+	/**
+	 * Get a plugin resource extracted in the cache. Resources are extracted only
+	 * once per plugin version, and verified against their checksum every time
+	 * they are used
+	 *
+	 * @param resource Resource path (e.g. /windows/WinRun4J64.exe)
+	 * @return Extracted resource file
+	 * @throws IOException If the resource cannot be extracted
+	 */
+	public static File getResource(String resource) throws IOException {
+		File entry = getEntry("resources", HashUtils.sha256(getPluginVersion(), resource));
+		File resourceFile = new File(entry, FilenameUtils.getName(resource));
+		File checksumFile = new File(entry, resourceFile.getName() + ".sha256");
+
+		// uses extracted resource if it's not corrupted
+		if (resourceFile.isFile() && checksumFile.isFile()) {
+			String checksum = new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8).trim();
+			if (checksum.equals(HashUtils.sha256(resourceFile))) {
+				return resourceFile;
+			}
+			Logger.warn("Cached resource " + resourceFile + " is corrupted, so it will be extracted again");
+			FileTreeCopier.delete(entry.toPath());
+		}
+
+		// extracts resource and its checksum
+		File temp = getTempEntry(entry);
+		File tempResourceFile = new File(temp, resourceFile.getName());
+		Files.createDirectories(temp.toPath());
+		try (InputStream in = CacheUtils.class.getResourceAsStream(resource)) {
+			if (in == null) {
+				throw new FileNotFoundException("Resource not found: " + resource);
+			}
+			Files.copy(in, tempResourceFile.toPath());
+			Files.write(new File(temp, checksumFile.getName()).toPath(), HashUtils.sha256(tempResourceFile).getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			FileTreeCopier.delete(temp.toPath());
+			throw e;
+		}
+		publish(temp, entry);
+		return resourceFile;
+	}
+
+	/**
+	 * Get a cache entry
+	 *
+	 * @param kind Kind of cached entry
+	 * @param key  Entry key
+	 * @return Cache entry file or folder (it may not exist)
+	 */
+	public static File getEntry(String kind, String key) {
+		File entry = new File(getCacheFolder(kind), key);
+		// marks the entry as recently used, so it's pruned last
+		if (entry.exists()) {
+			entry.setLastModified(System.currentTimeMillis());
+		}
+		return entry;
+	}
+
+	/**
+	 * Get a temporary file or folder next to a cache entry, where the entry can
+	 * be created before publishing it
+	 *
+	 * @param entry Cache entry
+	 * @return Temporary file
+	 */
+	public static File getTempEntry(File entry) {
+		return new File(entry.getParentFile(), "." + entry.getName() + "." + UUID.randomUUID() + ".tmp");
+	}
+
+	/**
+	 * Publishes a temporary file or folder as a cache entry atomically, so
+	 * incomplete entries are never seen. If the entry was published
+	 * concurrently, the temporary one is discarded.
+	 *
+	 * @param temp  Temporary file or folder
+	 * @param entry Cache entry
+	 * @return Cache entry
+	 * @throws IOException If the entry cannot be published
+	 */
+	public static File publish(File temp, File entry) throws IOException {
+		try {
+			Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (FileAlreadyExistsException e) {
+			FileTreeCopier.delete(temp.toPath());
+		} catch (IOException e) {
+			// non-empty directories cannot be replaced (DirectoryNotEmptyException on some platforms)
+			if (!entry.exists()) throw e;
+			FileTreeCopier.delete(temp.toPath());
+		}
+		return entry;
+	}
+
+}
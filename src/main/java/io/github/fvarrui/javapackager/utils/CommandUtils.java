@@ -35,46 +35,16 @@ public class CommandUtils {
 	}
 	
 	public static ExecutionResult executeWithResult(File workingDirectory, String executable, Object... arguments) throws IOException, CommandLineException {
-		ExecutionResult result = new ExecutionResult();
-		
-		StringBuffer outputBuffer = new StringBuffer();
-		StringBuffer errorBuffer = new StringBuffer();
-		
-		Commandline command = new Commandline();
-		command.setWorkingDirectory(workingDirectory);
-		command.setExecutable(executable);
-		command.createArguments(arguments);
-		command.toString();
-		
-		String commandLine = command.getCommandLineAsString();
-
-		Logger.info("Executing command: " + commandLine);
-
-		Process process = command.execute();
-
-		BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), CharsetUtil.getCommandLineCharset()));
-		BufferedReader error = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-		while (process.isAlive() || output.ready() || error.ready()) {
-			if (output.ready()) {
-				String outputLine = output.readLine();
-				Logger.info(outputLine);
-				outputBuffer.append(outputLine + "\n");
-			}
-			if (error.ready()) {
-				String errorLine = error.readLine();
-				Logger.error(errorLine);					
-				errorBuffer.append(errorLine + "\n");
-			}
-		}
-		output.close();
-		error.close();
+		return new ProcessRunner(executable, arguments)
+				.workingDirectory(workingDirectory)
+				.run();
+	}
 
-		result.setCommandLine(commandLine);
-		result.setOutput(outputBuffer.toString());
-		result.setError(errorBuffer.toString());
-		result.setExitCode(process.exitValue());
-			
-		return result;
+	public static ExecutionResult executeWithResult(File workingDirectory, long timeout, String executable, Object... arguments) throws IOException, CommandLineException {
+		return new ProcessRunner(executable, arguments)
+				.workingDirectory(workingDirectory)
+				.timeout(timeout)
+				.run();
 	}
 	
 	public static String run(String ... command) throws IOException {
@@ -0,0 +1,344 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import io.github.fvarrui.javapackager.utils.FileTreeIndex.Entry;
+
+/**
+ * DEB package writer. The control and data members are streamed straight into
+ * the ar container (member sizes are patched once they are written), and the
+ * md5sums of all files are computed in parallel before, so no temporary files
+ * are needed.
+ */
+public class DebWriter {
+
+	/**
+	 * File, folder or link to be packaged
+	 */
+	private static class DebFile {
+
+		private final String path;
+		private final int mode;
+		private final long size;
+		private final long lastModified;
+		private final Path source;
+		private final String linkTarget;
+		private final Callable<String> digester;
+		private Future<String> md5;
+
+		private DebFile(String path, int mode, long size, long lastModified, Path source, String linkTarget, Callable<String> digester) {
+			this.path = path;
+			this.mode = mode;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.source = source;
+			this.linkTarget = linkTarget;
+			this.digester = digester;
+		}
+
+	}
+
+	private final String control;
+	private final Map<String, DebFile> files = new TreeMap<>();
+	private String compression = "gzip";
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private int threads = 1;
+
+	/**
+	 * Creates a DEB writer
+	 * @param control Control file content (Installed-Size field is added if missing)
+	 */
+	public DebWriter(String control) {
+		this.control = control;
+	}
+
+	/**
+	 * Sets data member compression
+	 * @param compression Compression algorithm (none, gzip, xz or bzip2)
+	 * @param level Compression level (0-9, or -1 for default)
+	 * @param threads Number of threads used to compress data and digest files
+	 */
+	public void setCompression(String compression, int level, int threads) {
+		switch (compression.toLowerCase()) {
+		case "none":
+		case "gzip":
+		case "xz":
+		case "bzip2":
+			this.compression = compression.toLowerCase();
+			break;
+		default:
+			Logger.warn("Unsupported DEB compression algorithm '" + compression + "', using gzip");
+			this.compression = "gzip";
+		}
+		this.level = level;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Adds a folder
+	 * @param path Absolute path in the package
+	 * @param mode Unix permissions
+	 * @param lastModified Modification time
+	 */
+	public void addDirectory(String path, int mode, long lastModified) {
+		files.put(path, new DebFile(path, UnixStat.DIR_FLAG | mode, 0, lastModified, null, null, null));
+	}
+
+	/**
+	 * Adds an indexed file, reusing its digest if it was already computed
+	 * @param path Absolute path in the package
+	 * @param entry File entry
+	 * @param mode Unix permissions
+	 */
+	public void addFile(String path, Entry entry, int mode) {
+		files.put(path, new DebFile(path, UnixStat.FILE_FLAG | mode, entry.getSize(), entry.getLastModified(), entry.getPath(), null, () -> entry.getDigest("MD5")));
+	}
+
+	/**
+	 * Adds a file
+	 * @param path Absolute path in the package
+	 * @param file File
+	 * @param mode Unix permissions
+	 */
+	public void addFile(String path, File file, int mode) {
+		files.put(path, new DebFile(path, UnixStat.FILE_FLAG | mode, file.length(), file.lastModified(), file.toPath(), null, () -> HashUtils.hash("MD5", file)));
+	}
+
+	/**
+	 * Adds a symbolic link
+	 * @param path Absolute path in the package
+	 * @param target Link target
+	 * @param lastModified Modification time
+	 */
+	public void addLink(String path, String target, long lastModified) {
+		files.put(path, new DebFile(path, UnixStat.LINK_FLAG | 0777, 0, lastModified, null, target, null));
+	}
+
+	/**
+	 * Writes the DEB package
+	 * @param debFile DEB file
+	 * @throws IOException If any file cannot be read or the package cannot be written
+	 */
+	public void write(File debFile) throws IOException {
+		addParentDirectories();
+		List<DebFile> fileList = new ArrayList<>(files.values());
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "deb-digest");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try (FileChannel channel = FileChannel.open(debFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			// md5sums are listed in the control member, which goes before the data member
+			for (DebFile file : fileList) {
+				if (file.digester != null) {
+					file.md5 = executor.submit(file.digester);
+				}
+			}
+			byte[] controlTar = createControlTar(fileList);
+
+			OutputStream out = Channels.newOutputStream(channel);
+			out.write("!<arch>\n".getBytes(StandardCharsets.US_ASCII));
+			writeMember(channel, "debian-binary", member -> member.write("2.0\n".getBytes(StandardCharsets.US_ASCII)));
+			writeMember(channel, "control.tar.gz", member -> member.write(controlTar));
+			writeMember(channel, "data.tar" + getExtension(), member -> {
+				try (TarArchiveOutputStream tar = createTar(compress(CloseShieldOutputStream.wrap(member)))) {
+					writeData(tar, fileList);
+				}
+			});
+
+		} finally {
+			executor.shutdownNow();
+		}
+		Logger.info("DEB package created in " + debFile + " (" + fileList.size() + " files, data.tar" + getExtension() + ")");
+	}
+
+	/**
+	 * Adds missing parent folders (e.g. /usr/local/bin), as dpkg expects them
+	 */
+	private void addParentDirectories() {
+		long now = System.currentTimeMillis();
+		for (String path : new ArrayList<>(files.keySet())) {
+			String parent = path.substring(0, path.lastIndexOf('/'));
+			while (!parent.isEmpty() && !files.containsKey(parent)) {
+				addDirectory(parent, 0755, now);
+				parent = parent.substring(0, parent.lastIndexOf('/'));
+			}
+		}
+	}
+
+	private String getExtension() {
+		switch (compression) {
+		case "none": 	return "";
+		case "xz": 		return ".xz";
+		case "bzip2": 	return ".bz2";
+		default: 		return ".gz";
+		}
+	}
+
+	private OutputStream compress(OutputStream out) throws IOException {
+		switch (compression) {
+		case "none": 	return out;
+		case "xz": 		return new XZCompressorOutputStream(out, level < 0 ? 6 : level);
+		case "bzip2": 	return new BZip2CompressorOutputStream(out, level < 1 ? 9 : level);
+		default: 		return new ParallelGzipOutputStream(out, threads, level);
+		}
+	}
+
+	private TarArchiveOutputStream createTar(OutputStream out) {
+		TarArchiveOutputStream tar = new TarArchiveOutputStream(out);
+		tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+		tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+		return tar;
+	}
+
+	private byte[] createControlTar(List<DebFile> fileList) throws IOException {
+		StringBuilder md5sums = new StringBuilder();
+		long installedSize = 0;
+		for (DebFile file : fileList) {
+			if (file.md5 != null) {
+				md5sums.append(getMd5(file)).append("  ").append(file.path.substring(1)).append('\n');
+			}
+			installedSize += (file.size + 1023) / 1024;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (TarArchiveOutputStream tar = createTar(new GZIPOutputStream(bytes))) {
+			long now = System.currentTimeMillis();
+			putEntry(tar, "./control", 0644, now, getControl(installedSize).getBytes(StandardCharsets.UTF_8));
+			putEntry(tar, "./md5sums", 0644, now, md5sums.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+
+	private String getControl(long installedSize) {
+		if (control.contains("\nInstalled-Size:")) {
+			return control;
+		}
+		StringBuilder result = new StringBuilder();
+		for (String line : control.split("\n")) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			result.append(line).append('\n');
+			if (line.startsWith("Architecture:")) {
+				result.append("Installed-Size: ").append(installedSize).append('\n');
+			}
+		}
+		return result.toString();
+	}
+
+	private void writeData(TarArchiveOutputStream tar, List<DebFile> fileList) throws IOException {
+		for (DebFile file : fileList) {
+			TarArchiveEntry entry;
+			if (file.linkTarget != null) {
+				entry = new TarArchiveEntry("." + file.path, TarConstants.LF_SYMLINK);
+				entry.setLinkName(file.linkTarget);
+			} else if (file.source != null) {
+				entry = new TarArchiveEntry("." + file.path, true);
+				entry.setSize(file.size);
+			} else {
+				entry = new TarArchiveEntry("." + file.path + "/", true);
+			}
+			entry.setMode(file.mode);
+			entry.setModTime(file.lastModified);
+			setOwner(entry);
+			tar.putArchiveEntry(entry);
+			if (file.source != null) {
+				Files.copy(file.source, tar);
+			}
+			tar.closeArchiveEntry();
+		}
+	}
+
+	private void putEntry(TarArchiveOutputStream tar, String name, int mode, long lastModified, byte[] content) throws IOException {
+		TarArchiveEntry entry = new TarArchiveEntry(name, true);
+		entry.setMode(UnixStat.FILE_FLAG | mode);
+		entry.setModTime(lastModified);
+		entry.setSize(content.length);
+		setOwner(entry);
+		tar.putArchiveEntry(entry);
+		tar.write(content);
+		tar.closeArchiveEntry();
+	}
+
+	private void setOwner(TarArchiveEntry entry) {
+		entry.setUserId(0);
+		entry.setUserName("root");
+		entry.setGroupId(0);
+		entry.setGroupName("root");
+	}
+
+	private String getMd5(DebFile file) throws IOException {
+		try {
+			return file.md5.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while digesting " + file.source);
+		} catch (ExecutionException e) {
+			throw new IOException("Couldn't digest " + file.source + ": " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Member content writer
+	 */
+	private interface MemberWriter {
+		void write(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * Writes an ar member, streaming its content and patching its size in the
+	 * member header afterwards
+	 */
+	private void writeMember(FileChannel channel, String name, MemberWriter writer) throws IOException {
+		long headerPosition = channel.position();
+		long lastModified = System.currentTimeMillis() / 1000;
+		channel.write(ByteBuffer.wrap(getMemberHeader(name, lastModified, 0)));
+		CountingOutputStream member = new CountingOutputStream(new BufferedOutputStream(CloseShieldOutputStream.wrap(Channels.newOutputStream(channel))));
+		writer.write(member);
+		member.flush();
+		long size = member.getByteCount();
+		if (size % 2 != 0) {
+			channel.write(ByteBuffer.wrap(new byte[] { '\n' }));
+		}
+		channel.write(ByteBuffer.wrap(getMemberHeader(name, lastModified, size)), headerPosition);
+	}
+
+	private byte[] getMemberHeader(String name, long lastModified, long size) {
+		String header = String.format("%-16s%-12d%-6d%-6d%-8s%-10d`\n", name, lastModified, 0, 0, "100644", size);
+		return header.getBytes(StandardCharsets.US_ASCII);
+	}
+
+}
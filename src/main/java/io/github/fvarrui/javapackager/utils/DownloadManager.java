@@ -0,0 +1,317 @@
+package io.github.fvarrui.javapackager.utils;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import io.github.fvarrui.javapackager.packagers.Packager;
+
+/**
+ * Downloads files into a shared cache (${cacheDir}/downloads), so they are
+ * downloaded only once. Cached files are revalidated with ETag/Last-Modified
+ * (unless their checksum is pinned or offline mode is enabled), interrupted
+ * downloads are resumed with HTTP ranges and mirrors are tried before the
+ * original URL.
+ */
+public class DownloadManager {
+
+	private static final int TIMEOUT = 30000;
+	private static final int RETRIES = 3;
+
+	private static boolean offline = false;
+	private static List<String> mirrors = new ArrayList<>();
+	private static final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<>();
+
+	private DownloadManager() {}
+
+	public static synchronized void init(Packager packager) {
+		offline = packager.getOffline() != null && packager.getOffline();
+		mirrors = packager.getDownloadMirrors() != null ? new ArrayList<>(packager.getDownloadMirrors()) : new ArrayList<>();
+	}
+
+	/**
+	 * Downloads a file (or gets it from the cache) and copies it to a destination
+	 *
+	 * @param url  URL to download
+	 * @param dest Destination file
+	 * @throws IOException If the file cannot be downloaded
+	 */
+	public static void download(URL url, File dest) throws IOException {
+		File cachedFile = download(url, (String) null);
+		Files.createDirectories(dest.getAbsoluteFile().getParentFile().toPath());
+		FileTreeCopier.copy(cachedFile.toPath(), dest.toPath(), true);
+	}
+
+	/**
+	 * Downloads a file into the cache, or gets it from there if it's up to date
+	 *
+	 * @param url    URL to download
+	 * @param sha256 Expected SHA-256 checksum (null if it's not pinned)
+	 * @return Cached file
+	 * @throws IOException If the file cannot be downloaded or its checksum doesn't match
+	 */
+	public static File download(URL url, String sha256) throws IOException {
+		String key = HashUtils.sha256(url.toString());
+		File entry = CacheUtils.getEntry("downloads", key);
+		Files.createDirectories(entry.toPath());
+		// locked within this JVM and between processes sharing the cache
+		synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+			try (FileChannel lockChannel = FileChannel.open(new File(entry, ".lock").toPath(), CREATE, WRITE)) {
+				FileLock lock = lockChannel.lock();
+				try {
+					return download(url, sha256, entry);
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+
+	private static File download(URL url, String sha256, File entry) throws IOException {
+
+		File file = new File(entry, getFileName(url));
+		File partFile = new File(entry, file.getName() + ".part");
+		File metadataFile = new File(entry, "download.properties");
+		Properties metadata = load(metadataFile);
+
+		// checks cached file integrity
+		boolean cached = file.isFile() && metadata.getProperty("sha256") != null;
+		if (cached && !metadata.getProperty("sha256").equals(HashUtils.sha256(file))) {
+			Logger.warn("Cached download " + file + " is corrupted, so it will be downloaded again");
+			Files.delete(file.toPath());
+			cached = false;
+		}
+
+		// pinned files never change, so they don't need to be revalidated
+		if (cached && sha256 != null && sha256.equalsIgnoreCase(metadata.getProperty("sha256"))) {
+			Logger.info("Using cached download " + file);
+			return file;
+		}
+
+		if (offline) {
+			if (!cached) {
+				throw new IOException("Offline mode is enabled and " + url + " has not been downloaded yet");
+			}
+			verify(file, sha256, metadata.getProperty("sha256"));
+			Logger.info("Using cached download " + file + " (offline mode)");
+			return file;
+		}
+
+		IOException lastError = null;
+		for (URL source : getSources(url)) {
+			for (int attempt = 1; attempt <= RETRIES; attempt++) {
+				try {
+					boolean modified = fetch(source, cached, partFile, metadata, metadataFile);
+					if (!modified) {
+						verify(file, sha256, metadata.getProperty("sha256"));
+						Logger.info("Cached download " + file + " is up to date");
+						return file;
+					}
+					String checksum = HashUtils.sha256(partFile);
+					if (sha256 != null && !sha256.equalsIgnoreCase(checksum)) {
+						Files.delete(partFile.toPath());
+						throw new UnrecoverableException("Checksum mismatch for " + source + ": expected " + sha256 + " but was " + checksum);
+					}
+					Files.move(partFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					metadata.setProperty("sha256", checksum);
+					metadata.setProperty("source", source.toString());
+					setOrRemove(metadata, "etag", (String) metadata.remove("part.etag"));
+					setOrRemove(metadata, "lastModified", (String) metadata.remove("part.lastModified"));
+					metadata.remove("part.source");
+					save(metadata, metadataFile);
+					Logger.info("File downloaded from [" + source + "] to [" + file + "]");
+					return file;
+				} catch (UnrecoverableException | FileNotFoundException e) {
+					// retrying the same source would fail again, so next one is tried
+					lastError = e;
+					Logger.warn(e.getMessage());
+					break;
+				} catch (IOException e) {
+					lastError = e;
+					Logger.warn("Download from " + source + " failed (attempt " + attempt + " of " + RETRIES + "): " + e.getMessage());
+					ThreadUtils.sleep(1000L * attempt);
+				}
+			}
+		}
+
+		// a stale cached file is better than nothing
+		if (cached && sha256 == null) {
+			Logger.warn("Using cached download " + file + " as it could not be revalidated");
+			return file;
+		}
+		throw new IOException("File could not be downloaded from " + url, lastError);
+	}
+
+	/**
+	 * Fetches a file into the part file, resuming a previous download if possible
+	 *
+	 * @return false if the cached file is still valid, true if it was downloaded
+	 */
+	private static boolean fetch(URL source, boolean cached, File partFile, Properties metadata, File metadataFile) throws IOException {
+
+		URLConnection connection = source.openConnection();
+		connection.setConnectTimeout(TIMEOUT);
+		connection.setReadTimeout(TIMEOUT);
+
+		// non-HTTP sources (e.g. file://) are only validated by their modification time
+		if (!(connection instanceof HttpURLConnection)) {
+			String lastModified = String.valueOf(connection.getLastModified());
+			if (cached && source.toString().equals(metadata.getProperty("source")) && lastModified.equals(metadata.getProperty("lastModified"))) {
+				return false;
+			}
+			try (InputStream in = connection.getInputStream(); OutputStream out = Files.newOutputStream(partFile.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+				IOUtils.copy(in, out);
+			}
+			metadata.setProperty("part.lastModified", lastModified);
+			metadata.remove("part.etag");
+			return true;
+		}
+
+		HttpURLConnection http = (HttpURLConnection) connection;
+		try {
+
+			// revalidates the cached file
+			if (cached && source.toString().equals(metadata.getProperty("source"))) {
+				if (metadata.getProperty("etag") != null) http.setRequestProperty("If-None-Match", metadata.getProperty("etag"));
+				if (metadata.getProperty("lastModified") != null) http.setRequestProperty("If-Modified-Since", metadata.getProperty("lastModified"));
+			}
+
+			// resumes a previous download of the same content
+			long resumeFrom = 0;
+			String partValidator = StringUtils.defaultIfBlank(metadata.getProperty("part.etag"), metadata.getProperty("part.lastModified"));
+			if (partFile.isFile() && partFile.length() > 0 && partValidator != null && source.toString().equals(metadata.getProperty("part.source"))) {
+				resumeFrom = partFile.length();
+				http.setRequestProperty("Range", "bytes=" + resumeFrom + "-");
+				http.setRequestProperty("If-Range", partValidator);
+			}
+
+			int responseCode = http.getResponseCode();
+			if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				return false;
+			}
+			if (responseCode == 416) {
+				// requested range not satisfiable, so download starts again
+				Files.deleteIfExists(partFile.toPath());
+				metadata.remove("part.source");
+				throw new IOException("Partial download cannot be resumed");
+			}
+			if (responseCode >= 400 && responseCode < 500 && responseCode != HttpURLConnection.HTTP_CLIENT_TIMEOUT && responseCode != 429) {
+				throw new UnrecoverableException("HTTP response code " + responseCode + " from " + source);
+			}
+			if (responseCode != HttpURLConnection.HTTP_OK && responseCode != HttpURLConnection.HTTP_PARTIAL) {
+				throw new IOException("HTTP response code " + responseCode);
+			}
+
+			boolean append = responseCode == HttpURLConnection.HTTP_PARTIAL && http.getHeaderField("Content-Range") != null
+					&& http.getHeaderField("Content-Range").startsWith("bytes " + resumeFrom + "-");
+			if (append) {
+				Logger.info("Resuming download of " + source + " from byte " + resumeFrom);
+			}
+
+			// validators are saved before downloading, so an interrupted download can be resumed
+			setOrRemove(metadata, "part.etag", http.getHeaderField("ETag"));
+			setOrRemove(metadata, "part.lastModified", http.getHeaderField("Last-Modified"));
+			metadata.setProperty("part.source", source.toString());
+			save(metadata, metadataFile);
+
+			try (
+				InputStream in = http.getInputStream();
+				OutputStream out = append ? Files.newOutputStream(partFile.toPath(), CREATE, WRITE, APPEND) : Files.newOutputStream(partFile.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)
+			) {
+				IOUtils.copy(in, out);
+			}
+			return true;
+
+		} finally {
+			http.disconnect();
+		}
+	}
+
+	/**
+	 * Get the URLs a file can be downloaded from: mirrors first (using
+	 * mirror/host/path layout) and the original URL at last
+	 */
+	private static List<URL> getSources(URL url) {
+		List<URL> sources = new ArrayList<>();
+		for (String mirror : mirrors) {
+			try {
+				sources.add(new URL(StringUtils.removeEnd(mirror, "/") + "/" + url.getHost() + url.getPath()));
+			} catch (MalformedURLException e) {
+				Logger.warn("Invalid download mirror " + mirror + ": " + e.getMessage());
+			}
+		}
+		sources.add(url);
+		return sources;
+	}
+
+	private static String getFileName(URL url) {
+		String name = FilenameUtils.getName(url.getPath());
+		return StringUtils.isBlank(name) ? "download" : name;
+	}
+
+	private static void verify(File file, String expected, String checksum) throws IOException {
+		if (expected != null && !expected.equalsIgnoreCase(checksum)) {
+			throw new UnrecoverableException("Checksum mismatch for " + file + ": expected " + expected + " but was " + checksum);
+		}
+	}
+
+	private static void setOrRemove(Properties properties, String key, String value) {
+		if (value != null) {
+			properties.setProperty(key, value);
+		} else {
+			properties.remove(key);
+		}
+	}
+
+	private static Properties load(File file) throws IOException {
+		Properties properties = new Properties();
+		if (file.isFile()) {
+			try (InputStream in = Files.newInputStream(file.toPath())) {
+				properties.load(in);
+			}
+		}
+		return properties;
+	}
+
+	private static void save(Properties properties, File file) throws IOException {
+		try (OutputStream out = Files.newOutputStream(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+			properties.store(out, "JavaPackager download metadata");
+		}
+	}
+
+	/**
+	 * Download failure which won't be solved retrying (e.g. checksum mismatch)
+	 */
+	private static class UnrecoverableException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		public UnrecoverableException(String message) {
+			super(message);
+		}
+
+	}
+
+}
@@ -0,0 +1,343 @@
+package io.github.fvarrui.javapackager.utils;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.fvarrui.javapackager.model.Platform;
+import io.github.fvarrui.javapackager.model.StagingMode;
+
+/**
+ * In-process files and folders copier and remover, which walks folders in
+ * parallel on a dedicated fork-join pool, preserving permissions, modification
+ * times and symbolic links. Files can also be staged as hardlinks or
+ * copy-on-write clones (see {@link StagingMode})
+ */
+public class FileTreeCopier {
+
+	private static final ForkJoinPool pool = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * Copies a file, a symbolic link or a folder recursively
+	 *
+	 * @param source    Source file or folder
+	 * @param dest      Destination file or folder
+	 * @param overwrite Overwrites existing files
+	 * @throws IOException If something cannot be copied
+	 */
+	public static void copy(Path source, Path dest, boolean overwrite) throws IOException {
+		copy(source, dest, overwrite, StagingMode.copy);
+	}
+
+	/**
+	 * Copies a file, a symbolic link or a folder recursively using the specified
+	 * staging mode
+	 *
+	 * @param source    Source file or folder
+	 * @param dest      Destination file or folder
+	 * @param overwrite Overwrites existing files
+	 * @param mode      Staging mode
+	 * @throws IOException If something cannot be copied
+	 */
+	public static void copy(Path source, Path dest, boolean overwrite, StagingMode mode) throws IOException {
+		try (Metric metric = Metrics.copy(mode, source, dest)) {
+			if (mode == StagingMode.reflink && cloneTree(source, dest, overwrite)) {
+				return;
+			}
+			Options options = new Options(overwrite, mode);
+			invoke(new CopyTask(source, dest, options));
+			metric.files(options.files.sum()).bytesWritten(options.bytes.sum());
+		}
+	}
+
+	/**
+	 * Copies all entries inside a folder into another folder, which is created if
+	 * it doesn't exist
+	 *
+	 * @param sourceFolder Source folder
+	 * @param destFolder   Destination folder
+	 * @param overwrite    Overwrites existing files
+	 * @throws IOException If something cannot be copied
+	 */
+	public static void copyContent(Path sourceFolder, Path destFolder, boolean overwrite) throws IOException {
+		copyContent(sourceFolder, destFolder, overwrite, StagingMode.copy);
+	}
+
+	/**
+	 * Copies all entries inside a folder into another folder, which is created if
+	 * it doesn't exist, using the specified staging mode
+	 *
+	 * @param sourceFolder Source folder
+	 * @param destFolder   Destination folder
+	 * @param overwrite    Overwrites existing files
+	 * @param mode         Staging mode
+	 * @throws IOException If something cannot be copied
+	 */
+	public static void copyContent(Path sourceFolder, Path destFolder, boolean overwrite, StagingMode mode) throws IOException {
+		Files.createDirectories(destFolder);
+		try (Metric metric = Metrics.copy(mode, sourceFolder, destFolder)) {
+			if (mode == StagingMode.reflink && cloneTree(sourceFolder, destFolder, overwrite)) {
+				return;
+			}
+			Options options = new Options(overwrite, mode);
+			List<CopyTask> tasks = new ArrayList<>();
+			for (Path child : list(sourceFolder)) {
+				tasks.add(new CopyTask(child, destFolder.resolve(child.getFileName().toString()), options));
+			}
+			invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+			metric.files(options.files.sum()).bytesWritten(options.bytes.sum());
+		}
+	}
+
+	/**
+	 * Removes a file, a symbolic link (not its target) or a folder recursively
+	 *
+	 * @param path File or folder to be removed
+	 * @throws IOException If something cannot be removed
+	 */
+	public static void delete(Path path) throws IOException {
+		if (Files.notExists(path, NOFOLLOW_LINKS))
+			return;
+		invoke(new DeleteTask(path));
+	}
+
+	/**
+	 * Clones a file or a folder content with a single copy-on-write aware "cp"
+	 * (there's no Java API for reflinks/clonefile)
+	 *
+	 * @param source    Source file or folder
+	 * @param dest      Destination file or folder
+	 * @param overwrite Overwrites existing files
+	 * @return true if cloned, false if the tree has to be copied by other means
+	 */
+	private static boolean cloneTree(Path source, Path dest, boolean overwrite) {
+		String cloneOption;
+		if (Platform.linux.isCurrentPlatform()) {
+			cloneOption = "--reflink=auto";
+		} else if (Platform.mac.isCurrentPlatform()) {
+			cloneOption = "-c";
+		} else {
+			return false;
+		}
+		try {
+			Object from = source;
+			if (Files.isDirectory(source, NOFOLLOW_LINKS)) {
+				Files.createDirectories(dest);
+				from = source + File.separator + ".";
+			}
+			// existing files are kept with "-n" (if cp fails, the tree is copied by other means)
+			String copyOptions = overwrite ? "-a" : "-an";
+			return CommandUtils.executeWithResult(new File("."), "cp", copyOptions, cloneOption, from, dest).getExitCode() == 0;
+		} catch (Exception e) {
+			Logger.warn("Could not clone " + source + " to " + dest + ": " + e.getMessage());
+			return false;
+		}
+	}
+
+	private static void invoke(RecursiveAction task) throws IOException {
+		try {
+			pool.invoke(task);
+		} catch (RuntimeException e) {
+			// fork-join pool may wrap the exception thrown by a worker
+			for (Throwable t = e; t != null; t = t.getCause()) {
+				if (t instanceof UncheckedIOException) {
+					throw ((UncheckedIOException) t).getCause();
+				}
+			}
+			throw e;
+		}
+	}
+
+	private static List<Path> list(Path folder) throws IOException {
+		List<Path> children = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+			stream.forEach(children::add);
+		}
+		return children;
+	}
+
+	private static BasicFileAttributes readAttributes(Path path) throws IOException {
+		if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			return Files.readAttributes(path, PosixFileAttributes.class, NOFOLLOW_LINKS);
+		}
+		return Files.readAttributes(path, BasicFileAttributes.class, NOFOLLOW_LINKS);
+	}
+
+	private static class Options {
+
+		private final boolean overwrite;
+		// disabled after the first failed hardlink (e.g. source on a different volume)
+		private volatile boolean linkable;
+		// copied (or linked) files and copied bytes
+		private final LongAdder files = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+
+		public Options(boolean overwrite, StagingMode mode) {
+			this.overwrite = overwrite;
+			this.linkable = mode == StagingMode.hardlink;
+		}
+
+	}
+
+	private static class CopyTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Path source;
+		private final Path dest;
+		private final Options options;
+
+		public CopyTask(Path source, Path dest, Options options) {
+			this.source = source;
+			this.dest = dest;
+			this.options = options;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				BasicFileAttributes attrs = readAttributes(source);
+				if (attrs.isSymbolicLink()) {
+					copyLink();
+				} else if (attrs.isDirectory()) {
+					copyFolder(attrs);
+				} else {
+					copyFile(attrs);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void copyLink() throws IOException {
+			if (Files.exists(dest, NOFOLLOW_LINKS)) {
+				if (!options.overwrite) return;
+				Files.delete(dest);
+			}
+			Files.createSymbolicLink(dest, Files.readSymbolicLink(source));
+		}
+
+		private void copyFolder(BasicFileAttributes attrs) throws IOException {
+			Files.createDirectories(dest);
+			List<CopyTask> tasks = new ArrayList<>();
+			for (Path child : list(source)) {
+				tasks.add(new CopyTask(child, dest.resolve(child.getFileName().toString()), options));
+			}
+			invokeAll(tasks);
+			// attributes are copied once the folder is filled, as it could be read-only
+			copyAttributes(attrs);
+		}
+
+		private void copyFile(BasicFileAttributes attrs) throws IOException {
+			if (Files.exists(dest, NOFOLLOW_LINKS)) {
+				if (!options.overwrite) return;
+				// deleted rather than truncated, as it could be a hardlink whose source must not change
+				Files.delete(dest);
+			}
+			if (options.linkable && link()) {
+				options.files.increment();
+				return;
+			}
+			try (
+				FileChannel in = FileChannel.open(source, READ);
+				FileChannel out = FileChannel.open(dest, WRITE, CREATE_NEW)
+			) {
+				long size = in.size();
+				long position = 0;
+				while (position < size) {
+					position += in.transferTo(position, size - position, out);
+				}
+				options.files.increment();
+				options.bytes.add(size);
+			}
+			copyAttributes(attrs);
+		}
+
+		private boolean link() {
+			try {
+				Files.createLink(dest, source);
+				return true;
+			} catch (IOException | UnsupportedOperationException e) {
+				Logger.warn("Cannot hardlink " + source + " (" + e.getMessage() + "), files will be copied instead");
+				options.linkable = false;
+				return false;
+			}
+		}
+
+		private void copyAttributes(BasicFileAttributes attrs) throws IOException {
+			if (attrs instanceof PosixFileAttributes) {
+				Files.setPosixFilePermissions(dest, ((PosixFileAttributes) attrs).permissions());
+			}
+			Files.getFileAttributeView(dest, BasicFileAttributeView.class).setTimes(attrs.lastModifiedTime(), null, null);
+		}
+
+	}
+
+	private static class DeleteTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Path path;
+
+		public DeleteTask(Path path) {
+			this.path = path;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, NOFOLLOW_LINKS);
+				if (attrs.isDirectory()) {
+					List<DeleteTask> tasks = new ArrayList<>();
+					for (Path child : list(path)) {
+						tasks.add(new DeleteTask(child));
+					}
+					invokeAll(tasks);
+				}
+				delete();
+			} catch (NoSuchFileException e) {
+				// already removed
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void delete() throws IOException {
+			try {
+				Files.deleteIfExists(path);
+			} catch (AccessDeniedException e) {
+				// read-only files cannot be removed on windows
+				DosFileAttributeView view = Files.getFileAttributeView(path, DosFileAttributeView.class, NOFOLLOW_LINKS);
+				if (view == null) throw e;
+				view.setReadOnly(false);
+				Files.deleteIfExists(path);
+			}
+		}
+
+	}
+
+}
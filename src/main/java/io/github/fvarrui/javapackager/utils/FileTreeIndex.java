@@ -0,0 +1,252 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable index of a file tree, with the path, type, size, mode, modification
+ * time and symbolic link target of every entry, so a folder is walked and
+ * stat'ed only once and then shared by all the tasks reading it. File digests
+ * are computed lazily and cached.
+ */
+public class FileTreeIndex {
+
+	public enum Type {
+		DIRECTORY, FILE, LINK
+	}
+
+	/**
+	 * Indexed file, folder or symbolic link
+	 */
+	public static class Entry {
+
+		private final Path path;
+		private final String relativePath;
+		private final Type type;
+		private final long size;
+		private final int mode;
+		private final long lastModified;
+		private final String linkTarget;
+		private final Map<String, String> digests = new ConcurrentHashMap<>();
+
+		private Entry(Path path, String relativePath, Type type, long size, int mode, long lastModified, String linkTarget) {
+			this.path = path;
+			this.relativePath = relativePath;
+			this.type = type;
+			this.size = size;
+			this.mode = mode;
+			this.lastModified = lastModified;
+			this.linkTarget = linkTarget;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public File getFile() {
+			return path.toFile();
+		}
+
+		/**
+		 * Get path relative to the index root, using '/' as separator
+		 * @return Relative path
+		 */
+		public String getRelativePath() {
+			return relativePath;
+		}
+
+		public String getName() {
+			return path.getFileName().toString();
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		public boolean isDirectory() {
+			return type == Type.DIRECTORY;
+		}
+
+		public boolean isFile() {
+			return type == Type.FILE;
+		}
+
+		public boolean isLink() {
+			return type == Type.LINK;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Get permissions (e.g. 0755). On non-POSIX file systems, folders get 0755
+		 * and files 0644.
+		 * @return Unix permissions
+		 */
+		public int getMode() {
+			return mode;
+		}
+
+		public boolean isExecutable() {
+			return (mode & 0111) != 0;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public String getLinkTarget() {
+			return linkTarget;
+		}
+
+		/**
+		 * Get file content digest, computing it only the first time
+		 * @param algorithm Algorithm name (e.g. SHA-256)
+		 * @return Hex encoded digest
+		 * @throws IOException If the file cannot be read
+		 */
+		public String getDigest(String algorithm) throws IOException {
+			if (type != Type.FILE) {
+				throw new IllegalStateException(relativePath + " is not a regular file");
+			}
+			String digest = digests.get(algorithm);
+			if (digest == null) {
+				digest = HashUtils.hash(algorithm, path.toFile());
+				digests.put(algorithm, digest);
+			}
+			return digest;
+		}
+
+		@Override
+		public String toString() {
+			return relativePath;
+		}
+
+	}
+
+	private final File root;
+	private final List<Entry> entries;
+	private final Map<String, Entry> entriesByPath;
+
+	private FileTreeIndex(File root, List<Entry> entries) {
+		this.root = root;
+		this.entries = Collections.unmodifiableList(entries);
+		this.entriesByPath = new HashMap<>();
+		entries.forEach(entry -> entriesByPath.put(entry.getRelativePath(), entry));
+	}
+
+	/**
+	 * Walks a folder and indexes its content (the root folder itself is not
+	 * included). Symbolic links are indexed as links and not followed.
+	 * @param root Folder to index
+	 * @return Index with all the entries sorted by path, so folders come before
+	 *         their content
+	 * @throws IOException If the folder cannot be walked
+	 */
+	public static FileTreeIndex build(File root) throws IOException {
+		Path rootPath = root.toPath();
+		boolean posix = Files.getFileStore(rootPath).supportsFileAttributeView("posix");
+		List<Entry> entries = new ArrayList<>();
+		index(rootPath, "", posix, entries);
+		entries.sort(Comparator.comparing(Entry::getRelativePath));
+		return new FileTreeIndex(root, entries);
+	}
+
+	private static void index(Path folder, String prefix, boolean posix, List<Entry> entries) throws IOException {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+			for (Path path : stream) {
+				String relativePath = prefix + path.getFileName();
+				BasicFileAttributes attrs = posix
+						? Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+						: Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				Type type = attrs.isSymbolicLink() ? Type.LINK : attrs.isDirectory() ? Type.DIRECTORY : Type.FILE;
+				int mode = posix ? toMode(((PosixFileAttributes) attrs).permissions()) : type == Type.FILE ? 0644 : 0755;
+				String linkTarget = type == Type.LINK ? Files.readSymbolicLink(path).toString() : null;
+				long size = type == Type.FILE ? attrs.size() : 0;
+				entries.add(new Entry(path, relativePath, type, size, mode, attrs.lastModifiedTime().toMillis(), linkTarget));
+				if (type == Type.DIRECTORY) {
+					index(path, relativePath + "/", posix, entries);
+				}
+			}
+		}
+	}
+
+	private static int toMode(Set<PosixFilePermission> permissions) {
+		int mode = 0;
+		for (PosixFilePermission permission : permissions) {
+			// permissions are declared from OWNER_READ (0400) to OTHERS_EXECUTE (0001)
+			mode |= 0400 >> permission.ordinal();
+		}
+		return mode;
+	}
+
+	public File getRoot() {
+		return root;
+	}
+
+	/**
+	 * Get all entries
+	 * @return Unmodifiable list of entries sorted by path
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Get all entries inside a folder
+	 * @param folder Indexed folder
+	 * @return Entries sorted by path
+	 */
+	public List<Entry> getEntries(File folder) {
+		String prefix = getRelativePath(folder) + "/";
+		return entries.stream().filter(entry -> entry.getRelativePath().startsWith(prefix)).collect(Collectors.toList());
+	}
+
+	/**
+	 * Get an entry by its relative path
+	 * @param relativePath Path relative to the root, using '/' as separator
+	 * @return Entry, or null if it's not indexed
+	 */
+	public Entry getEntry(String relativePath) {
+		return entriesByPath.get(relativePath);
+	}
+
+	/**
+	 * Get an entry by its file
+	 * @param file File inside the root folder
+	 * @return Entry, or null if it's not indexed
+	 */
+	public Entry getEntry(File file) {
+		return getEntry(getRelativePath(file));
+	}
+
+	/**
+	 * Get the sum of all file sizes
+	 * @return Total size in bytes
+	 */
+	public long getTotalSize() {
+		return entries.stream().mapToLong(Entry::getSize).sum();
+	}
+
+	private String getRelativePath(File file) {
+		return root.getAbsoluteFile().toPath().relativize(file.getAbsoluteFile().toPath()).toString().replace(File.separatorChar, '/');
+	}
+
+}
@@ -1,16 +1,13 @@
 package io.github.fvarrui.javapackager.utils;
 
-import static org.apache.commons.io.FileUtils.copyDirectoryToDirectory;
 import static org.apache.commons.io.FileUtils.copyFile;
 import static org.apache.commons.io.FileUtils.copyInputStreamToFile;
-import static org.apache.commons.io.FileUtils.deleteDirectory;
 import static org.apache.commons.io.FileUtils.moveDirectoryToDirectory;
 import static org.apache.commons.io.FileUtils.moveFileToDirectory;
 import static org.apache.commons.io.FileUtils.readFileToString;
 import static org.apache.commons.io.FileUtils.writeStringToFile;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -19,12 +16,19 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -32,13 +36,15 @@ import java.util.stream.Collectors;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import io.github.fvarrui.javapackager.model.Platform;
+import io.github.fvarrui.javapackager.model.StagingMode;
 
 /**
  * Common files and folders utils
  */
 public class FileUtils {
 
+	private static final Set<PosixFilePermission> EXECUTE_PERMISSIONS = EnumSet.of(PosixFilePermission.OWNER_EXECUTE, PosixFilePermission.GROUP_EXECUTE, PosixFilePermission.OTHERS_EXECUTE);
+
 	/**
 	 * Creates a directory if it doesn't exist
 	 * 
@@ -92,21 +98,60 @@ public class FileUtils {
 	}
 
 	public static void copyFileToFolder(File source, File destFolder, boolean overwrite) throws Exception {
-		Logger.info("Copying file [" + source + "] to folder [" + destFolder + "]");
+		copyFileToFolder(source, destFolder, overwrite, StagingMode.copy);
+	}
+
+	/**
+	 * Copies a file inside an existing folder using the specified staging mode
+	 * 
+	 * @param source     File to be copied
+	 * @param destFolder Destination folder
+	 * @param mode       Staging mode
+	 * @throws Exception If the file cannot be copied
+	 */
+	public static void copyFileToFolder(File source, File destFolder, StagingMode mode) throws Exception {
+		copyFileToFolder(source, destFolder, false, mode);
+	}
+
+	public static void copyFileToFolder(File source, File destFolder, boolean overwrite, StagingMode mode) throws Exception {
+		Logger.info("Copying file [" + source + "] to folder [" + destFolder + "]" + stagingInfo(mode));
 		File destFile = new File(destFolder, source.getName());
 		if (destFile.exists() && !overwrite)
 			return;
 		try {
-			if (Platform.windows.isCurrentPlatform())
-				Files.copy(source.toPath(), destFile.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
-			else {
-				CommandUtils.execute("cp", source, destFile);
-			}
+			FileTreeCopier.copy(source.toPath(), destFile.toPath(), overwrite, mode);
 		} catch (IOException e) {
 			throw new Exception(e.getMessage(), e);
 		}
 	}
 
+	/**
+	 * Makes a file executable by everyone. If it's hardlinked (e.g. staged with
+	 * {@link StagingMode#hardlink}) and its permissions change, it's copied first,
+	 * so the source it's linked to isn't modified
+	 * 
+	 * @param file File
+	 * @throws Exception If the file cannot be copied
+	 */
+	public static void setExecutable(File file) throws Exception {
+		Path path = file.toPath();
+		if (isHardlinked(path) && !Files.getPosixFilePermissions(path).containsAll(EXECUTE_PERMISSIONS)) {
+			Path copy = path.resolveSibling(path.getFileName() + ".tmp");
+			Files.copy(path, copy, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(copy, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+		file.setExecutable(true, false);
+	}
+
+	private static boolean isHardlinked(Path path) {
+		try {
+			return (Integer) Files.getAttribute(path, "unix:nlink", LinkOption.NOFOLLOW_LINKS) > 1;
+		} catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+			// file system without hardlinks count
+			return false;
+		}
+	}
+
 	/**
 	 * Concatenates several files into a new one
 	 * 
@@ -115,52 +160,80 @@ public class FileUtils {
 	 * @throws Exception If a file cannot be writen to the destination
 	 */
 	public static void concat(File dest, File... sources) throws Exception {
-		Logger.info("Concatenating files [" + StringUtils.join(sources, ",") + "] into file [" + dest + "]");
-		try {
-			FileOutputStream fos = new FileOutputStream(dest);
+		concat(dest, new byte[0], sources);
+	}
+
+	/**
+	 * Concatenates an in-memory header and some files into a file. Files are
+	 * transferred channel to channel, so the kernel can copy them without going
+	 * through the Java heap
+	 * 
+	 * @param dest    Destination file
+	 * @param header  Bytes written before files content (e.g. a rendered script)
+	 * @param sources Files to concatenate
+	 * @throws Exception If something went wrong
+	 */
+	public static void concat(File dest, byte[] header, File... sources) throws Exception {
+		Logger.info("Concatenating " + (header.length > 0 ? header.length + " bytes and " : "") + "files [" + StringUtils.join(sources, ",") + "] into file [" + dest + "]");
+		try (
+			Metric metric = Metrics.copy("concat", Arrays.asList(sources), dest);
+			FileChannel out = FileChannel.open(dest.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)
+		) {
+			ByteBuffer buffer = ByteBuffer.wrap(header);
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
 			for (File source : sources) {
-				FileInputStream fis = new FileInputStream(source);
-				IOUtils.copy(fis, fos);
-				fis.close();
+				try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+					long size = in.size();
+					long position = 0;
+					while (position < size) {
+						position += in.transferTo(position, size - position, out);
+					}
+				}
 			}
-			fos.flush();
-			fos.close();
+			metric.files(sources.length).bytesWritten(out.size());
 		} catch (IOException e) {
-			throw new Exception("Error concatenating streams", e);
+			throw new Exception("Error concatenating files", e);
 		}
 	}
 
 	public static void copyFolderToFolder(File from, File to) throws Exception {
-		Logger.info("Copying folder [" + from + "] to folder [" + to + "]");
+		copyFolderToFolder(from, to, StagingMode.copy);
+	}
+
+	public static void copyFolderToFolder(File from, File to, StagingMode mode) throws Exception {
+		Logger.info("Copying folder [" + from + "] to folder [" + to + "]" + stagingInfo(mode));
 		if (!from.isDirectory())
 			throw new Exception("Source folder " + from + " is not a directory");
 		try {
-			if (Platform.windows.isCurrentPlatform())
-				copyDirectoryToDirectory(from, to);
-			else {
-				CommandUtils.execute("cp", "-R", from, to);
-			}
+			FileTreeCopier.copy(from.toPath(), new File(to, from.getName()).toPath(), true, mode);
 		} catch (IOException e) {
 			throw new Exception(e.getMessage(), e);
 		}
 	}
 
 	public static void copyFolderContentToFolder(File from, File to) throws Exception {
-		Logger.info("Copying folder content [" + from + "] to folder [" + to + "]");
+		copyFolderContentToFolder(from, to, StagingMode.copy);
+	}
+
+	public static void copyFolderContentToFolder(File from, File to, StagingMode mode) throws Exception {
+		Logger.info("Copying folder content [" + from + "] to folder [" + to + "]" + stagingInfo(mode));
 		if (!from.isDirectory())
 			throw new Exception("Source folder " + from + " is not a directory");
-		if (!to.exists())
-			to.mkdirs();
-		else if (!to.isDirectory())
+		if (to.exists() && !to.isDirectory())
 			throw new Exception("Destination folder " + to + " is not a directory");
-		for (File file : from.listFiles()) {
-			if (file.isDirectory())
-				copyFolderToFolder(file, to);
-			else
-				copyFileToFolder(file, to);
+		try {
+			FileTreeCopier.copyContent(from.toPath(), to.toPath(), true, mode);
+		} catch (IOException e) {
+			throw new Exception(e.getMessage(), e);
 		}
 	}
 
+	private static String stagingInfo(StagingMode mode) {
+		return mode != null && mode != StagingMode.copy ? " (" + mode + ")" : "";
+	}
+
 	public static void moveFolderToFolder(File from, File to) throws Exception {
 		Logger.info("Moving folder [" + from + "] to folder [" + to + "]");
 		if (!from.isDirectory())
@@ -250,7 +323,21 @@ public class FileUtils {
 			}
 		}
 		Logger.info("Copying resource [" + resource + "] to file [" + dest + "]");
-		copyStreamToFile(FileUtils.class.getResourceAsStream(resource), dest);
+		File cachedResource;
+		try {
+			cachedResource = CacheUtils.getResource(resource);
+		} catch (IOException e) {
+			Logger.warn("Resource " + resource + " could not be cached: " + e.getMessage());
+			copyStreamToFile(FileUtils.class.getResourceAsStream(resource), dest);
+			return;
+		}
+		// resources are copied, not linked, as some of them are modified once in place (e.g. by rcedit)
+		try {
+			Files.createDirectories(dest.getAbsoluteFile().getParentFile().toPath());
+			FileTreeCopier.copy(cachedResource.toPath(), dest.toPath(), true);
+		} catch (IOException e) {
+			throw new Exception("Could not copy resource " + resource + " to " + dest, e);
+		}
 	}
 
 	public static void createSymlink(File link, File target) throws Exception {
@@ -265,11 +352,7 @@ public class FileUtils {
 	public static void removeFolder(File folder) throws Exception {
 		Logger.info("Removing folder [" + folder + "]");
 		try {
-			if (Platform.windows.isCurrentPlatform())
-				deleteDirectory(folder);
-			else {
-				CommandUtils.execute("rm", "-fr", folder);
-			}
+			FileTreeCopier.delete(folder.toPath());
 		} catch (IOException e) {
 			throw new Exception("Could not remove folder " + folder, e);
 		}
@@ -320,8 +403,7 @@ public class FileUtils {
 	 * @throws IOException Resource cannot be copied/downloaded
 	 */
 	public static void downloadFromUrl(URL url, File file) throws Exception {
-//		org.apache.commons.io.FileUtils.copyURLToFile(url, file);
-		copyUrlToFile(url,file);
+		DownloadManager.download(url, file);
 		Logger.info("File downloaded from [" + url + "] to [" + file.getAbsolutePath() + "]");
 	}
 
@@ -0,0 +1,241 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import io.github.fvarrui.javapackager.utils.FileTreeIndex.Entry;
+
+/**
+ * Fingerprint of a set of inputs (values, files and folders), used to detect
+ * changes between builds. Jar files are fingerprinted by their entries (name,
+ * size and CRC), as well as jars embedded in executables (wrapped jars), so
+ * rebuilding a jar with the same content but new timestamps doesn't change its
+ * fingerprint.
+ */
+public class Fingerprint {
+
+	private final List<Object> parts = new ArrayList<>();
+
+	/**
+	 * Adds a value
+	 * @param value Value (its string representation is used)
+	 * @return Fingerprint
+	 */
+	public Fingerprint add(Object value) {
+		parts.add(value);
+		return this;
+	}
+
+	/**
+	 * Adds a file or a folder content
+	 * @param file File or folder (it may not exist)
+	 * @return Fingerprint
+	 * @throws IOException If the file or folder cannot be read
+	 */
+	public Fingerprint addFile(File file) throws IOException {
+		parts.add(file == null ? "" : file.getName() + ":" + hash(file.toPath()));
+		return this;
+	}
+
+	/**
+	 * Adds an indexed folder content
+	 * @param index Folder index
+	 * @return Fingerprint
+	 * @throws IOException If some file cannot be read
+	 */
+	public Fingerprint addIndex(FileTreeIndex index) throws IOException {
+		return addIndex(index, entry -> false);
+	}
+
+	/**
+	 * Adds an indexed folder content, but some entries
+	 * @param index Folder index
+	 * @param excluded Entries which are not fingerprinted
+	 * @return Fingerprint
+	 * @throws IOException If some file cannot be read
+	 */
+	public Fingerprint addIndex(FileTreeIndex index, Predicate<Entry> excluded) throws IOException {
+		parts.add(index.getRoot().getName() + ":" + hash(index, excluded));
+		return this;
+	}
+
+	/**
+	 * Get fingerprint
+	 * @return SHA-256 of all added inputs
+	 */
+	public String get() {
+		return HashUtils.sha256(parts.toArray());
+	}
+
+	/**
+	 * Hashes a file, a symbolic link or a folder recursively (files are hashed in
+	 * parallel)
+	 * @param path File or folder
+	 * @return Hex encoded hash
+	 * @throws IOException If something cannot be read
+	 */
+	public static String hash(Path path) throws IOException {
+		if (Files.isSymbolicLink(path)) {
+			return "link:" + Files.readSymbolicLink(path);
+		}
+		if (Files.isRegularFile(path)) {
+			return hashFile(path);
+		}
+		if (!Files.isDirectory(path)) {
+			return "missing";
+		}
+		return hash(FileTreeIndex.build(path.toFile()));
+	}
+
+	/**
+	 * Hashes an indexed folder (files are hashed in parallel, reusing the digests
+	 * already computed by the index)
+	 * @param index Folder index
+	 * @return Hex encoded hash
+	 * @throws IOException If some file cannot be read
+	 */
+	public static String hash(FileTreeIndex index) throws IOException {
+		return hash(index, entry -> false);
+	}
+
+	private static String hash(FileTreeIndex index, Predicate<Entry> excluded) throws IOException {
+		try {
+			List<String> hashes = index.getEntries()
+				.parallelStream()
+				.filter(excluded.negate())
+				.map(entry -> entry.getRelativePath() + ":" + hashEntry(entry))
+				.collect(Collectors.toList());
+			return HashUtils.sha256(hashes.toArray());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static String hashEntry(Entry entry) {
+		try {
+			if (entry.isLink()) {
+				return "link:" + entry.getLinkTarget();
+			} else if (entry.isDirectory()) {
+				return "dir";
+			}
+			String prefix = entry.isExecutable() ? "x:" : "";
+			if (entry.getName().endsWith(".jar")) {
+				try {
+					return prefix + hashJar(entry.getFile());
+				} catch (IOException e) {
+					// not a valid zip file, so it's hashed as a regular file
+				}
+			} else if (entry.isExecutable() || entry.getName().endsWith(".exe")) {
+				String hash = hashWrappedJar(entry.getFile());
+				if (hash != null) {
+					return prefix + hash;
+				}
+			}
+			return prefix + entry.getDigest("SHA-256");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String hashFile(Path file) throws IOException {
+		if (file.getFileName().toString().endsWith(".jar")) {
+			try {
+				return hashJar(file.toFile());
+			} catch (IOException e) {
+				// not a valid zip file, so it's hashed as a regular file
+			}
+		} else if (Files.isExecutable(file) || file.getFileName().toString().endsWith(".exe")) {
+			String hash = hashWrappedJar(file.toFile());
+			if (hash != null) {
+				return hash;
+			}
+		}
+		return HashUtils.sha256(file.toFile());
+	}
+
+	/**
+	 * Hashes an executable with an embedded jar (e.g. a startup script or a
+	 * launcher followed by the jar) by its leading bytes and the jar entries, so
+	 * rewrapping the same jar doesn't change its hash
+	 * @param file Executable file
+	 * @return Hex encoded hash, or null if there is no jar after some leading bytes
+	 * @throws IOException If the file cannot be read
+	 */
+	public static String hashWrappedJar(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			// looks for the zip end of central directory record at the end of the file
+			long length = raf.length();
+			int tailLength = (int) Math.min(length, 0xFFFF + 22);
+			byte[] tail = new byte[tailLength];
+			raf.seek(length - tailLength);
+			raf.readFully(tail);
+			ByteBuffer buffer = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+			int end = tailLength - 22;
+			while (end >= 0 && buffer.getInt(end) != 0x06054b50) {
+				end--;
+			}
+			if (end < 0) {
+				return null;
+			}
+			// central directory offset is relative to the jar start, not to the file start
+			long centralDirectorySize = buffer.getInt(end + 12) & 0xFFFFFFFFL;
+			long centralDirectoryOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+			long jarStart = length - tailLength + end - centralDirectorySize - centralDirectoryOffset;
+			if (jarStart <= 0 || jarStart >= length) {
+				return null;
+			}
+			// hashes leading bytes
+			MessageDigest digest = HashUtils.getDigest("SHA-256");
+			byte[] bytes = new byte[64 * 1024];
+			raf.seek(0);
+			for (long remaining = jarStart; remaining > 0; ) {
+				int read = raf.read(bytes, 0, (int) Math.min(bytes.length, remaining));
+				if (read == -1) {
+					return null;
+				}
+				digest.update(bytes, 0, read);
+				remaining -= read;
+			}
+			String leadingHash = HashUtils.toHex(digest.digest());
+			try {
+				return HashUtils.sha256(leadingHash, hashJar(file));
+			} catch (IOException e) {
+				// not a valid zip file after the leading bytes
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Hashes a jar by its entries (name, size and CRC), ignoring timestamps. Only
+	 * the zip central directory is read.
+	 * @param jar Jar file
+	 * @return Hex encoded hash
+	 * @throws IOException If the jar cannot be read
+	 */
+	public static String hashJar(File jar) throws IOException {
+		List<String> entries = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(jar)) {
+			for (ZipEntry entry : Collections.list(zip.entries())) {
+				entries.add(entry.getName() + ":" + entry.getSize() + ":" + entry.getCrc());
+			}
+		}
+		Collections.sort(entries);
+		return HashUtils.sha256(entries.toArray());
+	}
+
+}
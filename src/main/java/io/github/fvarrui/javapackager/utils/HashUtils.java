@@ -0,0 +1,96 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashing utils
+ */
+public class HashUtils {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private HashUtils() {}
+
+	/**
+	 * Creates a message digest for the specified algorithm
+	 *
+	 * @param algorithm Algorithm name (e.g. SHA-256)
+	 * @return Message digest
+	 */
+	public static MessageDigest getDigest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException("Unsupported hash algorithm: " + algorithm, e);
+		}
+	}
+
+	/**
+	 * Hashes a file content
+	 *
+	 * @param algorithm Algorithm name (e.g. SHA-256)
+	 * @param file      File to hash
+	 * @return Hex encoded hash
+	 * @throws IOException If the file cannot be read
+	 */
+	public static String hash(String algorithm, File file) throws IOException {
+		MessageDigest digest = getDigest(algorithm);
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Hashes a file content with SHA-256
+	 *
+	 * @param file File to hash
+	 * @return Hex encoded hash
+	 * @throws IOException If the file cannot be read
+	 */
+	public static String sha256(File file) throws IOException {
+		return hash("SHA-256", file);
+	}
+
+	/**
+	 * Hashes a list of values with SHA-256 (null values are hashed as empty
+	 * strings)
+	 *
+	 * @param values Values to hash
+	 * @return Hex encoded hash
+	 */
+	public static String sha256(Object... values) {
+		MessageDigest digest = getDigest("SHA-256");
+		for (Object value : values) {
+			digest.update(String.valueOf(value != null ? value : "").getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0); // separator, so ("ab","c") and ("a","bc") don't match
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Converts bytes to a lowercase hex string
+	 *
+	 * @param bytes Bytes
+	 * @return Hex string
+	 */
+	public static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+}
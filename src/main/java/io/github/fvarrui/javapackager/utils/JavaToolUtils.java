@@ -0,0 +1,143 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.plexus.util.cli.CommandLineException;
+
+/**
+ * JDK tools (jar, jdeps, jlink, ...) utils. Tools are run in the same JVM
+ * through java.util.spi.ToolProvider (Java 9+) when they are provided by the
+ * running JDK, avoiding a new JVM startup, or forked otherwise.
+ */
+public class JavaToolUtils {
+
+	private JavaToolUtils() {}
+
+	/**
+	 * Runs a JDK tool
+	 *
+	 * @param jdk       JDK providing the tool
+	 * @param tool      Tool name (e.g. jlink)
+	 * @param arguments Tool arguments
+	 * @return Tool output
+	 * @throws IOException          If something related to IO went wrong
+	 * @throws CommandLineException If the tool failed
+	 */
+	public static String execute(File jdk, String tool, Object... arguments) throws IOException, CommandLineException {
+		Object provider = isRunningJdk(jdk) ? findToolProvider(tool) : null;
+		if (provider == null) {
+			return CommandUtils.execute(new File(jdk, "bin/" + tool), arguments);
+		}
+		String[] args = Arrays.asList(arguments).stream()
+				.filter(argument -> argument != null)
+				.map(argument -> argument instanceof File ? ((File) argument).getAbsolutePath() : argument.toString())
+				.toArray(String[]::new);
+		String commandLine = tool + " " + StringUtils.join(args, " ");
+		Logger.info("Executing tool in-process: " + commandLine);
+		StringBuilder output = new StringBuilder();
+		int exitCode;
+		try (
+			Metric metric = Metrics.command(tool, commandLine);
+			PrintWriter out = new PrintWriter(new LineWriter(line -> { Logger.info(line); output.append(line).append("\n"); }), true);
+			PrintWriter err = new PrintWriter(new LineWriter(line -> Logger.error(line)), true)
+		) {
+			// run method is invoked through the interface, as providers' classes are not exported by their modules
+			Method run = Class.forName("java.util.spi.ToolProvider").getMethod("run", PrintWriter.class, PrintWriter.class, String[].class);
+			exitCode = (int) run.invoke(provider, out, err, args);
+			// tools write chars in-process, so they're counted as the bytes a tool process would write
+			metric.exitCode(exitCode).bytesRead(output.toString().getBytes(CharsetUtil.getCommandLineCharset()).length);
+		} catch (InvocationTargetException e) {
+			throw new CommandLineException("Tool execution failed: " + commandLine, e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new CommandLineException("Tool could not be run in-process: " + commandLine, e);
+		}
+		if (exitCode != 0) {
+			throw new CommandLineException("Command execution failed: " + commandLine);
+		}
+		return output.toString();
+	}
+
+	/**
+	 * Checks if a JDK is the one running this process
+	 *
+	 * @param jdk JDK path
+	 * @return true if JDK is the running one
+	 */
+	public static boolean isRunningJdk(File jdk) {
+		try {
+			return jdk != null && jdk.getCanonicalFile().equals(new File(System.getProperty("java.home")).getCanonicalFile());
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Finds a tool provider in the running JVM (ToolProvider is accessed by
+	 * reflection to keep Java 8 compatibility)
+	 *
+	 * @param tool Tool name
+	 * @return ToolProvider instance or null if not available
+	 */
+	private static Object findToolProvider(String tool) {
+		try {
+			Class<?> toolProviderClass = Class.forName("java.util.spi.ToolProvider");
+			Optional<?> provider = (Optional<?>) toolProviderClass.getMethod("findFirst", String.class).invoke(null, tool);
+			return provider.orElse(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writer which passes every written line to a consumer
+	 */
+	private static class LineWriter extends Writer {
+
+		private final Consumer<String> consumer;
+		private final StringBuilder line = new StringBuilder();
+
+		public LineWriter(Consumer<String> consumer) {
+			this.consumer = consumer;
+		}
+
+		@Override
+		public synchronized void write(char[] cbuf, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				char c = cbuf[i];
+				if (c == '\n') {
+					emit();
+				} else if (c != '\r') {
+					line.append(c);
+				}
+			}
+		}
+
+		@Override
+		public void flush() {
+			// lines are emitted as soon as they are completed
+		}
+
+		@Override
+		public synchronized void close() {
+			if (line.length() > 0) {
+				emit();
+			}
+		}
+
+		private void emit() {
+			consumer.accept(line.toString());
+			line.setLength(0);
+		}
+
+	}
+
+}
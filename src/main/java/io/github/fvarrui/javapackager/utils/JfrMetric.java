@@ -0,0 +1,74 @@
+package io.github.fvarrui.javapackager.utils;
+
+import io.github.fvarrui.javapackager.utils.PackagingEvents.CommandEvent;
+import io.github.fvarrui.javapackager.utils.PackagingEvents.CopyEvent;
+import io.github.fvarrui.javapackager.utils.PackagingEvents.GeneratorEvent;
+import io.github.fvarrui.javapackager.utils.PackagingEvents.PackagingEvent;
+import io.github.fvarrui.javapackager.utils.PackagingEvents.RenderEvent;
+
+/**
+ * Metric backed by a JDK Flight Recorder event, which is committed when the
+ * metric is closed
+ */
+class JfrMetric extends Metric {
+
+	private final PackagingEvent event;
+
+	private JfrMetric(PackagingEvent event, String name, String detail) {
+		this.event = event;
+		this.event.name = name;
+		this.event.detail = detail;
+		this.event.begin();
+	}
+
+	static Metric generator(String artifactName) {
+		return new JfrMetric(new GeneratorEvent(), artifactName, null);
+	}
+
+	static Metric command(String executable, String commandLine) {
+		return new JfrMetric(new CommandEvent(), executable, commandLine);
+	}
+
+	static Metric copy(String mode, String detail) {
+		return new JfrMetric(new CopyEvent(), mode, detail);
+	}
+
+	static Metric render(String templatePath, String output) {
+		return new JfrMetric(new RenderEvent(), templatePath, output);
+	}
+
+	@Override
+	public Metric bytesRead(long bytes) {
+		event.bytesRead += bytes;
+		return this;
+	}
+
+	@Override
+	public Metric bytesWritten(long bytes) {
+		event.bytesWritten += bytes;
+		return this;
+	}
+
+	@Override
+	public Metric files(long files) {
+		event.fileCount += files;
+		return this;
+	}
+
+	@Override
+	public Metric exitCode(int exitCode) {
+		if (event instanceof CommandEvent) {
+			((CommandEvent) event).exitCode = exitCode;
+		}
+		return this;
+	}
+
+	@Override
+	public void close() {
+		event.end();
+		if (event.shouldCommit()) {
+			event.commit();
+		}
+	}
+
+}
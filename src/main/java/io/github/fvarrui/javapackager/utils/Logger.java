@@ -11,70 +11,78 @@ public class Logger {
 	
 	private static final String TAB = "    "; // uses four blank spaces as tab 
 	
-	private static int tabs = 0;
+	private static final ThreadLocal<Integer> tabs = ThreadLocal.withInitial(() -> 0); // indentation is tracked per thread
 	
 	public static String error(String error) {
-		if (Context.isMaven()) Context.getMavenContext().getLogger().error(StringUtils.repeat(TAB, tabs) + error);
-		if (Context.isGradle()) Context.getGradleContext().getLogger().error(StringUtils.repeat(TAB, tabs) + error);
+		if (Context.isMaven()) Context.getMavenContext().getLogger().error(StringUtils.repeat(TAB, tabs.get()) + error);
+		if (Context.isGradle()) Context.getGradleContext().getLogger().error(StringUtils.repeat(TAB, tabs.get()) + error);
 		return error;
 	}
 
 	public static String error(String error, Throwable t) {
 		if (Context.isMaven()) {
-			Context.getMavenContext().getLogger().error(StringUtils.repeat(TAB, tabs) + error);
+			Context.getMavenContext().getLogger().error(StringUtils.repeat(TAB, tabs.get()) + error);
 			Context.getMavenContext().getLogger().error(t);
 		}
 		if (Context.isGradle()) {
-			Context.getGradleContext().getLogger().error(StringUtils.repeat(TAB, tabs) + error, t);
+			Context.getGradleContext().getLogger().error(StringUtils.repeat(TAB, tabs.get()) + error, t);
 		}
 		return error;
 	}
 
 	public static String warn(String warn) {
-		if (Context.isMaven()) Context.getMavenContext().getLogger().warn(StringUtils.repeat(TAB, tabs) + warn);
-		if (Context.isGradle()) Context.getGradleContext().getLogger().warn(StringUtils.repeat(TAB, tabs) + warn);
+		if (Context.isMaven()) Context.getMavenContext().getLogger().warn(StringUtils.repeat(TAB, tabs.get()) + warn);
+		if (Context.isGradle()) Context.getGradleContext().getLogger().warn(StringUtils.repeat(TAB, tabs.get()) + warn);
 		return warn;
 	}
 
 	public static String info(String info) {
-		if (Context.isMaven()) Context.getMavenContext().getLogger().info(StringUtils.repeat(TAB, tabs) + info);
-		if (Context.isGradle()) Context.getGradleContext().getLogger().quiet(StringUtils.repeat(TAB, tabs) + info);
+		if (Context.isMaven()) Context.getMavenContext().getLogger().info(StringUtils.repeat(TAB, tabs.get()) + info);
+		if (Context.isGradle()) Context.getGradleContext().getLogger().quiet(StringUtils.repeat(TAB, tabs.get()) + info);
 		return info;
 	}
 	
 	public static String debug(String debug) {
-		if (Context.isMaven()) Context.getMavenContext().getLogger().debug(StringUtils.repeat(TAB, tabs) + debug);
-		if (Context.isGradle()) Context.getGradleContext().getLogger().debug(StringUtils.repeat(TAB, tabs) + debug);
+		if (Context.isMaven()) Context.getMavenContext().getLogger().debug(StringUtils.repeat(TAB, tabs.get()) + debug);
+		if (Context.isGradle()) Context.getGradleContext().getLogger().debug(StringUtils.repeat(TAB, tabs.get()) + debug);
 		return debug;
 	}
 
 	public static void infoIndent(String msg) {
 		info(msg);
-		tabs++;
+		tabs.set(tabs.get() + 1);
 	}
 	
 	public static void infoUnindent(String msg) {
-		tabs--;
+		tabs.set(tabs.get() - 1);
 		info(msg);
 		info("");
 	}
 	
 	public static void warnUnindent(String msg) {
-		tabs--;
+		tabs.set(tabs.get() - 1);
 		warn(msg);
 		info("");
 	}
 
 	public static void errorUnindent(String msg) {
-		tabs--;
+		tabs.set(tabs.get() - 1);
 		error(msg);
 		info("");
 	}
 	
 	public static void errorUnindent(String msg, Throwable t) {
-		tabs--;
+		tabs.set(tabs.get() - 1);
 		error(msg, t);
 		info(""); 
 	}
+
+	public static int getIndentation() {
+		return tabs.get();
+	}
+
+	public static void setIndentation(int indentation) {
+		tabs.set(indentation);
+	}
 	
 }
@@ -0,0 +1,57 @@
+package io.github.fvarrui.javapackager.utils;
+
+/**
+ * Measurement of a packaging stage, from its creation until it's closed. This
+ * one discards everything, so it's used when metrics are disabled.
+ */
+public class Metric implements AutoCloseable {
+
+	static final Metric NONE = new Metric();
+
+	Metric() {}
+
+	/**
+	 * Adds read bytes
+	 * @param bytes Number of bytes
+	 * @return Metric
+	 */
+	public Metric bytesRead(long bytes) {
+		return this;
+	}
+
+	/**
+	 * Adds written bytes
+	 * @param bytes Number of bytes
+	 * @return Metric
+	 */
+	public Metric bytesWritten(long bytes) {
+		return this;
+	}
+
+	/**
+	 * Adds processed files
+	 * @param files Number of files
+	 * @return Metric
+	 */
+	public Metric files(long files) {
+		return this;
+	}
+
+	/**
+	 * Sets subprocess exit code
+	 * @param exitCode Exit code
+	 * @return Metric
+	 */
+	public Metric exitCode(int exitCode) {
+		return this;
+	}
+
+	/**
+	 * Ends the measurement
+	 */
+	@Override
+	public void close() {
+		// nothing to do
+	}
+
+}
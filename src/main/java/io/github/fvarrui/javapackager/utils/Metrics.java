@@ -0,0 +1,78 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.File;
+
+import io.github.fvarrui.javapackager.packagers.Packager;
+
+/**
+ * Packaging metrics utils. When enabled, every packaging stage emits a JDK
+ * Flight Recorder event with its duration, bytes and files, so they can be
+ * analyzed attaching JFR to the build (e.g. -XX:StartFlightRecording). JFR
+ * classes are only loaded (through JfrMetric) if metrics are enabled and JFR
+ * is available.
+ */
+public class Metrics {
+
+	private static volatile boolean enabled = false;
+
+	private Metrics() {}
+
+	public static synchronized void init(Packager packager) {
+		enabled = packager.getJfrEvents() != null && packager.getJfrEvents() && isJfrAvailable();
+	}
+
+	/**
+	 * Checks if JDK Flight Recorder is available in the running JVM
+	 * @return true if JFR is available
+	 */
+	private static boolean isJfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException e) {
+			Logger.warn("JDK Flight Recorder is not available in this JVM, so no packaging events will be emitted");
+			return false;
+		}
+	}
+
+	/**
+	 * Starts measuring an artifact generation
+	 * @param artifactName Artifact name
+	 * @return Metric
+	 */
+	public static Metric generator(String artifactName) {
+		return enabled ? JfrMetric.generator(artifactName) : Metric.NONE;
+	}
+
+	/**
+	 * Starts measuring an external command (or JDK tool) execution
+	 * @param executable Executable name
+	 * @param commandLine Full command line
+	 * @return Metric
+	 */
+	public static Metric command(String executable, String commandLine) {
+		return enabled ? JfrMetric.command(new File(executable).getName(), commandLine) : Metric.NONE;
+	}
+
+	/**
+	 * Starts measuring a bulk copy
+	 * @param mode Staging mode
+	 * @param source Source file or folder
+	 * @param dest Destination file or folder
+	 * @return Metric
+	 */
+	public static Metric copy(Object mode, Object source, Object dest) {
+		return enabled ? JfrMetric.copy(String.valueOf(mode), source + " -> " + dest) : Metric.NONE;
+	}
+
+	/**
+	 * Starts measuring a template rendering
+	 * @param templatePath Template path
+	 * @param output Output file
+	 * @return Metric
+	 */
+	public static Metric render(String templatePath, File output) {
+		return enabled ? JfrMetric.render(templatePath, String.valueOf(output)) : Metric.NONE;
+	}
+
+}
@@ -0,0 +1,70 @@
+package io.github.fvarrui.javapackager.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events emitted while packaging. This class must only be
+ * loaded if JFR is available in the running JVM (see {@link Metrics}).
+ */
+public class PackagingEvents {
+
+	private PackagingEvents() {}
+
+	@Category("JavaPackager")
+	@StackTrace(false)
+	public abstract static class PackagingEvent extends Event {
+
+		@Label("Name")
+		public String name;
+
+		@Label("Detail")
+		public String detail;
+
+		@Label("Bytes Read")
+		@DataAmount
+		public long bytesRead;
+
+		@Label("Bytes Written")
+		@DataAmount
+		public long bytesWritten;
+
+		@Label("File Count")
+		public long fileCount;
+
+	}
+
+	@Name("io.github.fvarrui.javapackager.ArtifactGeneration")
+	@Label("Artifact Generation")
+	@Description("Generation of an artifact (name is the artifact, detail the generated file)")
+	public static class GeneratorEvent extends PackagingEvent {
+	}
+
+	@Name("io.github.fvarrui.javapackager.Command")
+	@Label("Command Execution")
+	@Description("Execution of an external command or JDK tool (name is the executable, detail the command line)")
+	public static class CommandEvent extends PackagingEvent {
+
+		@Label("Exit Code")
+		public int exitCode;
+
+	}
+
+	@Name("io.github.fvarrui.javapackager.Copy")
+	@Label("Files Copy")
+	@Description("Bulk copy of files (name is the staging mode, detail the source and the destination)")
+	public static class CopyEvent extends PackagingEvent {
+	}
+
+	@Name("io.github.fvarrui.javapackager.Render")
+	@Label("Template Rendering")
+	@Description("Rendering of a Velocity template (name is the template, detail the output file)")
+	public static class RenderEvent extends PackagingEvent {
+	}
+
+}
@@ -0,0 +1,225 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip output stream which compresses blocks of data in parallel (like pigz).
+ * Each block is deflated independently, using the tail of the previous block
+ * as dictionary, and ends with a sync flush, so all compressed blocks are
+ * concatenated in order to produce a standard gzip stream.
+ * In rsyncable mode, blocks end where the content matches a rolling hash (like
+ * gzip --rsyncable), so unchanged data is compressed into the same bytes and
+ * delta updates (e.g. zsync) only need the blocks around the changes.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+	private static final int BLOCK_SIZE = 128 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final int RSYNC_MASK = (1 << 12) - 1;
+	private static final int RSYNC_HIT = RSYNC_MASK >> 1;
+
+	private final OutputStream out;
+	private final int level;
+	private final boolean rsyncable;
+	private final int maxPendingBlocks;
+	private final ExecutorService executor;
+	private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+	private final CRC32 crc = new CRC32();
+
+	private byte[] block = new byte[BLOCK_SIZE];
+	private int blockLength = 0;
+	private byte[] dictionary = null;
+	private long size = 0;
+	private int rsyncHash = 0;
+	private boolean closed = false;
+
+	/**
+	 * Creates a parallel gzip stream with the default compression level
+	 * @param out Output stream
+	 * @param threads Number of threads used to compress blocks
+	 * @throws IOException If gzip header cannot be written
+	 */
+	public ParallelGzipOutputStream(OutputStream out, int threads) throws IOException {
+		this(out, threads, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Creates a parallel gzip stream
+	 * @param out Output stream
+	 * @param threads Number of threads used to compress blocks
+	 * @param level Compression level (0-9, or -1 for default)
+	 * @throws IOException If gzip header cannot be written
+	 */
+	public ParallelGzipOutputStream(OutputStream out, int threads, int level) throws IOException {
+		this(out, threads, level, false);
+	}
+
+	/**
+	 * Creates a parallel gzip stream
+	 * @param out Output stream
+	 * @param threads Number of threads used to compress blocks
+	 * @param level Compression level (0-9, or -1 for default)
+	 * @param rsyncable Ends blocks at content-defined boundaries
+	 * @throws IOException If gzip header cannot be written
+	 */
+	public ParallelGzipOutputStream(OutputStream out, int threads, int level, boolean rsyncable) throws IOException {
+		this.out = out;
+		this.level = level;
+		this.rsyncable = rsyncable;
+		this.maxPendingBlocks = Math.max(1, threads) * 2;
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			Thread thread = new Thread(runnable, "gzip");
+			thread.setDaemon(true);
+			return thread;
+		});
+		writeHeader();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		crc.update(b, off, len);
+		size += len;
+		while (len > 0) {
+			int n = Math.min(len, BLOCK_SIZE - blockLength);
+			boolean boundary = false;
+			if (rsyncable) {
+				// hash depends on the last 12 bytes only, and blocks are not shorter than the dictionary
+				for (int i = 0; i < n && !boundary; i++) {
+					rsyncHash = ((rsyncHash << 1) ^ (b[off + i] & 0xff)) & RSYNC_MASK;
+					if (rsyncHash == RSYNC_HIT && blockLength + i + 1 >= DICTIONARY_SIZE) {
+						n = i + 1;
+						boundary = true;
+					}
+				}
+			}
+			System.arraycopy(b, off, block, blockLength, n);
+			blockLength += n;
+			off += n;
+			len -= n;
+			if (blockLength == BLOCK_SIZE || boundary) {
+				submitBlock(false);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			submitBlock(true);
+			while (!pendingBlocks.isEmpty()) {
+				writeNextBlock();
+			}
+			writeTrailer();
+			out.close();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Submits current block to be compressed, waiting for the oldest one if
+	 * there are too many pending blocks
+	 */
+	private void submitBlock(boolean last) throws IOException {
+		final byte[] input = block;
+		final int length = blockLength;
+		final byte[] dict = dictionary;
+		pendingBlocks.add(executor.submit(() -> deflate(input, length, dict, last)));
+		if (!last) {
+			dictionary = Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+			block = new byte[BLOCK_SIZE];
+			blockLength = 0;
+		}
+		while (pendingBlocks.size() > maxPendingBlocks) {
+			writeNextBlock();
+		}
+	}
+
+	private byte[] deflate(byte[] input, int length, byte[] dict, boolean last) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			if (dict != null) {
+				deflater.setDictionary(dict);
+			}
+			deflater.setInput(input, 0, length);
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+			byte[] buffer = new byte[64 * 1024];
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					int n = deflater.deflate(buffer);
+					compressed.write(buffer, 0, n);
+				}
+			} else {
+				// sync flush aligns the block to a byte boundary, so next one can be appended
+				int n;
+				do {
+					n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					compressed.write(buffer, 0, n);
+				} while (n == buffer.length);
+			}
+			return compressed.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void writeNextBlock() throws IOException {
+		try {
+			out.write(pendingBlocks.poll().get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing");
+		} catch (ExecutionException e) {
+			throw new IOException("Compression failed: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		out.write(new byte[] {
+			0x1f, (byte) 0x8b, 	// magic number
+			Deflater.DEFLATED, 	// compression method
+			0, 					// flags
+			0, 0, 0, 0, 		// modification time (none, so output is reproducible)
+			0, 					// extra flags
+			(byte) 255 			// OS (unknown)
+		});
+	}
+
+	private void writeTrailer() throws IOException {
+		writeInt((int) crc.getValue());
+		writeInt((int) size);
+	}
+
+	private void writeInt(int value) throws IOException {
+		out.write(value & 0xff);
+		out.write((value >> 8) & 0xff);
+		out.write((value >> 16) & 0xff);
+		out.write((value >> 24) & 0xff);
+	}
+
+}
@@ -0,0 +1,123 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
+
+/**
+ * Zip file writer which deflates entries concurrently (scattering them in
+ * temporary stores, one per thread) and merges them into the zip file when
+ * it's closed
+ */
+public class ParallelZipWriter implements Closeable {
+
+	private final File zipFile;
+	private final ParallelScatterZipCreator creator;
+
+	/**
+	 * Creates a zip writer with the default compression level
+	 * @param zipFile Zip file
+	 * @param threads Number of threads used to compress entries
+	 */
+	public ParallelZipWriter(File zipFile, int threads) {
+		this(zipFile, threads, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Creates a zip writer
+	 * @param zipFile Zip file
+	 * @param threads Number of threads used to compress entries
+	 * @param level Compression level (0-9, or -1 for default)
+	 */
+	public ParallelZipWriter(File zipFile, int threads, int level) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			Thread thread = new Thread(runnable, "zip-" + zipFile.getName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.zipFile = zipFile;
+		this.creator = new ParallelScatterZipCreator(executor, () -> new FileBasedScatterGatherBackingStore(Files.createTempFile("parallelscatter", ".tmp").toFile()), level);
+	}
+
+	/**
+	 * Adds a folder entry
+	 * @param name Entry name (without trailing '/')
+	 * @param mode Unix permissions
+	 * @param lastModified Modification time
+	 */
+	public void addDirectory(String name, int mode, long lastModified) {
+		ZipArchiveEntry entry = createEntry(name + "/", UnixStat.DIR_FLAG | mode, lastModified);
+		creator.addArchiveEntry(entry, () -> new ByteArrayInputStream(new byte[0]));
+	}
+
+	/**
+	 * Adds a file entry, which is read and compressed by one of the threads
+	 * @param name Entry name
+	 * @param file File to add
+	 * @param mode Unix permissions
+	 * @param lastModified Modification time
+	 */
+	public void addFile(String name, Path file, int mode, long lastModified) {
+		ZipArchiveEntry entry = createEntry(name, UnixStat.FILE_FLAG | mode, lastModified);
+		creator.addArchiveEntry(entry, () -> {
+			try {
+				return Files.newInputStream(file);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * Adds a symbolic link entry (stored as an entry containing its target)
+	 * @param name Entry name
+	 * @param target Link target
+	 * @param lastModified Modification time
+	 */
+	public void addLink(String name, String target, long lastModified) {
+		ZipArchiveEntry entry = createEntry(name, UnixStat.LINK_FLAG | 0777, lastModified);
+		creator.addArchiveEntry(entry, () -> new ByteArrayInputStream(target.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private ZipArchiveEntry createEntry(String name, int unixMode, long lastModified) {
+		ZipArchiveEntry entry = new ZipArchiveEntry(name);
+		entry.setMethod(ZipEntry.DEFLATED);
+		entry.setUnixMode(unixMode);
+		entry.setTime(lastModified);
+		return entry;
+	}
+
+	/**
+	 * Waits until all entries are compressed and writes them to the zip file
+	 */
+	@Override
+	public void close() throws IOException {
+		try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(zipFile)) {
+			creator.writeTo(zip);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while creating " + zipFile, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+			throw new IOException("Couldn't create " + zipFile + ": " + cause.getMessage(), cause);
+		}
+		Logger.info("Zip file created in " + zipFile + " (" + creator.getStatisticsMessage() + ")");
+	}
+
+}
@@ -0,0 +1,259 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.plexus.util.cli.CommandLineException;
+
+/**
+ * Runs an external process directly (without a shell), pumping its stdout and
+ * stderr on dedicated threads into the logger while the caller blocks waiting
+ * for the process to finish
+ */
+public class ProcessRunner {
+
+	public static final int DEFAULT_MAX_CAPTURED_CHARS = 1024 * 1024;
+	private static final long STOP_TIMEOUT = 30000;
+
+	private final List<String> command = new ArrayList<>();
+	private File workingDirectory = new File(".");
+	private long timeout = 0;
+	private int maxCapturedChars = DEFAULT_MAX_CAPTURED_CHARS;
+	private boolean stopOnTimeout = false;
+
+	public ProcessRunner(String executable, Object... arguments) {
+		this.command.add(executable);
+		addArguments(arguments);
+	}
+
+	/**
+	 * Set working directory
+	 * @param workingDirectory Working directory
+	 * @return Process runner
+	 */
+	public ProcessRunner workingDirectory(File workingDirectory) {
+		this.workingDirectory = workingDirectory;
+		return this;
+	}
+
+	/**
+	 * Set max time to wait for the process to finish
+	 * @param timeout Timeout in milliseconds (0 means no timeout)
+	 * @return Process runner
+	 */
+	public ProcessRunner timeout(long timeout) {
+		this.timeout = timeout;
+		return this;
+	}
+
+	/**
+	 * Set if the process has to be stopped gracefully (so it can run its
+	 * shutdown hooks) when the timeout is reached, instead of failing
+	 * @param stopOnTimeout true to stop the process on timeout
+	 * @return Process runner
+	 */
+	public ProcessRunner stopOnTimeout(boolean stopOnTimeout) {
+		this.stopOnTimeout = stopOnTimeout;
+		return this;
+	}
+
+	/**
+	 * Set max number of chars captured from every output stream (the rest is
+	 * logged, but not captured)
+	 * @param maxCapturedChars Max number of captured chars
+	 * @return Process runner
+	 */
+	public ProcessRunner maxCapturedChars(int maxCapturedChars) {
+		this.maxCapturedChars = maxCapturedChars;
+		return this;
+	}
+
+	/**
+	 * Get command line as string
+	 * @return Command line
+	 */
+	public String getCommandLine() {
+		return command.stream()
+				.map(arg -> StringUtils.containsWhitespace(arg) ? "\"" + arg + "\"" : arg)
+				.collect(Collectors.joining(" "));
+	}
+
+	/**
+	 * Runs the process and waits for it to finish
+	 * @return Execution result
+	 * @throws IOException If the process cannot be started
+	 * @throws CommandLineException If the process timed out or waiting was interrupted
+	 */
+	public ExecutionResult run() throws IOException, CommandLineException {
+
+		String commandLine = getCommandLine();
+
+		Logger.info("Executing command: " + commandLine);
+
+		try (Metric metric = Metrics.command(command.get(0), commandLine)) {
+			return run(commandLine, metric);
+		}
+	}
+
+	private ExecutionResult run(String commandLine, Metric metric) throws IOException, CommandLineException {
+
+		Process process = new ProcessBuilder(command).directory(workingDirectory).start();
+
+		// nothing is written to stdin, so the process doesn't wait for it
+		process.getOutputStream().close();
+
+		int indentation = Logger.getIndentation();
+		BoundedBuffer output = new BoundedBuffer(maxCapturedChars);
+		BoundedBuffer error = new BoundedBuffer(maxCapturedChars);
+		LongAdder bytesRead = new LongAdder();
+		Thread outputPump = pump(process.getInputStream(), CharsetUtil.getCommandLineCharset(), indentation, bytesRead, line -> {
+			Logger.info(line);
+			output.append(line);
+		});
+		Thread errorPump = pump(process.getErrorStream(), Charset.defaultCharset(), indentation, bytesRead, line -> {
+			Logger.error(line);
+			error.append(line);
+		});
+
+		try {
+			if (timeout > 0) {
+				if (!process.waitFor(timeout, TimeUnit.MILLISECONDS)) {
+					if (!stopOnTimeout) {
+						process.destroyForcibly();
+						throw new CommandLineException("Command timed out after " + timeout + " ms: " + commandLine);
+					}
+					Logger.info("Stopping process after " + timeout + " ms ...");
+					process.destroy();
+					if (!process.waitFor(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+						process.destroyForcibly();
+						throw new CommandLineException("Command could not be stopped: " + commandLine);
+					}
+				}
+			} else {
+				process.waitFor();
+			}
+			outputPump.join();
+			errorPump.join();
+		} catch (InterruptedException e) {
+			process.destroyForcibly();
+			Thread.currentThread().interrupt();
+			throw new CommandLineException("Command interrupted: " + commandLine, e);
+		}
+
+		metric.exitCode(process.exitValue()).bytesRead(bytesRead.sum());
+
+		ExecutionResult result = new ExecutionResult();
+		result.setCommandLine(commandLine);
+		result.setOutput(output.toString());
+		result.setError(error.toString());
+		result.setExitCode(process.exitValue());
+		return result;
+	}
+
+	private void addArguments(Object... arguments) {
+		for (Object argument : arguments) {
+			if (argument == null) {
+				continue;
+			}
+			if (argument.getClass().isArray()) {
+				addArguments((Object[]) argument);
+			} else if (argument instanceof File) {
+				command.add(((File) argument).getAbsolutePath());
+			} else {
+				command.add(argument.toString().trim());
+			}
+		}
+	}
+
+	private static Thread pump(InputStream stream, Charset charset, int indentation, LongAdder bytesRead, Consumer<String> consumer) {
+		Thread thread = new Thread(() -> {
+			Logger.setIndentation(indentation);
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(new CountingInputStream(stream, bytesRead), charset))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					consumer.accept(line);
+				}
+			} catch (IOException e) {
+				Logger.warn("Could not read process output: " + e.getMessage());
+			}
+		}, "process-pump");
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Input stream which counts the bytes read from the process, before they're
+	 * decoded
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private final LongAdder count;
+
+		public CountingInputStream(InputStream in, LongAdder count) {
+			super(in);
+			this.count = count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count.increment();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count.add(n);
+			}
+			return n;
+		}
+
+	}
+
+	/**
+	 * Lines buffer which stops capturing when max size is reached
+	 */
+	private static class BoundedBuffer {
+
+		private final StringBuilder buffer = new StringBuilder();
+		private final int maxChars;
+		private boolean truncated = false;
+
+		public BoundedBuffer(int maxChars) {
+			this.maxChars = maxChars;
+		}
+
+		public synchronized void append(String line) {
+			if (buffer.length() + line.length() + 1 <= maxChars) {
+				buffer.append(line).append("\n");
+			} else if (!truncated) {
+				truncated = true;
+				buffer.append("[output truncated]\n");
+			}
+		}
+
+		@Override
+		public synchronized String toString() {
+			return buffer.toString();
+		}
+
+	}
+
+}
@@ -0,0 +1,590 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveOutputStream;
+import org.apache.commons.compress.archivers.cpio.CpioConstants;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import io.github.fvarrui.javapackager.utils.FileTreeIndex.Entry;
+
+/**
+ * RPM package writer. Files are streamed once into a compressed cpio payload
+ * (gzip compressed in parallel, xz or bzip2), while their digests are computed
+ * in parallel, so only the file list is kept in memory.
+ */
+public class RpmWriter {
+
+	private static final int TYPE_INT16 = 3;
+	private static final int TYPE_INT32 = 4;
+	private static final int TYPE_STRING = 6;
+	private static final int TYPE_BIN = 7;
+	private static final int TYPE_STRING_ARRAY = 8;
+	private static final int TYPE_I18NSTRING = 9;
+
+	// signature tags
+	private static final int SIGTAG_HEADERSIGNATURES = 62;
+	private static final int SIGTAG_SHA1 = 269;
+	private static final int SIGTAG_SHA256 = 273;
+	private static final int SIGTAG_SIZE = 1000;
+	private static final int SIGTAG_MD5 = 1004;
+	private static final int SIGTAG_PAYLOADSIZE = 1007;
+
+	// header tags
+	private static final int TAG_HEADERIMMUTABLE = 63;
+	private static final int TAG_HEADERI18NTABLE = 100;
+	private static final int TAG_NAME = 1000;
+	private static final int TAG_VERSION = 1001;
+	private static final int TAG_RELEASE = 1002;
+	private static final int TAG_SUMMARY = 1004;
+	private static final int TAG_DESCRIPTION = 1005;
+	private static final int TAG_BUILDTIME = 1006;
+	private static final int TAG_SIZE = 1009;
+	private static final int TAG_PACKAGER = 1015;
+	private static final int TAG_OS = 1021;
+	private static final int TAG_ARCH = 1022;
+	private static final int TAG_FILESIZES = 1028;
+	private static final int TAG_FILEMODES = 1030;
+	private static final int TAG_FILERDEVS = 1033;
+	private static final int TAG_FILEMTIMES = 1034;
+	private static final int TAG_FILEDIGESTS = 1035;
+	private static final int TAG_FILELINKTOS = 1036;
+	private static final int TAG_FILEFLAGS = 1037;
+	private static final int TAG_FILEUSERNAME = 1039;
+	private static final int TAG_FILEGROUPNAME = 1040;
+	private static final int TAG_FILEVERIFYFLAGS = 1045;
+	private static final int TAG_PROVIDENAME = 1047;
+	private static final int TAG_REQUIREFLAGS = 1048;
+	private static final int TAG_REQUIRENAME = 1049;
+	private static final int TAG_REQUIREVERSION = 1050;
+	private static final int TAG_RPMVERSION = 1064;
+	private static final int TAG_FILEDEVICES = 1095;
+	private static final int TAG_FILEINODES = 1096;
+	private static final int TAG_FILELANGS = 1097;
+	private static final int TAG_PREFIXES = 1098;
+	private static final int TAG_PROVIDEFLAGS = 1112;
+	private static final int TAG_PROVIDEVERSION = 1113;
+	private static final int TAG_DIRINDEXES = 1116;
+	private static final int TAG_BASENAMES = 1117;
+	private static final int TAG_DIRNAMES = 1118;
+	private static final int TAG_PAYLOADFORMAT = 1124;
+	private static final int TAG_PAYLOADCOMPRESSOR = 1125;
+	private static final int TAG_PAYLOADFLAGS = 1126;
+	private static final int TAG_PLATFORM = 1132;
+	private static final int TAG_FILEDIGESTALGO = 5011;
+	private static final int TAG_PAYLOADDIGEST = 5092;
+	private static final int TAG_PAYLOADDIGESTALGO = 5093;
+	private static final int TAG_PAYLOADDIGESTALT = 5097;
+
+	private static final int DIGESTALGO_SHA256 = 8;
+	private static final int SENSE_EQUAL = 0x08;
+	private static final int SENSE_RPMLIB = 0x01000000 | 0x40 | SENSE_EQUAL | 0x02;
+
+	/**
+	 * File, folder or link to be packaged
+	 */
+	private static class RpmFile {
+
+		private final String path;
+		private final int mode;
+		private final long size;
+		private final long lastModified;
+		private final Path source;
+		private final String linkTarget;
+		private final Callable<String> digester;
+		private Future<String> digest;
+
+		private RpmFile(String path, int mode, long size, long lastModified, Path source, String linkTarget, Callable<String> digester) {
+			this.path = path;
+			this.mode = mode;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.source = source;
+			this.linkTarget = linkTarget;
+			this.digester = digester;
+		}
+
+		private String getDirName() {
+			return path.substring(0, path.lastIndexOf('/') + 1);
+		}
+
+		private String getBaseName() {
+			return path.substring(path.lastIndexOf('/') + 1);
+		}
+
+	}
+
+	private final String name;
+	private final String version;
+	private final String release;
+	private final String arch;
+	private final Map<String, RpmFile> files = new TreeMap<>();
+	private String summary;
+	private String description;
+	private String packager;
+	private List<String> prefixes = new ArrayList<>();
+	private String compression = "gzip";
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private int threads = 1;
+
+	/**
+	 * Creates a RPM writer
+	 * @param name Package name
+	 * @param version Package version (with no '-')
+	 * @param release Package release
+	 * @param arch RPM architecture (e.g. x86_64)
+	 */
+	public RpmWriter(String name, String version, String release, String arch) {
+		this.name = name;
+		this.version = version;
+		this.release = release;
+		this.arch = arch;
+	}
+
+	public void setSummary(String summary) {
+		this.summary = summary;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	public void setPackager(String packager) {
+		this.packager = packager;
+	}
+
+	public void setPrefixes(String... prefixes) {
+		this.prefixes = new ArrayList<>();
+		Collections.addAll(this.prefixes, prefixes);
+	}
+
+	/**
+	 * Sets payload compression
+	 * @param compression Compression algorithm (gzip, xz or bzip2)
+	 * @param level Compression level (0-9, or -1 for default)
+	 * @param threads Number of threads used to compress the payload and digest files
+	 */
+	public void setCompression(String compression, int level, int threads) {
+		switch (compression.toLowerCase()) {
+		case "gzip":
+		case "xz":
+		case "bzip2":
+			this.compression = compression.toLowerCase();
+			break;
+		default:
+			Logger.warn("Unsupported RPM compression algorithm '" + compression + "', using gzip");
+			this.compression = "gzip";
+		}
+		this.level = level;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Adds a folder
+	 * @param path Absolute path in the package
+	 * @param mode Unix permissions
+	 * @param lastModified Modification time
+	 */
+	public void addDirectory(String path, int mode, long lastModified) {
+		files.put(path, new RpmFile(path, CpioConstants.C_ISDIR | mode, 4096, lastModified, null, null, null));
+	}
+
+	/**
+	 * Adds an indexed file, reusing its digest if it was already computed
+	 * @param path Absolute path in the package
+	 * @param entry File entry
+	 * @param mode Unix permissions
+	 */
+	public void addFile(String path, Entry entry, int mode) {
+		files.put(path, new RpmFile(path, CpioConstants.C_ISREG | mode, entry.getSize(), entry.getLastModified(), entry.getPath(), null, () -> entry.getDigest("SHA-256")));
+	}
+
+	/**
+	 * Adds a file
+	 * @param path Absolute path in the package
+	 * @param file File
+	 * @param mode Unix permissions
+	 */
+	public void addFile(String path, File file, int mode) {
+		files.put(path, new RpmFile(path, CpioConstants.C_ISREG | mode, file.length(), file.lastModified(), file.toPath(), null, () -> HashUtils.sha256(file)));
+	}
+
+	/**
+	 * Adds a symbolic link
+	 * @param path Absolute path in the package
+	 * @param target Link target
+	 * @param lastModified Modification time
+	 */
+	public void addLink(String path, String target, long lastModified) {
+		files.put(path, new RpmFile(path, CpioConstants.C_ISLNK | 0777, target.getBytes(StandardCharsets.UTF_8).length, lastModified, null, target, null));
+	}
+
+	/**
+	 * Writes the RPM package. The payload is written to a temporary file first,
+	 * as the header includes its size and digests.
+	 * @param rpmFile RPM file
+	 * @throws IOException If any file cannot be read or the package cannot be written
+	 */
+	public void write(File rpmFile) throws IOException {
+		List<RpmFile> fileList = new ArrayList<>(files.values());
+		File payloadFile = new File(rpmFile.getParentFile(), rpmFile.getName() + ".payload");
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "rpm-digest");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+
+			// digests files in parallel while the payload is written
+			for (RpmFile file : fileList) {
+				if (file.digester != null) {
+					file.digest = executor.submit(file.digester);
+				}
+			}
+
+			MessageDigest payloadDigest = HashUtils.getDigest("SHA-256");
+			MessageDigest payloadAltDigest = HashUtils.getDigest("SHA-256");
+			long payloadSize;
+			try (
+				OutputStream out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(payloadFile.toPath())), payloadDigest);
+				CountingOutputStream counter = new CountingOutputStream(new DigestOutputStream(compress(out), payloadAltDigest))
+			) {
+				writePayload(counter, fileList);
+				counter.flush();
+				payloadSize = counter.getByteCount();
+			}
+
+			byte[] header = createHeader(fileList, HashUtils.toHex(payloadDigest.digest()), HashUtils.toHex(payloadAltDigest.digest()));
+
+			MessageDigest md5 = HashUtils.getDigest("MD5");
+			md5.update(header);
+			Files.copy(payloadFile.toPath(), new DigestOutputStream(NullOutputStream.INSTANCE, md5));
+
+			Header signature = new Header();
+			signature.addString(SIGTAG_SHA1, HashUtils.toHex(HashUtils.getDigest("SHA-1").digest(header)));
+			signature.addString(SIGTAG_SHA256, HashUtils.toHex(HashUtils.getDigest("SHA-256").digest(header)));
+			signature.addInt32(SIGTAG_SIZE, (int) (header.length + payloadFile.length()));
+			signature.addBinary(SIGTAG_MD5, md5.digest());
+			signature.addInt32(SIGTAG_PAYLOADSIZE, (int) payloadSize);
+
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(rpmFile.toPath()))) {
+				writeLead(out);
+				byte[] signatureBytes = signature.toBytes(SIGTAG_HEADERSIGNATURES);
+				out.write(signatureBytes);
+				out.write(new byte[(8 - signatureBytes.length % 8) % 8]);
+				out.write(header);
+				Files.copy(payloadFile.toPath(), out);
+			}
+
+		} finally {
+			executor.shutdownNow();
+			Files.deleteIfExists(payloadFile.toPath());
+		}
+		Logger.info("RPM package created in " + rpmFile + " (" + fileList.size() + " files, " + compression + " payload)");
+	}
+
+	private OutputStream compress(OutputStream out) throws IOException {
+		switch (compression) {
+		case "xz": 		return new XZCompressorOutputStream(out, level < 0 ? 6 : level);
+		case "bzip2": 	return new BZip2CompressorOutputStream(out, level < 1 ? 9 : level);
+		default: 		return new ParallelGzipOutputStream(out, threads, level);
+		}
+	}
+
+	private void writePayload(OutputStream out, List<RpmFile> fileList) throws IOException {
+		CpioArchiveOutputStream cpio = new CpioArchiveOutputStream(out, CpioConstants.FORMAT_NEW, CpioConstants.BLOCK_SIZE, StandardCharsets.UTF_8.name());
+		int inode = 1;
+		for (RpmFile file : fileList) {
+			CpioArchiveEntry entry = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, "." + file.path);
+			entry.setInode(inode++);
+			entry.setMode(file.mode);
+			entry.setNumberOfLinks(1);
+			entry.setTime(file.lastModified / 1000);
+			entry.setSize(file.source != null || file.linkTarget != null ? file.size : 0);
+			cpio.putArchiveEntry(entry);
+			if (file.linkTarget != null) {
+				cpio.write(file.linkTarget.getBytes(StandardCharsets.UTF_8));
+			} else if (file.source != null) {
+				Files.copy(file.source, cpio);
+			}
+			cpio.closeArchiveEntry();
+		}
+		cpio.finish();
+	}
+
+	private byte[] createHeader(List<RpmFile> fileList, String payloadDigest, String payloadAltDigest) throws IOException {
+		int count = fileList.size();
+		int[] sizes = new int[count];
+		short[] modes = new short[count];
+		int[] mtimes = new int[count];
+		int[] inodes = new int[count];
+		int[] devices = new int[count];
+		int[] dirIndexes = new int[count];
+		List<String> digests = new ArrayList<>();
+		List<String> linkTos = new ArrayList<>();
+		List<String> baseNames = new ArrayList<>();
+		Map<String, Integer> dirNames = new LinkedHashMap<>();
+		long totalSize = 0;
+		for (int i = 0; i < count; i++) {
+			RpmFile file = fileList.get(i);
+			sizes[i] = (int) file.size;
+			modes[i] = (short) file.mode;
+			mtimes[i] = (int) (file.lastModified / 1000);
+			inodes[i] = i + 1;
+			devices[i] = 1;
+			dirIndexes[i] = dirNames.computeIfAbsent(file.getDirName(), dir -> dirNames.size());
+			baseNames.add(file.getBaseName());
+			digests.add(file.digest != null ? getDigest(file) : "");
+			linkTos.add(file.linkTarget != null ? file.linkTarget : "");
+			totalSize += file.size;
+		}
+
+		List<String> requireNames = new ArrayList<>();
+		List<String> requireVersions = new ArrayList<>();
+		requireNames.add("rpmlib(CompressedFileNames)");
+		requireVersions.add("3.0.4-1");
+		requireNames.add("rpmlib(FileDigests)");
+		requireVersions.add("4.6.0-1");
+		requireNames.add("rpmlib(PayloadFilesHavePrefix)");
+		requireVersions.add("4.0-1");
+		if (compression.equals("xz")) {
+			requireNames.add("rpmlib(PayloadIsXz)");
+			requireVersions.add("5.2-1");
+		} else if (compression.equals("bzip2")) {
+			requireNames.add("rpmlib(PayloadIsBzip2)");
+			requireVersions.add("3.0.5-1");
+		}
+		int[] requireFlags = new int[requireNames.size()];
+		Arrays.fill(requireFlags, SENSE_RPMLIB);
+
+		Header header = new Header();
+		header.addStringArray(TAG_HEADERI18NTABLE, Collections.singletonList("C"));
+		header.addString(TAG_NAME, name);
+		header.addString(TAG_VERSION, version);
+		header.addString(TAG_RELEASE, release);
+		header.addI18nString(TAG_SUMMARY, summary != null ? summary : name);
+		header.addI18nString(TAG_DESCRIPTION, description != null ? description : name);
+		header.addInt32(TAG_BUILDTIME, (int) (System.currentTimeMillis() / 1000));
+		header.addInt32(TAG_SIZE, (int) totalSize);
+		if (packager != null) {
+			header.addString(TAG_PACKAGER, packager);
+		}
+		header.addString(TAG_OS, "linux");
+		header.addString(TAG_ARCH, arch);
+		header.addInt32(TAG_FILESIZES, sizes);
+		header.addInt16(TAG_FILEMODES, modes);
+		header.addInt16(TAG_FILERDEVS, new short[count]);
+		header.addInt32(TAG_FILEMTIMES, mtimes);
+		header.addStringArray(TAG_FILEDIGESTS, digests);
+		header.addStringArray(TAG_FILELINKTOS, linkTos);
+		header.addInt32(TAG_FILEFLAGS, new int[count]);
+		header.addStringArray(TAG_FILEUSERNAME, Collections.nCopies(count, "root"));
+		header.addStringArray(TAG_FILEGROUPNAME, Collections.nCopies(count, "root"));
+		int[] verifyFlags = new int[count];
+		Arrays.fill(verifyFlags, -1);
+		header.addInt32(TAG_FILEVERIFYFLAGS, verifyFlags);
+		header.addStringArray(TAG_PROVIDENAME, Collections.singletonList(name));
+		header.addInt32(TAG_REQUIREFLAGS, requireFlags);
+		header.addStringArray(TAG_REQUIRENAME, requireNames);
+		header.addStringArray(TAG_REQUIREVERSION, requireVersions);
+		header.addString(TAG_RPMVERSION, "4.4.2");
+		header.addInt32(TAG_FILEDEVICES, devices);
+		header.addInt32(TAG_FILEINODES, inodes);
+		header.addStringArray(TAG_FILELANGS, Collections.nCopies(count, ""));
+		if (!prefixes.isEmpty()) {
+			header.addStringArray(TAG_PREFIXES, prefixes);
+		}
+		header.addInt32(TAG_PROVIDEFLAGS, SENSE_EQUAL);
+		header.addStringArray(TAG_PROVIDEVERSION, Collections.singletonList(version + "-" + release));
+		header.addInt32(TAG_DIRINDEXES, dirIndexes);
+		header.addStringArray(TAG_BASENAMES, baseNames);
+		header.addStringArray(TAG_DIRNAMES, new ArrayList<>(dirNames.keySet()));
+		header.addString(TAG_PAYLOADFORMAT, "cpio");
+		header.addString(TAG_PAYLOADCOMPRESSOR, compression);
+		header.addString(TAG_PAYLOADFLAGS, String.valueOf(level < 0 ? (compression.equals("bzip2") ? 9 : 6) : level));
+		header.addString(TAG_PLATFORM, arch + "-linux");
+		header.addInt32(TAG_FILEDIGESTALGO, DIGESTALGO_SHA256);
+		header.addStringArray(TAG_PAYLOADDIGEST, Collections.singletonList(payloadDigest));
+		header.addInt32(TAG_PAYLOADDIGESTALGO, DIGESTALGO_SHA256);
+		header.addStringArray(TAG_PAYLOADDIGESTALT, Collections.singletonList(payloadAltDigest));
+		return header.toBytes(TAG_HEADERIMMUTABLE);
+	}
+
+	private String getDigest(RpmFile file) throws IOException {
+		try {
+			return file.digest.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while digesting " + file.source);
+		} catch (ExecutionException e) {
+			throw new IOException("Couldn't digest " + file.source + ": " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	private void writeLead(OutputStream out) throws IOException {
+		DataOutputStream lead = new DataOutputStream(out);
+		lead.writeInt(0xedabeedb);			// magic number
+		lead.writeByte(3);					// major version
+		lead.writeByte(0);					// minor version
+		lead.writeShort(0);					// binary package
+		lead.writeShort(arch.equals("aarch64") ? 19 : 1);
+		byte[] leadName = new byte[66];
+		byte[] fullName = (name + "-" + version + "-" + release).getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(fullName, 0, leadName, 0, Math.min(fullName.length, leadName.length - 1));
+		lead.write(leadName);
+		lead.writeShort(1);					// linux
+		lead.writeShort(5);					// header style signature
+		lead.write(new byte[16]);			// reserved
+		lead.flush();
+	}
+
+	/**
+	 * RPM header structure (index entries sorted by tag, followed by the data store)
+	 */
+	private static class Header {
+
+		/**
+		 * Header entry (type, number of values and values)
+		 */
+		private static class Tag {
+
+			private final int type;
+			private final int count;
+			private final Object value;
+
+			private Tag(int type, int count, Object value) {
+				this.type = type;
+				this.count = count;
+				this.value = value;
+			}
+
+		}
+
+		private final Map<Integer, Tag> tags = new TreeMap<>();
+
+		void addString(int tag, String value) {
+			tags.put(tag, new Tag(TYPE_STRING, 1, value));
+		}
+
+		void addI18nString(int tag, String value) {
+			tags.put(tag, new Tag(TYPE_I18NSTRING, 1, value));
+		}
+
+		void addStringArray(int tag, List<String> values) {
+			tags.put(tag, new Tag(TYPE_STRING_ARRAY, values.size(), values));
+		}
+
+		void addInt32(int tag, int... values) {
+			tags.put(tag, new Tag(TYPE_INT32, values.length, values));
+		}
+
+		void addInt16(int tag, short[] values) {
+			tags.put(tag, new Tag(TYPE_INT16, values.length, values));
+		}
+
+		void addBinary(int tag, byte[] value) {
+			tags.put(tag, new Tag(TYPE_BIN, value.length, value));
+		}
+
+		@SuppressWarnings("unchecked")
+		byte[] toBytes(int regionTag) throws IOException {
+			ByteArrayOutputStream storeBytes = new ByteArrayOutputStream();
+			DataOutputStream store = new DataOutputStream(storeBytes);
+			ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+			DataOutputStream index = new DataOutputStream(indexBytes);
+			int indexCount = tags.size() + 1;
+			for (Map.Entry<Integer, Tag> entry : tags.entrySet()) {
+				int type = entry.getValue().type;
+				int count = entry.getValue().count;
+				Object value = entry.getValue().value;
+				int alignment = type == TYPE_INT32 ? 4 : type == TYPE_INT16 ? 2 : 1;
+				while (store.size() % alignment != 0) {
+					store.writeByte(0);
+				}
+				index.writeInt(entry.getKey());
+				index.writeInt(type);
+				index.writeInt(store.size());
+				index.writeInt(count);
+				switch (type) {
+				case TYPE_STRING:
+				case TYPE_I18NSTRING:
+					writeString(store, (String) value);
+					break;
+				case TYPE_STRING_ARRAY:
+					for (String string : (List<String>) value) {
+						writeString(store, string);
+					}
+					break;
+				case TYPE_INT32:
+					for (int i : (int[]) value) {
+						store.writeInt(i);
+					}
+					break;
+				case TYPE_INT16:
+					for (short s : (short[]) value) {
+						store.writeShort(s);
+					}
+					break;
+				default:
+					store.write((byte[]) value);
+				}
+			}
+
+			// immutable region trailer, placed at the end of the data store
+			int trailerOffset = store.size();
+			store.writeInt(regionTag);
+			store.writeInt(TYPE_BIN);
+			store.writeInt(-indexCount * 16);
+			store.writeInt(16);
+
+			ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+			DataOutputStream header = new DataOutputStream(headerBytes);
+			header.writeInt(0x8eade801);		// magic number and version
+			header.writeInt(0);					// reserved
+			header.writeInt(indexCount);
+			header.writeInt(store.size());
+			header.writeInt(regionTag);
+			header.writeInt(TYPE_BIN);
+			header.writeInt(trailerOffset);
+			header.writeInt(16);
+			indexBytes.writeTo(header);
+			storeBytes.writeTo(header);
+			return headerBytes.toByteArray();
+		}
+
+		private static void writeString(DataOutputStream store, String value) throws IOException {
+			store.write(value.getBytes(StandardCharsets.UTF_8));
+			store.writeByte(0);
+		}
+
+	}
+
+}
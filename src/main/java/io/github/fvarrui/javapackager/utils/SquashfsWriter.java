@@ -0,0 +1,699 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.IOUtils;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZ;
+import org.tukaani.xz.XZOutputStream;
+
+import io.github.fvarrui.javapackager.utils.FileTreeIndex.Type;
+
+/**
+ * Squashfs 4.0 image writer. File data is read once and split in blocks,
+ * which are compressed in parallel (zlib or xz) and written in order, packing
+ * small files and file tails in fragments. Inode and directory tables are kept
+ * in memory and written at the end. Entries are sorted and timestamps are
+ * taken from the entries, so the same content produces the same image.
+ */
+public class SquashfsWriter {
+
+	private static final int MAGIC = 0x73717368;
+	private static final int BLOCK_SIZE = 128 * 1024;
+	private static final int BLOCK_LOG = 17;
+	private static final int SUPERBLOCK_SIZE = 96;
+	private static final int METADATA_SIZE = 8192;
+	private static final int DEVICE_BLOCK_SIZE = 4096;
+	private static final int UNCOMPRESSED_BLOCK = 1 << 24;
+	private static final int UNCOMPRESSED_METADATA = 0x8000;
+	private static final int NO_FRAGMENT = 0xFFFFFFFF;
+	private static final int NO_XATTR = 0xFFFFFFFF;
+	private static final long NO_TABLE = 0xFFFFFFFFFFFFFFFFL;
+	private static final int FLAG_NO_XATTRS = 0x200;
+	private static final int MAX_DIRECTORY_HEADER_ENTRIES = 256;
+	private static final long UNKNOWN_TIME = -1;
+
+	private static final int COMPRESSION_ZLIB = 1;
+	private static final int COMPRESSION_XZ = 4;
+
+	private static final int BASIC_DIRECTORY = 1;
+	private static final int BASIC_FILE = 2;
+	private static final int BASIC_SYMLINK = 3;
+	private static final int EXTENDED_DIRECTORY = 8;
+	private static final int EXTENDED_FILE = 9;
+
+	/**
+	 * Image tree node (folder, file or symbolic link)
+	 */
+	private static class Node {
+
+		private final String name;
+		private final Type type;
+		private int mode;
+		private long lastModified;
+		private Path source;
+		private long size;
+		private String linkTarget;
+		private final TreeMap<String, Node> children = new TreeMap<>(SquashfsWriter::compareNames);
+
+		// data location
+		private long startBlock;
+		private int[] blockSizes = new int[0];
+		private int fragment = NO_FRAGMENT;
+		private int fragmentOffset;
+
+		// inode location
+		private int inodeNumber;
+		private long inodeReference;
+
+		private Node(String name, Type type, int mode, long lastModified) {
+			this.name = name;
+			this.type = type;
+			this.mode = mode;
+			this.lastModified = lastModified;
+		}
+
+		private int getBasicType() {
+			switch (type) {
+			case DIRECTORY: return BASIC_DIRECTORY;
+			case LINK: 		return BASIC_SYMLINK;
+			default: 		return BASIC_FILE;
+			}
+		}
+
+	}
+
+	/**
+	 * Block ready to be written (compressed, or uncompressed if compression
+	 * doesn't reduce its size)
+	 */
+	private static class Block {
+
+		private final byte[] data;
+		private final int length;
+		private final boolean compressed;
+
+		private Block(byte[] data, int length, boolean compressed) {
+			this.data = data;
+			this.length = length;
+			this.compressed = compressed;
+		}
+
+	}
+
+	/**
+	 * Receives the location of a written block
+	 */
+	private interface BlockConsumer {
+		void accept(long position, int size);
+	}
+
+	/**
+	 * Block pending to be compressed and written
+	 */
+	private static class PendingBlock {
+
+		private final Future<Block> block;
+		private final BlockConsumer consumer;
+
+		private PendingBlock(Future<Block> block, BlockConsumer consumer) {
+			this.block = block;
+			this.consumer = consumer;
+		}
+
+	}
+
+	private final Node root = new Node("", Type.DIRECTORY, 0755, UNKNOWN_TIME);
+	private final int compression;
+	private final int level;
+	private final int threads;
+
+	// write state
+	private FileChannel channel;
+	private long imageStart;
+	private ExecutorService executor;
+	private final Deque<PendingBlock> pendingBlocks = new ArrayDeque<>();
+	private final List<long[]> fragments = new ArrayList<>();
+	private byte[] fragmentBuffer = new byte[BLOCK_SIZE];
+	private int fragmentLength = 0;
+	private int inodeCount = 0;
+	private long latestModification = 0;
+
+	/**
+	 * Creates a squashfs writer
+	 * @param compression Compression algorithm (gzip or xz)
+	 * @param level Compression level (0-9, or -1 for default)
+	 * @param threads Number of threads used to compress blocks
+	 */
+	public SquashfsWriter(String compression, int level, int threads) {
+		switch (compression.toLowerCase()) {
+		case "gzip":
+		case "zlib":
+			this.compression = COMPRESSION_ZLIB;
+			break;
+		case "xz":
+			this.compression = COMPRESSION_XZ;
+			break;
+		default:
+			Logger.warn("Unsupported squashfs compression algorithm '" + compression + "', using gzip");
+			this.compression = COMPRESSION_ZLIB;
+		}
+		this.level = level;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Adds a folder (missing parent folders are added too)
+	 * @param path Path inside the image, using '/' as separator
+	 * @param mode Unix permissions
+	 * @param lastModified Modification time
+	 */
+	public void addDirectory(String path, int mode, long lastModified) {
+		Node directory = getDirectory(path);
+		directory.mode = mode;
+		directory.lastModified = lastModified;
+		latestModification = Math.max(latestModification, lastModified);
+	}
+
+	/**
+	 * Adds a file (missing parent folders are added too)
+	 * @param path Path inside the image, using '/' as separator
+	 * @param source File to add
+	 * @param size File size
+	 * @param mode Unix permissions
+	 * @param lastModified Modification time
+	 */
+	public void addFile(String path, Path source, long size, int mode, long lastModified) {
+		Node file = addNode(path, Type.FILE, mode, lastModified);
+		file.source = source;
+		file.size = size;
+	}
+
+	/**
+	 * Adds a symbolic link (missing parent folders are added too)
+	 * @param path Path inside the image, using '/' as separator
+	 * @param target Link target
+	 * @param lastModified Modification time
+	 */
+	public void addLink(String path, String target, long lastModified) {
+		Node link = addNode(path, Type.LINK, 0777, lastModified);
+		link.linkTarget = target;
+	}
+
+	private Node addNode(String path, Type type, int mode, long lastModified) {
+		String parentPath = path.contains("/") ? path.substring(0, path.lastIndexOf('/')) : "";
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		Node node = new Node(name, type, mode, lastModified);
+		getDirectory(parentPath).children.put(name, node);
+		latestModification = Math.max(latestModification, lastModified);
+		return node;
+	}
+
+	private Node getDirectory(String path) {
+		Node directory = root;
+		for (String name : path.split("/")) {
+			if (name.isEmpty()) {
+				continue;
+			}
+			Node child = directory.children.get(name);
+			if (child == null || child.type != Type.DIRECTORY) {
+				child = new Node(name, Type.DIRECTORY, 0755, UNKNOWN_TIME);
+				directory.children.put(name, child);
+			}
+			directory = child;
+		}
+		return directory;
+	}
+
+	/**
+	 * Writes the squashfs image from the current position of the channel (so
+	 * it can be appended to an AppImage runtime), padded to 4 KiB
+	 * @param channel File channel
+	 * @throws IOException If any file cannot be read or the image cannot be written
+	 */
+	public void write(FileChannel channel) throws IOException {
+		this.channel = channel;
+		this.imageStart = channel.position();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "squashfs");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+
+			// data blocks and fragments
+			channel.position(imageStart + SUPERBLOCK_SIZE);
+			writeData(root);
+			flushFragment();
+			while (!pendingBlocks.isEmpty()) {
+				writeNextBlock();
+			}
+
+			// inode and directory tables (folders added implicitly get the latest modification time)
+			assignInodeNumbers(root);
+			MetadataWriter inodeTable = new MetadataWriter();
+			MetadataWriter directoryTable = new MetadataWriter();
+			writeInodes(root, inodeTable, directoryTable, inodeCount + 1);
+			long inodeTableStart = getPosition();
+			writeBytes(inodeTable.toByteArray());
+			long directoryTableStart = getPosition();
+			writeBytes(directoryTable.toByteArray());
+
+			// fragment table
+			MetadataWriter fragmentTable = new MetadataWriter();
+			for (long [] fragment : fragments) {
+				ByteBuffer entry = newBuffer(16);
+				entry.putLong(fragment[0]);
+				entry.putInt((int) fragment[1]);
+				entry.putInt(0);
+				fragmentTable.write(entry.array());
+			}
+			long fragmentTableStart = writeTable(fragmentTable);
+
+			// id table (only root user and group)
+			MetadataWriter idTable = new MetadataWriter();
+			idTable.write(newBuffer(4).putInt(0).array());
+			long idTableStart = writeTable(idTable);
+
+			long bytesUsed = getPosition();
+			writeBytes(new byte[(int) ((DEVICE_BLOCK_SIZE - bytesUsed % DEVICE_BLOCK_SIZE) % DEVICE_BLOCK_SIZE)]);
+
+			// superblock
+			ByteBuffer superblock = newBuffer(SUPERBLOCK_SIZE);
+			superblock.putInt(MAGIC);
+			superblock.putInt(inodeCount);
+			superblock.putInt((int) (latestModification / 1000));
+			superblock.putInt(BLOCK_SIZE);
+			superblock.putInt(fragments.size());
+			superblock.putShort((short) compression);
+			superblock.putShort((short) BLOCK_LOG);
+			superblock.putShort((short) FLAG_NO_XATTRS);
+			superblock.putShort((short) 1);				// ids
+			superblock.putShort((short) 4);				// major version
+			superblock.putShort((short) 0);				// minor version
+			superblock.putLong(root.inodeReference);
+			superblock.putLong(bytesUsed);
+			superblock.putLong(idTableStart);
+			superblock.putLong(NO_TABLE);				// xattr table
+			superblock.putLong(inodeTableStart);
+			superblock.putLong(directoryTableStart);
+			superblock.putLong(fragmentTableStart);
+			superblock.putLong(NO_TABLE);				// export table
+			superblock.flip();
+			long end = channel.position();
+			channel.position(imageStart);
+			while (superblock.hasRemaining()) {
+				channel.write(superblock);
+			}
+			channel.position(end);
+
+			Logger.info("Squashfs image written (" + inodeCount + " inodes, " + fragments.size() + " fragments, " + bytesUsed + " bytes)");
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Splits files in blocks, in the same order as they are listed
+	 */
+	private void writeData(Node directory) throws IOException {
+		for (Node node : directory.children.values()) {
+			if (node.type == Type.DIRECTORY) {
+				writeData(node);
+			} else if (node.type == Type.FILE) {
+				writeFile(node);
+			}
+		}
+	}
+
+	private void writeFile(Node file) throws IOException {
+		int blockCount = (int) (file.size / BLOCK_SIZE);
+		int tailLength = (int) (file.size % BLOCK_SIZE);
+		file.blockSizes = new int[blockCount];
+		try (InputStream in = Files.newInputStream(file.source)) {
+			for (int i = 0; i < blockCount; i++) {
+				byte[] data = new byte[BLOCK_SIZE];
+				readFully(in, data, BLOCK_SIZE, file);
+				final int index = i;
+				submitBlock(data, BLOCK_SIZE, (position, size) -> {
+					if (index == 0) {
+						file.startBlock = position;
+					}
+					file.blockSizes[index] = size;
+				});
+			}
+			if (tailLength > 0) {
+				if (fragmentLength + tailLength > BLOCK_SIZE) {
+					flushFragment();
+				}
+				readFully(in, fragmentBuffer, fragmentLength, tailLength, file);
+				file.fragment = fragments.size();
+				file.fragmentOffset = fragmentLength;
+				fragmentLength += tailLength;
+			}
+		}
+	}
+
+	private void readFully(InputStream in, byte[] data, int length, Node file) throws IOException {
+		readFully(in, data, 0, length, file);
+	}
+
+	private void readFully(InputStream in, byte[] data, int offset, int length, Node file) throws IOException {
+		if (IOUtils.read(in, data, offset, length) != length) {
+			throw new EOFException(file.source + " is smaller than expected (" + file.size + " bytes)");
+		}
+	}
+
+	private void flushFragment() throws IOException {
+		if (fragmentLength == 0) {
+			return;
+		}
+		long[] fragment = new long[2];
+		fragments.add(fragment);
+		submitBlock(fragmentBuffer, fragmentLength, (position, size) -> {
+			fragment[0] = position;
+			fragment[1] = size;
+		});
+		fragmentBuffer = new byte[BLOCK_SIZE];
+		fragmentLength = 0;
+	}
+
+	private void submitBlock(byte[] data, int length, BlockConsumer consumer) throws IOException {
+		pendingBlocks.add(new PendingBlock(executor.submit(() -> compress(data, length)), consumer));
+		while (pendingBlocks.size() > threads * 2) {
+			writeNextBlock();
+		}
+	}
+
+	private void writeNextBlock() throws IOException {
+		PendingBlock pending = pendingBlocks.poll();
+		try {
+			Block block = pending.block.get();
+			long position = getPosition();
+			channel.write(ByteBuffer.wrap(block.data, 0, block.length));
+			pending.consumer.accept(position, block.compressed ? block.length : block.length | UNCOMPRESSED_BLOCK);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing");
+		} catch (ExecutionException e) {
+			throw new IOException("Compression failed: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Compresses a block, keeping it uncompressed if its size is not reduced
+	 */
+	private Block compress(byte[] data, int length) throws IOException {
+		byte[] compressed;
+		if (compression == COMPRESSION_XZ) {
+			LZMA2Options options = new LZMA2Options(level < 0 ? LZMA2Options.PRESET_DEFAULT : level);
+			options.setDictSize(BLOCK_SIZE);
+			ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+			try (XZOutputStream xz = new XZOutputStream(out, options, XZ.CHECK_CRC32)) {
+				xz.write(data, 0, length);
+			}
+			compressed = out.toByteArray();
+		} else {
+			Deflater deflater = new Deflater(level < 0 ? Deflater.BEST_COMPRESSION : level);
+			try {
+				deflater.setInput(data, 0, length);
+				deflater.finish();
+				ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+				byte[] buffer = new byte[16 * 1024];
+				while (!deflater.finished() && out.size() < length) {
+					out.write(buffer, 0, deflater.deflate(buffer));
+				}
+				compressed = out.toByteArray();
+			} finally {
+				deflater.end();
+			}
+		}
+		return compressed.length < length ? new Block(compressed, compressed.length, true) : new Block(data, length, false);
+	}
+
+	/**
+	 * Numbers inodes in the same order as they are written (children first),
+	 * and sets the modification time of folders added implicitly
+	 */
+	private void assignInodeNumbers(Node directory) {
+		for (Node node : directory.children.values()) {
+			if (node.type == Type.DIRECTORY) {
+				assignInodeNumbers(node);
+			} else {
+				node.inodeNumber = ++inodeCount;
+			}
+		}
+		directory.inodeNumber = ++inodeCount;
+		if (directory.lastModified == UNKNOWN_TIME) {
+			directory.lastModified = latestModification;
+		}
+	}
+
+	/**
+	 * Writes inodes of a folder tree, so children inodes are already located
+	 * when a folder listing is written
+	 */
+	private void writeInodes(Node directory, MetadataWriter inodeTable, MetadataWriter directoryTable, int parentInodeNumber) throws IOException {
+		int subdirectories = 0;
+		for (Node node : directory.children.values()) {
+			node.inodeReference = inodeTable.getReference();
+			switch (node.type) {
+			case DIRECTORY:
+				writeInodes(node, inodeTable, directoryTable, directory.inodeNumber);
+				subdirectories++;
+				break;
+			case LINK:
+				byte[] target = node.linkTarget.getBytes(StandardCharsets.UTF_8);
+				ByteBuffer link = newInode(BASIC_SYMLINK, node, 8 + target.length);
+				link.putInt(1);
+				link.putInt(target.length);
+				link.put(target);
+				inodeTable.write(link.array());
+				break;
+			default:
+				writeFileInode(node, inodeTable);
+			}
+		}
+
+		// folder listing
+		long listingBlock = directoryTable.getReference() >>> 16;
+		int listingOffset = (int) (directoryTable.getReference() & 0xFFFF);
+		int listingSize = writeListing(directory, directoryTable);
+
+		directory.inodeReference = inodeTable.getReference();
+		if (listingSize + 3 <= 0xFFFF) {
+			ByteBuffer inode = newInode(BASIC_DIRECTORY, directory, 16);
+			inode.putInt((int) listingBlock);
+			inode.putInt(2 + subdirectories);
+			inode.putShort((short) (listingSize + 3));
+			inode.putShort((short) listingOffset);
+			inode.putInt(parentInodeNumber);
+			inodeTable.write(inode.array());
+		} else {
+			ByteBuffer inode = newInode(EXTENDED_DIRECTORY, directory, 24);
+			inode.putInt(2 + subdirectories);
+			inode.putInt(listingSize + 3);
+			inode.putInt((int) listingBlock);
+			inode.putInt(parentInodeNumber);
+			inode.putShort((short) 0);					// no index
+			inode.putShort((short) listingOffset);
+			inode.putInt(NO_XATTR);
+			inodeTable.write(inode.array());
+		}
+	}
+
+	private void writeFileInode(Node file, MetadataWriter inodeTable) throws IOException {
+		ByteBuffer inode;
+		if (file.size <= 0xFFFFFFFFL && file.startBlock <= 0xFFFFFFFFL) {
+			inode = newInode(BASIC_FILE, file, 16 + 4 * file.blockSizes.length);
+			inode.putInt((int) file.startBlock);
+			inode.putInt(file.fragment);
+			inode.putInt(file.fragment == NO_FRAGMENT ? 0 : file.fragmentOffset);
+			inode.putInt((int) file.size);
+		} else {
+			inode = newInode(EXTENDED_FILE, file, 40 + 4 * file.blockSizes.length);
+			inode.putLong(file.startBlock);
+			inode.putLong(file.size);
+			inode.putLong(0);							// sparse bytes
+			inode.putInt(1);							// links
+			inode.putInt(file.fragment);
+			inode.putInt(file.fragment == NO_FRAGMENT ? 0 : file.fragmentOffset);
+			inode.putInt(NO_XATTR);
+		}
+		for (int blockSize : file.blockSizes) {
+			inode.putInt(blockSize);
+		}
+		inodeTable.write(inode.array());
+	}
+
+	private ByteBuffer newInode(int type, Node node, int size) {
+		ByteBuffer inode = newBuffer(16 + size);
+		inode.putShort((short) type);
+		inode.putShort((short) (node.mode & 07777));
+		inode.putShort((short) 0);						// uid index
+		inode.putShort((short) 0);						// gid index
+		inode.putInt((int) (node.lastModified / 1000));
+		inode.putInt(node.inodeNumber);
+		return inode;
+	}
+
+	/**
+	 * Writes folder entries, grouped by headers which share the inode block
+	 * and a close inode number
+	 * @return Listing size
+	 */
+	private int writeListing(Node directory, MetadataWriter directoryTable) throws IOException {
+		List<Node> nodes = new ArrayList<>(directory.children.values());
+		int size = 0;
+		int i = 0;
+		while (i < nodes.size()) {
+			Node first = nodes.get(i);
+			long inodeBlock = first.inodeReference >>> 16;
+			int count = 1;
+			while (i + count < nodes.size() && count < MAX_DIRECTORY_HEADER_ENTRIES
+					&& nodes.get(i + count).inodeReference >>> 16 == inodeBlock
+					&& Math.abs(nodes.get(i + count).inodeNumber - first.inodeNumber) <= Short.MAX_VALUE) {
+				count++;
+			}
+			ByteBuffer header = newBuffer(12);
+			header.putInt(count - 1);
+			header.putInt((int) inodeBlock);
+			header.putInt(first.inodeNumber);
+			directoryTable.write(header.array());
+			size += 12;
+			for (Node node : nodes.subList(i, i + count)) {
+				byte[] name = node.name.getBytes(StandardCharsets.UTF_8);
+				ByteBuffer entry = newBuffer(8 + name.length);
+				entry.putShort((short) (node.inodeReference & 0xFFFF));
+				entry.putShort((short) (node.inodeNumber - first.inodeNumber));
+				entry.putShort((short) node.getBasicType());
+				entry.putShort((short) (name.length - 1));
+				entry.put(name);
+				directoryTable.write(entry.array());
+				size += entry.capacity();
+			}
+			i += count;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes a lookup table (metadata blocks followed by their locations)
+	 * @return Location of the metadata block locations
+	 */
+	private long writeTable(MetadataWriter table) throws IOException {
+		long tableStart = getPosition();
+		byte[] blocks = table.toByteArray();
+		writeBytes(blocks);
+		ByteBuffer index = newBuffer(8 * table.blockPositions.size());
+		for (long blockPosition : table.blockPositions) {
+			index.putLong(tableStart + blockPosition);
+		}
+		long indexStart = getPosition();
+		writeBytes(index.array());
+		return indexStart;
+	}
+
+	private long getPosition() throws IOException {
+		return channel.position() - imageStart;
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static ByteBuffer newBuffer(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Squashfs sorts names by their bytes
+	 */
+	private static int compareNames(String name1, String name2) {
+		byte[] bytes1 = name1.getBytes(StandardCharsets.UTF_8);
+		byte[] bytes2 = name2.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < Math.min(bytes1.length, bytes2.length); i++) {
+			int difference = (bytes1[i] & 0xFF) - (bytes2[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return bytes1.length - bytes2.length;
+	}
+
+	/**
+	 * Writes metadata in blocks of 8 KiB, compressed one by one
+	 */
+	private class MetadataWriter {
+
+		private final ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+		private final List<Long> blockPositions = new ArrayList<>();
+		private final byte[] block = new byte[METADATA_SIZE];
+		private int blockLength = 0;
+
+		/**
+		 * Get reference to the next byte to be written
+		 * @return Block location (relative to the table) and offset inside the uncompressed block
+		 */
+		long getReference() {
+			return ((long) blocks.size() << 16) | blockLength;
+		}
+
+		void write(byte[] bytes) throws IOException {
+			int offset = 0;
+			while (offset < bytes.length) {
+				int length = Math.min(bytes.length - offset, METADATA_SIZE - blockLength);
+				System.arraycopy(bytes, offset, block, blockLength, length);
+				blockLength += length;
+				offset += length;
+				if (blockLength == METADATA_SIZE) {
+					flush();
+				}
+			}
+		}
+
+		private void flush() throws IOException {
+			if (blockLength == 0) {
+				return;
+			}
+			blockPositions.add((long) blocks.size());
+			Block compressed = compress(block, blockLength);
+			int header = compressed.compressed ? compressed.length : compressed.length | UNCOMPRESSED_METADATA;
+			blocks.write(header & 0xFF);
+			blocks.write((header >> 8) & 0xFF);
+			blocks.write(compressed.data, 0, compressed.length);
+			blockLength = 0;
+		}
+
+		byte[] toByteArray() throws IOException {
+			flush();
+			return blocks.toByteArray();
+		}
+
+	}
+
+}
@@ -5,8 +5,10 @@ import static org.apache.commons.io.FileUtils.writeStringToFile;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
@@ -23,67 +25,86 @@ import io.github.fvarrui.javapackager.packagers.Packager;
  */
 public class VelocityUtils {
 
-	private static File assetsDir = new File("assets");
-	private static VelocityEngine velocityEngine = null;
-	private static List<io.github.fvarrui.javapackager.model.Template> templates;
+	// engines by assets dir, as packagers running in parallel may use different ones
+	private static final Map<File, VelocityEngine> velocityEngines = new ConcurrentHashMap<>();
 	
 	private VelocityUtils() {}
 	
-	public static void init(Packager packager) {
-		assetsDir = packager.getAssetsDir();
-		templates = packager.getTemplates() != null ? packager.getTemplates() : new ArrayList<>();
+	public static synchronized void init(Packager packager) {
+		if (packager.getTemplates() == null) {
+			packager.templates(new ArrayList<>());
+		}
 		// add default template configs
-		if (templates.stream().noneMatch(t -> t.getName().equals("windows/iss.vtl"))) {
-			templates.add(new io.github.fvarrui.javapackager.model.Template("windows/iss.vtl", true));
+		if (packager.getTemplates().stream().noneMatch(t -> t.getName().equals("windows/iss.vtl"))) {
+			packager.getTemplates().add(new io.github.fvarrui.javapackager.model.Template("windows/iss.vtl", true));
 		}
 	}
 
-	private static VelocityEngine getVelocityEngine() {
-		
-		if (velocityEngine == null) {
+	private static VelocityEngine getVelocityEngine(Packager packager) {
+		File assetsDir = packager.getAssetsDir() != null ? packager.getAssetsDir().getAbsoluteFile() : new File("assets").getAbsoluteFile();
+		return velocityEngines.computeIfAbsent(assetsDir, dir -> {
 			
-			velocityEngine = new VelocityEngine();
+			VelocityEngine velocityEngine = new VelocityEngine();
 			
 			// specify resource loaders to use
 			velocityEngine.setProperty(RuntimeConstants.RESOURCE_LOADERS, "file,class");
 			
 			// for the loader 'file', set the FileResourceLoader as the class to use and use 'assets' directory for templates
 			velocityEngine.setProperty("resource.loader.file.class", FileResourceLoader.class.getName());
-			velocityEngine.setProperty("resource.loader.file.path", assetsDir.getAbsolutePath());
+			velocityEngine.setProperty("resource.loader.file.path", dir.getAbsolutePath());
 			
 			// for the loader 'class', set the ClasspathResourceLoader as the class to use
 			velocityEngine.setProperty("resource.loader.class.class", ClasspathResourceLoader.class.getName());
 			
 			velocityEngine.init();
 			
-		}
-		
-		return velocityEngine;
+			return velocityEngine;
+		});
 	}
 	
-	private static String render(String templatePath, Object info) throws Exception {
+	private static String render(String templatePath, Packager info) throws Exception {
 		VelocityContext context = new VelocityContext();
 		context.put("features", new ArrayList<String>());
 		context.put("GUID", UUID.class);
 		context.put("StringUtils", org.apache.commons.lang3.StringUtils.class);
 		context.put("info", info);
-		Template template = getVelocityEngine().getTemplate(templatePath, "UTF-8");
+		Template template = getVelocityEngine(info).getTemplate(templatePath, "UTF-8");
 		StringBuilderWriter writer = new StringBuilderWriter();
 		template.merge(context, writer);		
 		return writer.toString();
 	}
 	
-	private static void render(String templatePath, File output, Object info, boolean includeBom) throws Exception {
-		String data = render(templatePath, info);
-		data = StringUtils.dosToUnix(data);
-		if (!includeBom) {
-			writeStringToFile(output, data, "UTF-8");
-		} else {
-			FileUtils.writeStringToFileWithBOM(output, data);
+	private static void render(String templatePath, File output, Packager info, boolean includeBom) throws Exception {
+		try (Metric metric = Metrics.render(templatePath, output)) {
+			String data = render(templatePath, info);
+			data = StringUtils.dosToUnix(data);
+			if (!includeBom) {
+				writeStringToFile(output, data, "UTF-8");
+			} else {
+				FileUtils.writeStringToFileWithBOM(output, data);
+			}
+			metric.files(1).bytesWritten(output.length());
+		}
+	}
+
+	/**
+	 * Renders a template in memory, so it can be streamed without writing it first
+	 * to a file
+	 * @param templatePath Template path
+	 * @param info Packager accessible from template as $info
+	 * @return Rendered template (with Unix line endings)
+	 * @throws Exception If template cannot be rendered
+	 */
+	public static String renderToString(String templatePath, Packager info) throws Exception {
+		try (Metric metric = Metrics.render(templatePath, null)) {
+			String data = StringUtils.dosToUnix(render(templatePath, info));
+			metric.bytesWritten(data.length());
+			return data;
 		}
 	}
 
-	public static void render(String templatePath, File output, Object info) throws Exception {
+	public static void render(String templatePath, File output, Packager info) throws Exception {
+		List<io.github.fvarrui.javapackager.model.Template> templates = info.getTemplates() != null ? info.getTemplates() : new ArrayList<>();
 		Optional<io.github.fvarrui.javapackager.model.Template> template = templates.stream().filter(t -> t.getName().equals(templatePath)).findFirst();
 		render(templatePath, output, info, template.isPresent() ? template.get().isBom() : false);
 	}
@@ -0,0 +1,161 @@
+package io.github.fvarrui.javapackager.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bouncycastle.crypto.digests.MD4Digest;
+
+/**
+ * Zsync control file writer (zsync 0.6.2 format, as generated by zsyncmake).
+ * The control file has the rolling checksum and MD4 digest of every block, so
+ * zsync clients can download only the blocks which have changed. Block
+ * checksums are computed in parallel.
+ */
+public class ZsyncWriter {
+
+	private static final String ZSYNC_VERSION = "0.6.2";
+	private static final int SMALL_BLOCK_SIZE = 2048;
+	private static final int LARGE_BLOCK_SIZE = 4096;
+	private static final long LARGE_FILE_SIZE = 100000000L;
+	private static final int BLOCKS_PER_TASK = 4096;
+	private static final int CHECKSUM_SIZE = 20;
+	private static final DateTimeFormatter MTIME_FORMATTER = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss Z", Locale.US).withZone(ZoneOffset.UTC);
+
+	private final int threads;
+
+	/**
+	 * Creates a zsync control file writer
+	 * @param threads Number of threads used to compute block checksums
+	 */
+	public ZsyncWriter(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Writes the zsync control file of a file, next to it and with the same
+	 * name plus ".zsync" extension. The file URL is relative to the control file.
+	 * @param file File to be downloaded with zsync
+	 * @return Zsync control file
+	 * @throws IOException If the file cannot be read or the control file cannot be written
+	 */
+	public File write(File file) throws IOException {
+		File zsyncFile = new File(file.getParentFile(), file.getName() + ".zsync");
+
+		long length = file.length();
+		int blockSize = length < LARGE_FILE_SIZE ? SMALL_BLOCK_SIZE : LARGE_BLOCK_SIZE;
+		long blockCount = (length + blockSize - 1) / blockSize;
+
+		// hash lengths (same as zsyncmake)
+		int sequentialMatches = length > blockSize ? 2 : 1;
+		int rsumLength = (int) Math.ceil(((Math.log(length) + Math.log(blockSize)) / Math.log(2) - 8.6) / sequentialMatches / 8);
+		rsumLength = Math.max(2, Math.min(4, rsumLength));
+		int checksumLength = (int) Math.ceil((20 + (Math.log(length) + Math.log(1 + length / blockSize)) / Math.log(2)) / sequentialMatches / 8);
+		checksumLength = Math.max(checksumLength, (int) ((7.9 + (20 + Math.log(1 + length / blockSize) / Math.log(2))) / 8));
+		checksumLength = Math.min(16, checksumLength);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "zsync");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try (OutputStream out = Files.newOutputStream(zsyncFile.toPath())) {
+
+			// block checksums in parallel, while the whole file is hashed
+			List<Future<byte[]>> checksums = new ArrayList<>();
+			for (long firstBlock = 0; firstBlock < blockCount; firstBlock += BLOCKS_PER_TASK) {
+				long start = firstBlock;
+				int count = (int) Math.min(BLOCKS_PER_TASK, blockCount - firstBlock);
+				checksums.add(executor.submit(() -> computeChecksums(file, start, count, blockSize)));
+			}
+			String sha1 = HashUtils.hash("SHA-1", file);
+
+			StringBuilder header = new StringBuilder();
+			header.append("zsync: ").append(ZSYNC_VERSION).append("\n");
+			header.append("Filename: ").append(file.getName()).append("\n");
+			header.append("MTime: ").append(MTIME_FORMATTER.format(Instant.ofEpochMilli(file.lastModified()))).append("\n");
+			header.append("Blocksize: ").append(blockSize).append("\n");
+			header.append("Length: ").append(length).append("\n");
+			header.append("Hash-Lengths: ").append(sequentialMatches).append(",").append(rsumLength).append(",").append(checksumLength).append("\n");
+			header.append("URL: ").append(file.getName()).append("\n");
+			header.append("SHA-1: ").append(sha1).append("\n");
+			header.append("\n");
+			out.write(header.toString().getBytes(StandardCharsets.US_ASCII));
+
+			// only the last bytes of the rolling checksum and the first bytes of the MD4 digest are kept
+			for (Future<byte[]> future : checksums) {
+				byte[] blockChecksums = future.get();
+				for (int i = 0; i < blockChecksums.length; i += CHECKSUM_SIZE) {
+					out.write(blockChecksums, i + 4 - rsumLength, rsumLength);
+					out.write(blockChecksums, i + 4, checksumLength);
+				}
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while computing zsync checksums");
+		} catch (ExecutionException e) {
+			throw new IOException("Zsync checksums failed: " + e.getCause().getMessage(), e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Logger.info("Zsync control file created in " + zsyncFile.getAbsolutePath());
+
+		return zsyncFile;
+	}
+
+	/**
+	 * Computes the rolling checksum (big-endian) and the MD4 digest of some
+	 * blocks, padding the last one with zeros
+	 */
+	private static byte[] computeChecksums(File file, long firstBlock, int count, int blockSize) throws IOException {
+		byte[] checksums = new byte[count * CHECKSUM_SIZE];
+		byte[] block = new byte[blockSize];
+		MD4Digest md4 = new MD4Digest();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long position = firstBlock * blockSize;
+			for (int i = 0; i < count; i++) {
+				ByteBuffer buffer = ByteBuffer.wrap(block);
+				while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0);
+				if (buffer.hasRemaining()) {
+					buffer.put(new byte[buffer.remaining()]);
+				}
+				position += blockSize;
+
+				int a = 0, b = 0;
+				for (int j = 0; j < blockSize; j++) {
+					int c = block[j] & 0xFF;
+					a += c;
+					b += (blockSize - j) * c;
+				}
+				int offset = i * CHECKSUM_SIZE;
+				checksums[offset] = (byte) (a >> 8);
+				checksums[offset + 1] = (byte) a;
+				checksums[offset + 2] = (byte) (b >> 8);
+				checksums[offset + 3] = (byte) b;
+
+				md4.update(block, 0, blockSize);
+				md4.doFinal(checksums, offset + 4);
+			}
+		}
+		return checksums;
+	}
+
+}